@@ -0,0 +1,58 @@
+-- iou_states / temperature_states 索引前后对比（PostgreSQL，psql 执行）
+-- 在独立的 vault_bench schema 中模拟 100 万条 vault_states 及对应的自定义表，不影响节点数据：
+--   psql -U postgres -d corda_party_a -f benchmark_vault_indexes.sql > benchmark.txt
+-- 先输出无索引时的执行计划，再按 iou.changelog-v2.xml、temperature.changelog-v2.xml 建索引后重跑
+
+\timing on
+DROP SCHEMA IF EXISTS vault_bench CASCADE;
+CREATE SCHEMA vault_bench;
+SET search_path TO vault_bench;
+
+CREATE TABLE vault_states (
+    transaction_id VARCHAR(144) NOT NULL,
+    output_index INT NOT NULL,
+    state_status INT,
+    recorded_timestamp TIMESTAMP,
+    PRIMARY KEY (output_index, transaction_id)
+);
+CREATE TABLE iou_states (
+    output_index INT, transaction_id VARCHAR(64), iou_value INT,
+    lender VARCHAR(64), borrower VARCHAR(64), linear_id VARCHAR(64)
+);
+CREATE TABLE temperature_states (
+    output_index INT, transaction_id VARCHAR(64), timestamp VARCHAR(64), temperature DOUBLE PRECISION,
+    is_critical BOOLEAN, owner VARCHAR(64), receiver VARCHAR(64), linear_id VARCHAR(64)
+);
+
+-- 50 万 IOU + 50 万温度记录；20 个参与方，约 5% 的温度记录为关键，约 30% 已消费
+INSERT INTO vault_states
+SELECT md5(g::text) || md5((g * 7)::text), 0, CASE WHEN g % 10 < 3 THEN 1 ELSE 0 END,
+       TIMESTAMP '2025-01-01' + g * INTERVAL '1 second'
+FROM generate_series(1, 1000000) g;
+
+INSERT INTO iou_states
+SELECT 0, md5(g::text) || md5((g * 7)::text), (g % 1000) + 1,
+       'O=Party' || (g % 20) || ',L=London,C=GB', 'O=Party' || ((g + 1) % 20) || ',L=New York,C=US', md5('iou' || g)
+FROM generate_series(1, 500000) g;
+
+INSERT INTO temperature_states
+SELECT 0, md5(g::text) || md5((g * 7)::text),
+       to_char(TIMESTAMP '2025-01-01' + g * INTERVAL '1 second', 'YYYY-MM-DD"T"HH24:MI:SS"Z"'),
+       20 + (g % 700) / 10.0, g % 20 = 0,
+       'O=Party' || (g % 20) || ',L=London,C=GB', 'O=Party' || ((g + 3) % 20) || ',L=Paris,C=FR', md5('temp' || g)
+FROM generate_series(500001, 1000000) g;
+
+ANALYZE;
+
+\echo ===== 无索引 =====
+\ir benchmark_vault_queries.sql
+
+CREATE INDEX iou_states_lender_idx ON iou_states (lender);
+CREATE INDEX temperature_states_critical_idx ON temperature_states (is_critical);
+ANALYZE;
+
+\echo ===== 有索引 =====
+\ir benchmark_vault_queries.sql
+
+RESET search_path;
+DROP SCHEMA vault_bench CASCADE;
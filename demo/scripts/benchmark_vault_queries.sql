@@ -0,0 +1,15 @@
+-- 由 benchmark_vault_indexes.sql 引用：与金库查询生成的 SQL 形状一致（vault_states 按 StateRef 关联自定义表）
+
+\echo --- /my-ious：按 lender 过滤，第 1 页 50 条
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT i.* FROM vault_states v JOIN iou_states i
+  ON i.transaction_id = v.transaction_id AND i.output_index = v.output_index
+WHERE v.state_status = 0 AND i.lender = 'O=Party7,L=London,C=GB'
+ORDER BY v.recorded_timestamp DESC LIMIT 50;
+
+\echo --- 温度：仅关键记录
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT t.* FROM vault_states v JOIN temperature_states t
+  ON t.transaction_id = v.transaction_id AND t.output_index = v.output_index
+WHERE v.state_status = 0 AND t.is_critical = true
+ORDER BY v.recorded_timestamp DESC LIMIT 50;
@@ -7,6 +7,13 @@ import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
 import net.corda.core.node.NodeInfo;
+import net.corda.core.node.services.Vault;
+import net.corda.core.node.services.vault.Builder;
+import net.corda.core.node.services.vault.PageSpecification;
+import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.QueryCriteriaUtils;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
 import net.corda.core.transactions.SignedTransaction;
 
 import java.time.LocalDateTime;
@@ -14,6 +21,7 @@ import java.time.ZoneId;
 import java.util.*;
 
 import net.corda.samples.example.flows.ExampleFlow;
+import net.corda.samples.example.schema.IOUSchemaV1;
 import net.corda.samples.example.states.IOUState;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x500.style.BCStyle;
@@ -139,10 +147,18 @@ public class Controller {
         myMap.put("me", me.toString());
         return myMap;
     }
+    /**
+     * 分页列出 IOU 状态。sort 可选 recordedTime（默认）/timestamp（入库时间）或 value，direction 为 asc/desc
+     */
     @GetMapping(value = "/ious",produces = APPLICATION_JSON_VALUE)
-    public List<StateAndRef<IOUState>> getIOUs() {
+    public ResponseEntity<Map<String, Object>> getIOUs(@RequestParam(required = false) Integer page,
+                                                       @RequestParam(required = false) Integer size,
+                                                       @RequestParam(defaultValue = "recordedTime") String sort,
+                                                       @RequestParam(defaultValue = "desc") String direction,
+                                                       @RequestParam(required = false) String pageToken) {
         // Filter by state type: IOU.
-        return proxy.vaultQuery(IOUState.class).getStates();
+        return queryIOUs(new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED),
+                page, size, sort, direction, pageToken);
     }
 
     @PostMapping (value = "create-iou" , produces =  TEXT_PLAIN_VALUE , headers =  "Content-Type=application/x-www-form-urlencoded" )
@@ -172,11 +188,57 @@ public class Controller {
     }
     /**
      * Displays all IOU states that only this node has been involved in.
+     * 在数据库中按 lender 过滤，分页参数同 /ious
      */
     @GetMapping(value = "my-ious",produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<StateAndRef<IOUState>>> getMyIOUs() {
-        List<StateAndRef<IOUState>> myious = proxy.vaultQuery(IOUState.class).getStates().stream().filter(
-                it -> it.getState().getData().getLender().equals(proxy.nodeInfo().getLegalIdentities().get(0))).collect(Collectors.toList());
-        return ResponseEntity.ok(myious);
+    public ResponseEntity<Map<String, Object>> getMyIOUs(@RequestParam(required = false) Integer page,
+                                                         @RequestParam(required = false) Integer size,
+                                                         @RequestParam(defaultValue = "recordedTime") String sort,
+                                                         @RequestParam(defaultValue = "desc") String direction,
+                                                         @RequestParam(required = false) String pageToken) {
+        QueryCriteria criteria;
+        try {
+            criteria = new QueryCriteria.VaultCustomQueryCriteria(
+                    Builder.equal(QueryCriteriaUtils.getField("lender", IOUSchemaV1.PersistentIOU.class), me.toString()));
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException(e);
+        }
+        return queryIOUs(criteria, page, size, sort, direction, pageToken);
+    }
+
+    private ResponseEntity<Map<String, Object>> queryIOUs(QueryCriteria criteria, Integer page, Integer size,
+                                                          String sort, String direction, String pageToken) {
+        VaultPaging paging;
+        Sort sorting;
+        try {
+            paging = VaultPaging.of(page, size, direction, pageToken);
+            sorting = iouSort(sort, paging.descending);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("status", "error");
+            error.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+        }
+        Vault.Page<IOUState> result = proxy.vaultQueryBy(criteria,
+                new PageSpecification(paging.pageNumber, paging.pageSize), sorting, IOUState.class);
+        Map<String, Object> response = new LinkedHashMap<>(paging.describe(result.getTotalStatesAvailable(), result.getStates().size()));
+        response.put("states", result.getStates());
+        return ResponseEntity.ok(response);
+    }
+
+    // 主排序列之后再按 StateRef 排序，保证翻页时顺序稳定
+    private static Sort iouSort(String sortBy, boolean descending) {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        List<Sort.SortColumn> columns = new ArrayList<>();
+        if (sortBy.equals("recordedTime") || sortBy.equals("timestamp")) {
+            columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), direction));
+        } else if (sortBy.equals("value")) {
+            columns.add(new Sort.SortColumn(new SortAttribute.Custom(IOUSchemaV1.PersistentIOU.class, "value"), direction));
+        } else {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortBy + "（可选 recordedTime、timestamp、value）");
+        }
+        columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_TXN_ID), direction));
+        columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_INDEX), direction));
+        return new Sort(columns);
     }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package net.corda.samples.example.webserver;
 
 import net.corda.core.contracts.StateAndRef;
+import net.corda.core.identity.CordaX500Name;
 import net.corda.core.identity.Party;
 import net.corda.core.messaging.CordaRPCOps;
+import net.corda.core.node.services.Vault;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.samples.example.states.TemperatureState;
 import org.slf4j.Logger;
@@ -11,7 +13,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 
 @RestController
@@ -122,11 +126,25 @@ public class TemperatureController {
         }
     }
 
-    // 2. 查询温度记录
+    // 2. 查询温度记录（分页）：sort 可选 recordedTime（默认）、timestamp、temperature，direction 为 asc/desc
     @GetMapping("/query")
     public ResponseEntity<Map<String, Object>> queryTemperatures(
-            @RequestParam(defaultValue = "false") boolean onlyCritical) {
+            @RequestParam(defaultValue = "false") boolean onlyCritical,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "recordedTime") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String pageToken) {
         
+        VaultPaging paging;
+        try {
+            paging = VaultPaging.of(page, size, direction, pageToken);
+            checkSort(sort);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("status", "error", "message", e.getMessage()));
+        }
+
         try {
             // 先检查是否有温度Flow
             String allFlows = proxy.registeredFlows().toString();
@@ -141,10 +159,11 @@ public class TemperatureController {
                 return ResponseEntity.ok(response);
             }
             
-            List<StateAndRef<TemperatureState>> states = proxy.startTrackedFlowDynamic(
-                    net.corda.samples.example.flows.TemperatureFlows.QueryTemperaturesFlow.class,
-                    onlyCritical
+            Vault.Page<TemperatureState> result = proxy.startTrackedFlowDynamic(
+                    net.corda.samples.example.flows.TemperatureFlows.QueryTemperaturePageFlow.class,
+                    onlyCritical, paging.pageNumber, paging.pageSize, sort, paging.descending
             ).getReturnValue().get();
+            List<StateAndRef<TemperatureState>> states = result.getStates();
 
             List<Map<String, Object>> records = states.stream().map(state -> {
                 TemperatureState temp = state.getState().getData();
@@ -162,6 +181,7 @@ public class TemperatureController {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
             response.put("count", records.size());
+            response.putAll(paging.describe(result.getTotalStatesAvailable(), records.size()));
             response.put("records", records);
             
             return ResponseEntity.ok(response);
@@ -182,6 +202,101 @@ public class TemperatureController {
         }
     }
 
+    // 与 QueryTemperaturePageFlow 支持的排序字段一致，非法值在启动 Flow 之前返回 400
+    private static void checkSort(String sortBy) {
+        if (!sortBy.equals("recordedTime") && !sortBy.equals("timestamp") && !sortBy.equals("temperature")) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortBy + "（可选 recordedTime、timestamp、temperature）");
+        }
+    }
+
+    // 2.1 按读数时间范围查询：from/to 为 ISO-8601 时间，缺省时查询最近 lastMinutes 分钟（默认 60）。
+    // 第一页解析出的时间窗口写入 nextPageToken，带令牌的请求沿用该窗口，忽略 from/to/lastMinutes
+    @GetMapping("/range")
+    public ResponseEntity<Map<String, Object>> queryTemperaturesByRange(
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "60") long lastMinutes,
+            @RequestParam(required = false) String receiver,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(required = false) String pageToken) {
+
+        VaultPaging paging;
+        Instant toTime;
+        Instant fromTime;
+        Party receiverParty = null;
+        try {
+            if (lastMinutes <= 0) {
+                throw new IllegalArgumentException("lastMinutes 必须大于 0");
+            }
+            paging = VaultPaging.of(page, size, direction, pageToken);
+            if (paging.windowFrom != null) {
+                fromTime = paging.windowFrom;
+                toTime = paging.windowTo;
+            } else {
+                toTime = to != null ? Instant.parse(to) : Instant.now();
+                fromTime = from != null ? Instant.parse(from) : toTime.minus(Duration.ofMinutes(lastMinutes));
+                paging = paging.withWindow(fromTime, toTime);
+            }
+            if (fromTime.isAfter(toTime)) {
+                throw new IllegalArgumentException("from 不能晚于 to");
+            }
+            if (receiver != null && !receiver.isEmpty()) {
+                receiverParty = proxy.wellKnownPartyFromX500Name(CordaX500Name.parse(receiver));
+                if (receiverParty == null) {
+                    throw new IllegalArgumentException("未找到接收方: " + receiver);
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("status", "error", "message", e.getMessage()));
+        }
+
+        try {
+            Vault.Page<TemperatureState> result = proxy.startTrackedFlowDynamic(
+                    net.corda.samples.example.flows.TemperatureFlows.QueryTemperaturesByRangeFlow.class,
+                    fromTime, toTime, receiverParty, paging.pageNumber, paging.pageSize, paging.descending
+            ).getReturnValue().get();
+
+            List<Map<String, Object>> records = result.getStates().stream().map(state -> {
+                TemperatureState temp = state.getState().getData();
+                Map<String, Object> record = new HashMap<>();
+                record.put("timestamp", temp.getTimestamp().toString());
+                record.put("temperature", temp.getTemperature());
+                record.put("critical", temp.isCritical());
+                record.put("owner", temp.getOwner().getName().toString());
+                record.put("receiver", temp.getReceiver().getName().toString());
+                record.put("linearId", temp.getLinearId().toString());
+                record.put("stateRef", state.getRef().toString());
+                return record;
+            }).collect(java.util.stream.Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "success");
+            response.put("from", fromTime.toString());
+            response.put("to", toTime.toString());
+            response.put("count", records.size());
+            response.putAll(paging.describe(result.getTotalStatesAvailable(), records.size()));
+            response.put("records", records);
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            logger.error("按时间范围查询温度记录失败", e);
+
+            String errorMessage = e.getMessage();
+            if (errorMessage == null) {
+                errorMessage = e.getClass().getSimpleName();
+            }
+
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of(
+                        "status", "error",
+                        "message", errorMessage
+                    ));
+        }
+    }
+
     // 3. 转移温度记录
     @PostMapping("/transfer")
     public ResponseEntity<Map<String, Object>> transferTemperature(
@@ -0,0 +1,107 @@
+package net.corda.samples.example.webserver;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 金库分页查询的公共参数处理：页码从 1 开始，每页最多 MAX_PAGE_SIZE 条。
+ * 下一页令牌只编码页码和每页条数，排序和过滤参数需要与上一次请求保持一致；
+ * 按时间范围查询时令牌还带上第一页解析出的 from/to，后续页不会随当前时间移动。
+ */
+final class VaultPaging {
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 1000;
+
+    final int pageNumber;
+    final int pageSize;
+    final boolean descending;
+    // 令牌中的时间窗口，没有时为 null
+    final Instant windowFrom;
+    final Instant windowTo;
+
+    private VaultPaging(int pageNumber, int pageSize, boolean descending, Instant windowFrom, Instant windowTo) {
+        this.pageNumber = pageNumber;
+        this.pageSize = pageSize;
+        this.descending = descending;
+        this.windowFrom = windowFrom;
+        this.windowTo = windowTo;
+    }
+
+    /**
+     * 解析请求参数；pageToken 存在时优先于 page/size
+     */
+    static VaultPaging of(Integer page, Integer size, String direction, String pageToken) {
+        int pageNumber = page != null ? page : 1;
+        int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+        Instant windowFrom = null;
+        Instant windowTo = null;
+        if (pageToken != null && !pageToken.isEmpty()) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("无效的 pageToken: " + pageToken);
+            }
+            // 格式为 页码:条数 或 页码:条数:from/to，时间本身含有冒号，只切前两段
+            String[] parts = decoded.split(":", 3);
+            try {
+                pageNumber = Integer.parseInt(parts[0]);
+                pageSize = Integer.parseInt(parts[1]);
+                if (parts.length == 3) {
+                    String[] window = parts[2].split("/");
+                    windowFrom = Instant.parse(window[0]);
+                    windowTo = Instant.parse(window[1]);
+                }
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("无效的 pageToken: " + pageToken);
+            }
+        }
+        if (pageNumber < 1) {
+            throw new IllegalArgumentException("page 必须从 1 开始");
+        }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size 必须在 1 到 " + MAX_PAGE_SIZE + " 之间");
+        }
+        boolean descending;
+        if (direction == null || direction.equalsIgnoreCase("desc")) {
+            descending = true;
+        } else if (direction.equalsIgnoreCase("asc")) {
+            descending = false;
+        } else {
+            throw new IllegalArgumentException("direction 只能是 asc 或 desc");
+        }
+        return new VaultPaging(pageNumber, pageSize, descending, windowFrom, windowTo);
+    }
+
+    /**
+     * 记录本次查询的时间窗口，下一页令牌会带上它
+     */
+    VaultPaging withWindow(Instant from, Instant to) {
+        return new VaultPaging(pageNumber, pageSize, descending, from, to);
+    }
+
+    /**
+     * 分页信息：总数、当前页和下一页令牌（没有下一页时为 null）
+     */
+    Map<String, Object> describe(long totalStates, int returned) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("page", pageNumber);
+        info.put("pageSize", pageSize);
+        info.put("totalCount", totalStates);
+        info.put("totalPages", totalStates <= 0 ? 0 : (totalStates + pageSize - 1) / pageSize);
+        boolean hasNext = returned == pageSize && (long) pageNumber * pageSize < totalStates;
+        info.put("nextPageToken", hasNext ? token(pageNumber + 1) : null);
+        return info;
+    }
+
+    private String token(int nextPage) {
+        String value = nextPage + ":" + pageSize;
+        if (windowFrom != null && windowTo != null) {
+            value += ":" + windowFrom + "/" + windowTo;
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
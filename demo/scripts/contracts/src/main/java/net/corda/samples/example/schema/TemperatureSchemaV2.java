@@ -0,0 +1,67 @@
+package net.corda.samples.example.schema;
+
+import net.corda.core.schemas.MappedSchema;
+import net.corda.core.schemas.PersistentState;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.UUID;
+import org.hibernate.annotations.Type;
+import javax.annotation.Nullable;
+
+/**
+ * V2：timestamp 存为数据库原生时间类型，可以按时间范围走索引查询和排序。
+ * 表名与 V1 不同，两个版本的映射同时写入；已有数据由 temperature.changelog-v3.xml 回填
+ */
+public class TemperatureSchemaV2 extends MappedSchema {
+    public TemperatureSchemaV2() {
+        super(TemperatureSchema.class, 2, Arrays.asList(PersistentTemperatureV2.class));
+    }
+
+    @Nullable
+    @Override
+    public String getMigrationResource() {
+        return "temperature.changelog-master";
+    }
+
+    @Entity
+    @Table(name = "temperature_states_v2")
+    public static class PersistentTemperatureV2 extends PersistentState {
+        @Column(name = "timestamp") private final Instant timestamp;
+        @Column(name = "temperature") private final double temperature;
+        @Column(name = "is_critical") private final boolean isCritical;
+        @Column(name = "owner") private final String owner;
+        @Column(name = "receiver") private final String receiver;
+        @Column(name = "linear_id") @Type(type = "uuid-char") private final UUID linearId;
+
+        public PersistentTemperatureV2(Instant timestamp, double temperature, boolean isCritical,
+                                       String owner, String receiver, UUID linearId) {
+            this.timestamp = timestamp;
+            this.temperature = temperature;
+            this.isCritical = isCritical;
+            this.owner = owner;
+            this.receiver = receiver;
+            this.linearId = linearId;
+        }
+
+        public PersistentTemperatureV2() {
+            this.timestamp = null;
+            this.temperature = 0;
+            this.isCritical = false;
+            this.owner = null;
+            this.receiver = null;
+            this.linearId = null;
+        }
+
+        // Getters
+        public Instant getTimestamp() { return timestamp; }
+        public double getTemperature() { return temperature; }
+        public boolean isCritical() { return isCritical; }
+        public String getOwner() { return owner; }
+        public String getReceiver() { return receiver; }
+        public UUID getLinearId() { return linearId; }
+    }
+}
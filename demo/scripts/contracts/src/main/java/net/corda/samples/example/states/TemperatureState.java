@@ -10,6 +10,7 @@ import net.corda.core.schemas.PersistentState;
 import net.corda.core.schemas.QueryableState;
 import net.corda.samples.example.contracts.TemperatureContract;
 import net.corda.samples.example.schema.TemperatureSchemaV1;
+import net.corda.samples.example.schema.TemperatureSchemaV2;
 
 import java.time.Instant;
 import java.util.Arrays;
@@ -56,6 +57,14 @@ public class TemperatureState implements LinearState, QueryableState {
                     this.owner.getName().toString(),
                     this.receiver.getName().toString(),
                     this.linearId.getId());
+        } else if (schema instanceof TemperatureSchemaV2) {
+            return new TemperatureSchemaV2.PersistentTemperatureV2(
+                    this.timestamp,
+                    this.temperature,
+                    this.isCritical,
+                    this.owner.getName().toString(),
+                    this.receiver.getName().toString(),
+                    this.linearId.getId());
         } else {
             throw new IllegalArgumentException("Unrecognised schema $schema");
         }
@@ -63,6 +72,6 @@ public class TemperatureState implements LinearState, QueryableState {
 
     @Override
     public Iterable<MappedSchema> supportedSchemas() {
-        return Arrays.asList(new TemperatureSchemaV1());
+        return Arrays.asList(new TemperatureSchemaV1(), new TemperatureSchemaV2());
     }
 }
\ No newline at end of file
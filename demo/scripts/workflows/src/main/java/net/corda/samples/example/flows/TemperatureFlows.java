@@ -1,9 +1,16 @@
 package net.corda.samples.example.flows;
+import net.corda.core.node.services.Vault;
 import net.corda.core.node.services.vault.Builder;
 import net.corda.core.node.services.vault.FieldInfo;
+import net.corda.core.node.services.vault.PageSpecification;
 import net.corda.core.node.services.vault.QueryCriteria;
+import net.corda.core.node.services.vault.QueryCriteriaUtils;
+import net.corda.core.node.services.vault.Sort;
+import net.corda.core.node.services.vault.SortAttribute;
 import co.paralleluniverse.fibers.Suspendable;
 import net.corda.samples.example.contracts.TemperatureContract;
+import net.corda.samples.example.schema.TemperatureSchemaV1;
+import net.corda.samples.example.schema.TemperatureSchemaV2;
 import net.corda.samples.example.states.TemperatureState;
 import net.corda.core.contracts.Command;
 import net.corda.core.contracts.StateAndRef;
@@ -14,6 +21,7 @@ import net.corda.core.transactions.SignedTransaction;
 import net.corda.core.transactions.TransactionBuilder;
 import net.corda.core.utilities.ProgressTracker;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -205,8 +213,14 @@ public class TemperatureFlows {
         }
     }
 
+    /**
+     * 查询全部（或仅关键）温度状态。逐页读取，不受默认分页 200 条的限制；
+     * 状态较多时请使用 QueryTemperaturePageFlow 分页浏览
+     */
     @StartableByRPC
     public static class QueryTemperaturesFlow extends FlowLogic<List<StateAndRef<TemperatureState>>> {
+        private static final int PAGE_SIZE = 1000;
+
         private final boolean onlyCritical;
 
         public QueryTemperaturesFlow(boolean onlyCritical) {
@@ -216,41 +230,150 @@ public class TemperatureFlows {
         @Suspendable
         @Override
         public List<StateAndRef<TemperatureState>> call() throws FlowException {
-            if (onlyCritical) {
-                // 方案1：使用内存过滤（简单但性能较差）
-                return getAllStates().stream()
-                        .filter(stateAndRef -> stateAndRef.getState().getData().isCritical())
-                        .collect(Collectors.toList());
-
-                // 或者方案2：使用线性ID查询（需要预先知道关键状态的ID）
-                // return queryByLinearIds(getCriticalStateIds());
-            } else {
-                return getAllStates();
+            QueryCriteria criteria = temperatureCriteria(onlyCritical);
+            Sort sort = temperatureSort(null, false);
+            List<StateAndRef<TemperatureState>> states = new ArrayList<>();
+            int pageNumber = QueryCriteriaUtils.DEFAULT_PAGE_NUM;
+            while (true) {
+                Vault.Page<TemperatureState> page = getServiceHub().getVaultService().queryBy(
+                        TemperatureState.class, criteria, new PageSpecification(pageNumber, PAGE_SIZE), sort);
+                states.addAll(page.getStates());
+                if (page.getStates().size() < PAGE_SIZE || (long) pageNumber * PAGE_SIZE >= page.getTotalStatesAvailable()) {
+                    return states;
+                }
+                pageNumber++;
+            }
+        }
+    }
+
+    /**
+     * 分页查询温度状态，返回一页数据和满足条件的总数（Vault.Page.totalStatesAvailable）。
+     * sortBy 可选 timestamp、temperature、recordedTime（默认，按入库时间）
+     */
+    @StartableByRPC
+    public static class QueryTemperaturePageFlow extends FlowLogic<Vault.Page<TemperatureState>> {
+        private final boolean onlyCritical;
+        private final int pageNumber;
+        private final int pageSize;
+        private final String sortBy;
+        private final boolean descending;
+
+        public QueryTemperaturePageFlow(boolean onlyCritical, int pageNumber, int pageSize, String sortBy, boolean descending) {
+            this.onlyCritical = onlyCritical;
+            this.pageNumber = pageNumber;
+            this.pageSize = pageSize;
+            this.sortBy = sortBy;
+            this.descending = descending;
+        }
+
+        @Suspendable
+        @Override
+        public Vault.Page<TemperatureState> call() throws FlowException {
+            if (pageNumber < QueryCriteriaUtils.DEFAULT_PAGE_NUM || pageSize < 1 || pageSize > QueryCriteriaUtils.MAX_PAGE_SIZE) {
+                throw new FlowException("无效的分页参数: pageNumber=" + pageNumber + ", pageSize=" + pageSize);
             }
+            return getServiceHub().getVaultService().queryBy(TemperatureState.class,
+                    temperatureCriteria(onlyCritical), new PageSpecification(pageNumber, pageSize),
+                    temperatureSort(sortBy, descending));
         }
+    }
 
-        // 获取所有温度状态
-        private List<StateAndRef<TemperatureState>> getAllStates() {
-            return getServiceHub().getVaultService()
-                    .queryBy(TemperatureState.class)
-                    .getStates();
+    /**
+     * 按读数时间查询 [from, to) 范围内的温度状态，可选按接收方过滤，结果按时间排序分页返回。
+     * 使用 TemperatureSchemaV2 的原生 timestamp 列，走 (timestamp) 或 (receiver, timestamp) 索引；
+     * from/to 为 null 表示不限制该端
+     */
+    @StartableByRPC
+    public static class QueryTemperaturesByRangeFlow extends FlowLogic<Vault.Page<TemperatureState>> {
+        private final Instant from;
+        private final Instant to;
+        private final Party receiver;
+        private final int pageNumber;
+        private final int pageSize;
+        private final boolean descending;
+
+        public QueryTemperaturesByRangeFlow(Instant from, Instant to) {
+            this(from, to, null, QueryCriteriaUtils.DEFAULT_PAGE_NUM, QueryCriteriaUtils.DEFAULT_PAGE_SIZE, true);
         }
 
-        // 方案2的辅助方法（需要额外实现获取关键状态ID的逻辑）
-        private List<UniqueIdentifier> getCriticalStateIds() {
-            return getAllStates().stream()
-                    .filter(stateAndRef -> stateAndRef.getState().getData().isCritical())
-                    .map(stateAndRef -> stateAndRef.getState().getData().getLinearId())
-                    .collect(Collectors.toList());
+        public QueryTemperaturesByRangeFlow(Instant from, Instant to, Party receiver,
+                                            int pageNumber, int pageSize, boolean descending) {
+            this.from = from;
+            this.to = to;
+            this.receiver = receiver;
+            this.pageNumber = pageNumber;
+            this.pageSize = pageSize;
+            this.descending = descending;
         }
 
-        // 方案2的查询方法
-        private List<StateAndRef<TemperatureState>> queryByLinearIds(List<UniqueIdentifier> ids) {
-            QueryCriteria.LinearStateQueryCriteria criteria = new QueryCriteria.LinearStateQueryCriteria()
-                    .withUuid(ids.stream().map(UniqueIdentifier::getId).collect(Collectors.toList()));
-            return getServiceHub().getVaultService()
-                    .queryBy(TemperatureState.class, criteria)
-                    .getStates();
+        @Suspendable
+        @Override
+        public Vault.Page<TemperatureState> call() throws FlowException {
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new FlowException("时间范围无效: from=" + from + " 晚于 to=" + to);
+            }
+            if (pageNumber < QueryCriteriaUtils.DEFAULT_PAGE_NUM || pageSize < 1 || pageSize > QueryCriteriaUtils.MAX_PAGE_SIZE) {
+                throw new FlowException("无效的分页参数: pageNumber=" + pageNumber + ", pageSize=" + pageSize);
+            }
+            FieldInfo timestamp = temperatureV2Field("timestamp");
+            QueryCriteria criteria = new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+            if (from != null) {
+                criteria = criteria.and(new QueryCriteria.VaultCustomQueryCriteria(Builder.greaterThanOrEqual(timestamp, from)));
+            }
+            if (to != null) {
+                criteria = criteria.and(new QueryCriteria.VaultCustomQueryCriteria(Builder.lessThan(timestamp, to)));
+            }
+            if (receiver != null) {
+                criteria = criteria.and(new QueryCriteria.VaultCustomQueryCriteria(
+                        Builder.equal(temperatureV2Field("receiver"), receiver.getName().toString())));
+            }
+            return getServiceHub().getVaultService().queryBy(TemperatureState.class, criteria,
+                    new PageSpecification(pageNumber, pageSize), temperatureSort("timestamp", descending));
+        }
+    }
+
+    // onlyCritical 时在数据库中按 is_critical 过滤（有索引），只反序列化满足条件的状态
+    static QueryCriteria temperatureCriteria(boolean onlyCritical) throws FlowException {
+        if (!onlyCritical) {
+            return new QueryCriteria.VaultQueryCriteria(Vault.StateStatus.UNCONSUMED);
+        }
+        return new QueryCriteria.VaultCustomQueryCriteria(Builder.equal(temperatureField("isCritical"), true));
+    }
+
+    // 主排序列之后再按 StateRef 排序，保证翻页时顺序稳定
+    static Sort temperatureSort(String sortBy, boolean descending) throws FlowException {
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        List<Sort.SortColumn> columns = new ArrayList<>();
+        if (sortBy == null || sortBy.isEmpty() || sortBy.equals("recordedTime")) {
+            columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.VaultStateAttribute.RECORDED_TIME), direction));
+        } else if (sortBy.equals("timestamp")) {
+            // V2 的原生时间列；V1 中是字符串，排序结果不可靠
+            columns.add(new Sort.SortColumn(
+                    new SortAttribute.Custom(TemperatureSchemaV2.PersistentTemperatureV2.class, "timestamp"), direction));
+        } else if (sortBy.equals("temperature")) {
+            columns.add(new Sort.SortColumn(
+                    new SortAttribute.Custom(TemperatureSchemaV1.PersistentTemperature.class, "temperature"), direction));
+        } else {
+            throw new FlowException("不支持的排序字段: " + sortBy + "（可选 timestamp、temperature、recordedTime）");
+        }
+        columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_TXN_ID), direction));
+        columns.add(new Sort.SortColumn(new SortAttribute.Standard(Sort.CommonStateAttribute.STATE_REF_INDEX), direction));
+        return new Sort(columns);
+    }
+
+    private static FieldInfo temperatureV2Field(String name) throws FlowException {
+        try {
+            return QueryCriteriaUtils.getField(name, TemperatureSchemaV2.PersistentTemperatureV2.class);
+        } catch (NoSuchFieldException e) {
+            throw new FlowException("TemperatureSchemaV2 缺少 " + name + " 字段", e);
+        }
+    }
+
+    private static FieldInfo temperatureField(String name) throws FlowException {
+        try {
+            return QueryCriteriaUtils.getField(name, TemperatureSchemaV1.PersistentTemperature.class);
+        } catch (NoSuchFieldException e) {
+            throw new FlowException("TemperatureSchemaV1 缺少 " + name + " 字段", e);
         }
     }
 }
\ No newline at end of file
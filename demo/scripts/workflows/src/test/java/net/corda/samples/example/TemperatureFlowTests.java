@@ -8,6 +8,7 @@ import com.google.common.collect.ImmutableList;
 import net.corda.core.concurrent.CordaFuture;
 import net.corda.core.contracts.StateAndRef;
 import net.corda.core.identity.Party;
+import net.corda.core.node.services.Vault;
 import net.corda.core.transactions.SignedTransaction;
 import net.corda.testing.node.*;
 import org.junit.After;
@@ -117,4 +118,45 @@ public class TemperatureFlowTests {
         assertEquals(partyC, transferredState.getReceiver());
         assertEquals(25.5, transferredState.getTemperature(), 0.001);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void queryFlowReturnsOnlyCriticalStates() throws Exception {
+        Party partyB = b.getInfo().getLegalIdentities().get(0);
+
+        a.startFlow(new TemperatureFlows.CreateTemperatureFlow(Instant.now(), 25.5, false, partyB));
+        a.startFlow(new TemperatureFlows.CreateTemperatureFlow(Instant.now(), 85.0, true, partyB));
+        network.runNetwork();
+
+        CordaFuture<List<StateAndRef<TemperatureState>>> criticalFuture =
+                a.startFlow(new TemperatureFlows.QueryTemperaturesFlow(true));
+        CordaFuture<List<StateAndRef<TemperatureState>>> allFuture =
+                a.startFlow(new TemperatureFlows.QueryTemperaturesFlow(false));
+        network.runNetwork();
+
+        List<StateAndRef<TemperatureState>> critical = criticalFuture.get();
+        assertEquals(1, critical.size());
+        assertTrue(critical.get(0).getState().getData().isCritical());
+        assertEquals(85.0, critical.get(0).getState().getData().getTemperature(), 0.001);
+        assertEquals(2, allFuture.get().size());
+    }
+
+    @Test
+    public void rangeFlowReturnsReadingsInsideTheWindow() throws Exception {
+        Party partyB = b.getInfo().getLegalIdentities().get(0);
+        Instant now = Instant.now();
+
+        a.startFlow(new TemperatureFlows.CreateTemperatureFlow(now.minusSeconds(7200), 20.0, false, partyB));
+        a.startFlow(new TemperatureFlows.CreateTemperatureFlow(now.minusSeconds(1800), 21.0, false, partyB));
+        a.startFlow(new TemperatureFlows.CreateTemperatureFlow(now.minusSeconds(600), 22.0, true, partyB));
+        network.runNetwork();
+
+        CordaFuture<Vault.Page<TemperatureState>> future =
+                a.startFlow(new TemperatureFlows.QueryTemperaturesByRangeFlow(now.minusSeconds(3600), now));
+        network.runNetwork();
+
+        Vault.Page<TemperatureState> page = future.get();
+        assertEquals(2, page.getTotalStatesAvailable());
+        assertEquals(22.0, page.getStates().get(0).getState().getData().getTemperature(), 0.001);
+        assertEquals(21.0, page.getStates().get(1).getState().getData().getTemperature(), 0.001);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.DirectorySizeService;
+import com.example.demo.service.JmxTelemetryCollector;
+import com.example.demo.service.LogIndexService;
+import com.example.demo.service.NodeLogScanner;
+import com.example.demo.service.ProcessResourceSampler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/monitor")// 节点资源监控接口
+public class MonitorController
+{
+    @Autowired
+    private ProcessResourceSampler processResourceSampler;
+
+    @Autowired
+    private JmxTelemetryCollector jmxTelemetryCollector;
+
+    @Autowired
+    private NodeLogScanner nodeLogScanner;
+
+    @Autowired
+    private LogIndexService logIndexService;
+
+    @Autowired
+    private DirectorySizeService directorySizeService;
+
+    // 所有受管进程（节点和 webserver）最近一次的 CPU、内存、IO 样本
+    @GetMapping("/processes")
+    public Map<String, Object> getProcesses()
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("enabled", processResourceSampler.isEnabled());
+        response.put("processes", processResourceSampler.getLatest());
+        return response;
+    }
+
+    // 某个进程环形缓冲区中的历史样本
+    @GetMapping("/processes/{name}/samples")
+    public Map<String, Object> getProcessSamples(@PathVariable String name,
+                                                 @RequestParam(defaultValue = "60") int limit)
+    {
+        Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> samples = processResourceSampler.getSamples(name, limit);
+        response.put("success", true);
+        response.put("name", name);
+        response.put("count", samples.size());
+        response.put("samples", samples);
+        return response;
+    }
+
+    // 各节点 JVM 和 Corda 指标（通过 JMX 采集），同样以 corda.node.* 注册在 /actuator/metrics
+    @GetMapping("/jmx")
+    public Map<String, Object> getJmxMetrics()
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("enabled", jmxTelemetryCollector.isEnabled());
+        response.put("nodes", jmxTelemetryCollector.getSnapshots());
+        return response;
+    }
+
+    @GetMapping("/jmx/{name}")
+    public Map<String, Object> getJmxMetrics(@PathVariable String name)
+    {
+        Map<String, Object> response = new HashMap<>();
+        Map<String, Object> snapshot = jmxTelemetryCollector.getSnapshot(name);
+        response.put("success", snapshot != null);
+        if (snapshot == null) {
+            response.put("message", "没有节点 " + name + " 的 JMX 指标");
+        } else {
+            response.put("name", name);
+            response.put("snapshot", snapshot);
+        }
+        return response;
+    }
+
+    // 各节点日志的错误、警告、流程失败计数
+    @GetMapping("/logs")
+    public Map<String, Object> getLogStats()
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("enabled", nodeLogScanner.isEnabled());
+        response.put("sources", nodeLogScanner.getStats());
+        return response;
+    }
+
+    // 某个节点最近的错误行（webserver 日志使用 webserver-<节点名>）
+    @GetMapping("/logs/{name}/errors")
+    public Map<String, Object> getRecentErrors(@PathVariable String name,
+                                               @RequestParam(defaultValue = "50") int limit)
+    {
+        Map<String, Object> response = new HashMap<>();
+        List<NodeLogScanner.LogEntry> errors = nodeLogScanner.getRecentErrors(name, limit);
+        response.put("success", true);
+        response.put("name", name);
+        response.put("count", errors.size());
+        response.put("errors", errors);
+        return response;
+    }
+
+    // 立即扫描一次日志新增内容
+    @PostMapping("/logs/scan")
+    public Map<String, Object> scanLogs()
+    {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            NodeLogScanner.ScanResult result = nodeLogScanner.scan();
+            response.put("success", true);
+            response.put("result", result);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "扫描日志失败: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // 跨节点搜索日志：q 为流程 ID、交易哈希、X.500 名称、组织名或异常类名，多个关键字取交集
+    @GetMapping("/logs/search")
+    public Map<String, Object> searchLogs(@RequestParam String q,
+                                          @RequestParam(required = false) String node,
+                                          @RequestParam(defaultValue = "200") int limit)
+    {
+        Map<String, Object> response = new HashMap<>();
+        LogIndexService.SearchResult result = logIndexService.search(q, node, limit);
+        response.put("success", true);
+        response.put("terms", result.getTerms());
+        response.put("total", result.getTotal());
+        response.put("truncated", result.isTruncated());
+        response.put("durationMs", result.getDurationMs());
+        response.put("hits", result.getHits());
+        return response;
+    }
+
+    @GetMapping("/logs/index")
+    public Map<String, Object> getLogIndexStatus()
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("index", logIndexService.getStatus());
+        return response;
+    }
+
+    // 各节点目录大小、一级子目录明细和每小时增长量
+    @GetMapping("/disk")
+    public Map<String, Object> getDiskUsage()
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("enabled", directorySizeService.isEnabled());
+        response.put("nodes", directorySizeService.getSizes());
+        return response;
+    }
+
+    // 立即重新统计，只有收到变化事件的目录会重新读取
+    @PostMapping("/disk/refresh")
+    public Map<String, Object> refreshDiskUsage()
+    {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("result", directorySizeService.refreshAll());
+            response.put("nodes", directorySizeService.getSizes());
+            response.put("success", true);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "统计目录大小失败: " + e.getMessage());
+        }
+        return response;
+    }
+}
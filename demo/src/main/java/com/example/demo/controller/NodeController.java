@@ -1,10 +1,29 @@
 package com.example.demo.controller;
 
+import com.example.demo.service.CapacityPlannerService;
+import com.example.demo.service.GradleBuildService;
+import com.example.demo.service.JvmSizingService;
+import com.example.demo.service.NodeDatabaseProvisioner;
+import com.example.demo.service.NodeDeployService;
+import com.example.demo.service.NodeFleetService;
+import com.example.demo.service.NodeLockManager;
+import com.example.demo.service.NodeProvisioningService;
+import com.example.demo.service.NodeStartupOrchestrator;
+import com.example.demo.service.NodeWatchdogService;
+import com.example.demo.service.PortAllocationService;
 import com.example.demo.service.PowerShellService;
+import com.example.demo.service.SharedArtifactStore;
+import com.example.demo.service.TemplateDatabaseService;
+import com.example.demo.util.CordaProjectModel;
+import com.example.demo.util.HostResources;
+import com.example.demo.util.NodeDefinition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
@@ -14,6 +33,45 @@ public class NodeController
 {
     @Autowired
     private PowerShellService powerShellService;
+
+    @Autowired
+    private NodeStartupOrchestrator nodeStartupOrchestrator;
+
+    @Autowired
+    private NodeFleetService nodeFleetService;
+
+    @Autowired
+    private NodeDeployService nodeDeployService;
+
+    @Autowired
+    private GradleBuildService gradleBuildService;
+
+    @Autowired
+    private NodeProvisioningService nodeProvisioningService;
+
+    @Autowired
+    private PortAllocationService portAllocationService;
+
+    @Autowired
+    private NodeDatabaseProvisioner nodeDatabaseProvisioner;
+
+    @Autowired
+    private TemplateDatabaseService templateDatabaseService;
+
+    @Autowired
+    private SharedArtifactStore sharedArtifactStore;
+
+    @Autowired
+    private JvmSizingService jvmSizingService;
+
+    @Autowired
+    private CapacityPlannerService capacityPlannerService;
+
+    @Autowired
+    private NodeWatchdogService nodeWatchdogService;
+
+    @Autowired
+    private NodeLockManager nodeLockManager;
     
     //验证 Corda 项目配置
     @GetMapping("/validate")
@@ -29,6 +87,9 @@ public class NodeController
         response.put("scriptExists", projectInfo.isScriptExists());//脚本是否存在
         response.put("scriptPath", projectInfo.getScriptPath());
         response.put("valid", projectInfo.isRootExists() && projectInfo.isBuildGradleExists() && projectInfo.isScriptExists());
+        CordaProjectModel model = powerShellService.getProjectModel();
+        response.put("runnodesExists", model.isRunnodesExists());
+        response.put("modelVersion", model.getVersion());
         
         return response;
     }
@@ -45,10 +106,12 @@ public class NodeController
                 response.put("message", "Corda 项目配置验证失败，请检查配置");
                 return response;
             }
-            java.util.List<String> nodes = powerShellService.getNodeNames();
+            CordaProjectModel model = powerShellService.getProjectModel();
+            List<String> nodes = model.getNodeNames();
             response.put("success", true);
             response.put("nodes", nodes);
             response.put("count", nodes.size());
+            response.put("modelVersion", model.getVersion());
         } 
         catch (Exception e) 
         {
@@ -71,48 +134,84 @@ public class NodeController
                 response.put("projectInfo", info);
                 return response;
             }
+
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("add-node " + request.getNodeName())) {
+                if (!nodeProvisioningService.isUseScript()) {
+                    // 在进程内修改项目文件，不再启动 pwsh
+                    NodeDefinition requested = new NodeDefinition(request.getNodeName(), request.getP2pPort(),
+                        request.getRpcPort(), request.getAdminPort(), request.getDbName(), request.getDbUser(), false);
+                    NodeProvisioningService.ProvisionResult result =
+                        nodeProvisioningService.addNode(requested, request.isAutoPorts(), request.isAutoDb());
+                    // 排队的请求已受理，不算失败
+                    boolean accepted = result.isSuccess() || result.isQueued();
+                    response.put("success", accepted);
+                    response.put("accepted", accepted);
+                    response.put("message", accepted ? result.getMessage() : "节点添加失败: " + result.getMessage());
+                    response.put("output", result.getOutput());
+                    if (result.isQueued()) {
+                        response.put("queueId", result.getQueueId());
+                    }
+                    if (result.isSuccess()) {
+                        response.put("node", result.getNodes().get(0));
+                    }
+                    if (result.getCapacity() != null) {
+                        response.put("queued", result.isQueued());
+                        response.put("capacity", result.getCapacity());
+                    }
+                    return response;
+                }
+
+                if (capacityPlannerService.isEnabled()) {
+                    CapacityPlannerService.CapacityReport capacity = capacityPlannerService.assess(1);
+                    if (!capacity.isAdmitted()) {
+                        response.put("success", false);
+                        response.put("message", "节点添加失败: 主机容量不足: " + capacity.getSummary());
+                        response.put("capacity", capacity);
+                        return response;
+                    }
+                }
             
-            // 修复：使用双引号构建参数
-            StringBuilder arguments = new StringBuilder();
-            arguments.append("-NodeName \"").append(request.getNodeName()).append("\"");
+                // 修复：使用双引号构建参数
+                StringBuilder arguments = new StringBuilder();
+                arguments.append("-NodeName \"").append(request.getNodeName()).append("\"");
             
-            if (request.isAutoPorts()) {
-                arguments.append(" -AutoPorts");
-            } else {
-                if (request.getP2pPort() != null) 
-                    arguments.append(" -P2PPort ").append(request.getP2pPort());
-                if (request.getRpcPort() != null) 
-                    arguments.append(" -RPCPort ").append(request.getRpcPort());
-                if (request.getAdminPort() != null) 
-                    arguments.append(" -AdminPort ").append(request.getAdminPort());
-            }
+                if (request.isAutoPorts()) {
+                    arguments.append(" -AutoPorts");
+                } else {
+                    if (request.getP2pPort() != null) 
+                        arguments.append(" -P2PPort ").append(request.getP2pPort());
+                    if (request.getRpcPort() != null) 
+                        arguments.append(" -RPCPort ").append(request.getRpcPort());
+                    if (request.getAdminPort() != null) 
+                        arguments.append(" -AdminPort ").append(request.getAdminPort());
+                }
             
-            if (request.isAutoDb()) {
-                arguments.append(" -AutoDb");
-            } else {
-                if (request.getDbName() != null) 
-                    arguments.append(" -DbName \"").append(request.getDbName()).append("\"");
-                if (request.getDbUser() != null) 
-                    arguments.append(" -DbUser \"").append(request.getDbUser()).append("\"");
-            }
+                if (request.isAutoDb()) {
+                    arguments.append(" -AutoDb");
+                } else {
+                    if (request.getDbName() != null) 
+                        arguments.append(" -DbName \"").append(request.getDbName()).append("\"");
+                    if (request.getDbUser() != null) 
+                        arguments.append(" -DbUser \"").append(request.getDbUser()).append("\"");
+                }
             
-            // 执行脚本
-            PowerShellService.ProcessResult result = 
-                powerShellService.executePowerShellScript(arguments.toString());
+                // 执行脚本
+                PowerShellService.ProcessResult result = 
+                    powerShellService.executePowerShellScript(arguments.toString());
             
-            // 其余代码保持不变...
-            if (result.isSuccess() && result.getExitCode() == 0) {
-                response.put("success", true);
-                response.put("message", "节点添加成功");
-                response.put("output", result.getOutput());
-            } else {
-                response.put("success", false);
-                response.put("message", "节点添加失败");
-                response.put("error", result.getError());
-                response.put("output", result.getOutput());
-                response.put("exitCode", result.getExitCode());
+                // 其余代码保持不变...
+                if (result.isSuccess() && result.getExitCode() == 0) {
+                    response.put("success", true);
+                    response.put("message", "节点添加成功");
+                    response.put("output", result.getOutput());
+                } else {
+                    response.put("success", false);
+                    response.put("message", "节点添加失败");
+                    response.put("error", result.getError());
+                    response.put("output", result.getOutput());
+                    response.put("exitCode", result.getExitCode());
+                }
             }
-            
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "执行脚本时发生错误: " + e.getMessage());
@@ -122,7 +221,7 @@ public class NodeController
     }
     // 用于构造网络
     @PostMapping("/deploy")
-    public Map<String, Object> deployNetwork() 
+    public Map<String, Object> deployNetwork(@RequestParam(defaultValue = "false") boolean incremental) 
     {
         Map<String, Object> response = new HashMap<>();
         try 
@@ -134,30 +233,235 @@ public class NodeController
                 return response;
             }
 
-            PowerShellService.ProcessResult result = powerShellService.executeGradleDeploy();
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject(incremental ? "deploy-incremental" : "deploy")) 
+            {
+                response.putAll(nodeDeployService.deploy(incremental));
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "执行部署时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
 
-            if (result.isSuccess() && result.getExitCode() == 0) 
+    // 只为缺失数据库或角色的节点建库（不执行部署）
+    @PostMapping("/databases/provision")
+    public Map<String, Object> provisionDatabases() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
             {
-                response.put("success", true);
-                response.put("message", "gradlew deployNodes 执行成功");
-                response.put("output", result.getOutput());
-            } 
-            else
+                response.put("success", false);
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("provision-databases")) 
+            {
+                response.putAll(nodeDatabaseProvisioner.provisionAll());
+                response.put("message", Boolean.TRUE.equals(response.get("success")) ? "节点数据库已就绪" : "部分节点数据库创建失败");
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "创建节点数据库时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+    // 模板数据库状态：当前 changelog 指纹与模板库中记录的指纹是否一致
+    @GetMapping("/databases/template")
+    public Map<String, Object> getTemplateDatabaseStatus() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.putAll(templateDatabaseService.getStatus());
+        response.put("success", true);
+        return response;
+    }
+
+    // 强制重新迁移模板数据库
+    @PostMapping("/databases/template/rebuild")
+    public Map<String, Object> rebuildTemplateDatabase() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
             {
                 response.put("success", false);
-                response.put("message", "gradlew deployNodes 执行失败");
-                response.put("exitCode", result.getExitCode());
-                response.put("output", result.getOutput());
-                response.put("error", result.getError());
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("rebuild-template-database")) 
+            {
+                response.putAll(templateDatabaseService.rebuild());
+                boolean ready = Boolean.TRUE.equals(response.get("ready"));
+                response.put("success", ready);
+                if (ready) 
+                {
+                    response.put("message", "模板数据库已重建");
+                }
             }
         } 
         catch (Exception e) 
         {
             response.put("success", false);
-            response.put("message", "执行部署时发生错误: " + e.getMessage());
+            response.put("message", "重建模板数据库时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // 把已部署节点中的重复 jar 整理到 build/nodes/.shared
+    @PostMapping("/artifacts/deduplicate")
+    public Map<String, Object> deduplicateArtifacts() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            File nodesDir = new File(powerShellService.getProjectRootDirectory(), "build/nodes");
+            if (!nodesDir.isDirectory()) 
+            {
+                response.put("success", false);
+                response.put("message", "节点尚未部署");
+                return response;
+            }
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("deduplicate-artifacts")) 
+            {
+                response.putAll(sharedArtifactStore.deduplicate(nodesDir));
+                response.put("message", "共享 jar 存储整理完成");
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "整理共享 jar 时发生错误: " + e.getMessage());
         }
         return response;
     }
+
+    // 按 manifest 校验各节点的共享 jar
+    @GetMapping("/artifacts/verify")
+    public Map<String, Object> verifyArtifacts() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            File nodesDir = new File(powerShellService.getProjectRootDirectory(), "build/nodes");
+            response.putAll(sharedArtifactStore.verify(nodesDir));
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "校验共享 jar 时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // 看门狗状态：各进程的重启次数、退避时间和崩溃循环标记
+    @GetMapping("/watchdog")
+    public Map<String, Object> getWatchdogStatus() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.putAll(nodeWatchdogService.getStatus());
+        response.put("success", true);
+        return response;
+    }
+
+    // 清除崩溃循环标记，恢复自动重启
+    @PostMapping("/watchdog/reset")
+    public Map<String, Object> resetWatchdog(@RequestParam String nodeName) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        nodeWatchdogService.reset(nodeName);
+        response.put("success", true);
+        response.put("message", "已清除 " + nodeName + " 的重启记录");
+        return response;
+    }
+
+    // 主机容量余量：受管进程的实际内存、单节点占用估计、还能添加的节点数，以及排队中的添加请求
+    @GetMapping("/capacity")
+    public Map<String, Object> getCapacity(@RequestParam(defaultValue = "1") int nodes) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            CapacityPlannerService.CapacityReport capacity = capacityPlannerService.assess(nodes);
+            response.put("success", true);
+            response.put("admissionEnabled", capacityPlannerService.isEnabled());
+            response.put("message", capacity.getSummary());
+            response.put("capacity", capacity);
+            response.put("queue", nodeProvisioningService.getQueueStatus());
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "评估主机容量时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // 按主机资源计算节点和 webserver 的 JVM 参数；profile 和 nodes 不传时使用配置和 build.gradle 中的节点数
+    @GetMapping("/jvm-plan")
+    public Map<String, Object> getJvmPlan(@RequestParam(required = false) String profile,
+                                          @RequestParam(required = false) Integer nodes) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            int nodeCount = nodes != null ? nodes : powerShellService.getProjectModel().getNodes().size();
+            JvmSizingService.JvmPlan plan = profile != null
+                ? jvmSizingService.plan(JvmSizingService.Profile.of(profile), nodeCount, HostResources.read())
+                : jvmSizingService.plan(nodeCount);
+            response.put("success", true);
+            response.put("enabled", jvmSizingService.isEnabled());
+            response.put("plan", plan);
+        } 
+        catch (IllegalArgumentException e) 
+        {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+        }
+        return response;
+    }
+
+    // 查看各端口范围的分配情况
+    @GetMapping("/ports")
+    public Map<String, Object> portUsage() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            response.put("success", true);
+            response.put("ports", portAllocationService.getUsage());
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "查询端口分配情况时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+    // 查看正在执行的部署构建的任务进度
+    @GetMapping("/deploy/progress")
+    public Map<String, Object> deployProgress() 
+    {
+        Map<String, Object> response = new HashMap<>(gradleBuildService.getProgress());
+        response.put("success", true);
+        return response;
+    }
+    // 取消正在执行的部署构建
+    @PostMapping("/deploy/cancel")
+    public Map<String, Object> cancelDeploy() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = gradleBuildService.cancel();
+        response.put("success", cancelled);
+        response.put("message", cancelled ? "已请求取消 Gradle 构建" : "当前没有正在执行的 Gradle 构建");
+        return response;
+    }
     // 删除节点
     @PostMapping("/remove")
     public Map<String, Object> removeNode(@RequestBody RemoveNodeRequest request) {
@@ -169,26 +473,35 @@ public class NodeController
                 response.put("message", "Corda 项目配置验证失败，请检查配置");
                 return response;
             }
+
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("remove-node " + request.getNodeName())) {
+                if (!nodeProvisioningService.isUseScript()) {
+                    NodeProvisioningService.ProvisionResult result = nodeProvisioningService.removeNode(request.getNodeName());
+                    response.put("success", result.isSuccess());
+                    response.put("message", result.isSuccess() ? result.getMessage() : "节点删除失败: " + result.getMessage());
+                    response.put("output", result.getOutput());
+                    return response;
+                }
             
-            // 修复：使用双引号构建参数，确保特殊字符正确处理
-            String arguments = "-RemoveNode \"" + request.getNodeName() + "\"";
+                // 修复：使用双引号构建参数，确保特殊字符正确处理
+                String arguments = "-RemoveNode \"" + request.getNodeName() + "\"";
             
-            // 执行
-            PowerShellService.ProcessResult result = 
-                powerShellService.executePowerShellScript(arguments);
+                // 执行
+                PowerShellService.ProcessResult result = 
+                    powerShellService.executePowerShellScript(arguments);
             
-            if (result.isSuccess() && result.getExitCode() == 0) {
-                response.put("success", true);
-                response.put("message", "节点删除成功");
-                response.put("output", result.getOutput());
-            } else {
-                response.put("success", false);
-                response.put("message", "节点删除失败");
-                response.put("error", result.getError());
-                response.put("output", result.getOutput());
-                response.put("exitCode", result.getExitCode());
+                if (result.isSuccess() && result.getExitCode() == 0) {
+                    response.put("success", true);
+                    response.put("message", "节点删除成功");
+                    response.put("output", result.getOutput());
+                } else {
+                    response.put("success", false);
+                    response.put("message", "节点删除失败");
+                    response.put("error", result.getError());
+                    response.put("output", result.getOutput());
+                    response.put("exitCode", result.getExitCode());
+                }
             }
-            
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "执行脚本时发生错误: " + e.getMessage());
@@ -197,8 +510,11 @@ public class NodeController
         return response;
     }
 
-    @PostMapping("/start-all")//启动所有节点
-    public Map<String, Object> startAllNodes() 
+    // 批量添加节点：一次校验、一次改写项目文件、一次部署
+    @PostMapping("/add-batch")
+    public Map<String, Object> addNodes(@RequestBody List<NodeRequest> requests,
+                                        @RequestParam(defaultValue = "true") boolean deploy,
+                                        @RequestParam(defaultValue = "false") boolean incremental) 
     {
         Map<String, Object> response = new HashMap<>();
         try 
@@ -210,21 +526,115 @@ public class NodeController
                 return response;
             }
 
-            // 执行 runnodes.bat脚本来启动所有节点
-            PowerShellService.ProcessResult result = powerShellService.executeRunnodesScript();
-
-            if (result.isSuccess() && result.getExitCode() == 0) {
-                response.put("success", true);
-                response.put("message", "节点启动成功");
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("add-batch")) 
+            {
+                List<NodeProvisioningService.AddNodeSpec> specs = new ArrayList<>();
+                for (NodeRequest request : requests) 
+                {
+                    NodeDefinition requested = new NodeDefinition(request.getNodeName(), request.getP2pPort(),
+                        request.getRpcPort(), request.getAdminPort(), request.getDbName(), request.getDbUser(), false);
+                    specs.add(new NodeProvisioningService.AddNodeSpec(requested, request.isAutoPorts(), request.isAutoDb()));
+                }
+                // 排队时由队列在节点写入后按 deploy/incremental 执行部署
+                NodeProvisioningService.ProvisionResult result = nodeProvisioningService.addNodes(specs, deploy, incremental);
+                boolean accepted = result.isSuccess() || result.isQueued();
+                response.put("success", accepted);
+                response.put("accepted", accepted);
+                response.put("message", accepted ? result.getMessage() : "批量添加节点失败: " + result.getMessage());
                 response.put("output", result.getOutput());
-            } 
-            else 
+                if (result.isQueued()) 
+                {
+                    response.put("queueId", result.getQueueId());
+                }
+                response.put("nodes", result.getNodes());
+                if (result.getCapacity() != null) 
+                {
+                    response.put("queued", result.isQueued());
+                    response.put("capacity", result.getCapacity());
+                }
+
+                if (result.isSuccess() && deploy) 
+                {
+                    Map<String, Object> deployResult = deployNetwork(incremental);
+                    response.put("deploy", deployResult);
+                    response.put("success", Boolean.TRUE.equals(deployResult.get("success")));
+                }
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "批量添加节点时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    // 批量删除节点：一次校验、一次改写项目文件、一次部署
+    @PostMapping("/remove-batch")
+    public Map<String, Object> removeNodes(@RequestBody List<RemoveNodeRequest> requests,
+                                           @RequestParam(defaultValue = "true") boolean deploy,
+                                           @RequestParam(defaultValue = "false") boolean incremental) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
             {
                 response.put("success", false);
-                response.put("message", "节点启动失败");
-                response.put("exitCode", result.getExitCode());
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+
+            try (NodeLockManager.Lease lease = nodeLockManager.lockProject("remove-batch")) 
+            {
+                List<String> names = new ArrayList<>();
+                for (RemoveNodeRequest request : requests) 
+                {
+                    names.add(request.getNodeName());
+                }
+                NodeProvisioningService.ProvisionResult result = nodeProvisioningService.removeNodes(names);
+                response.put("success", result.isSuccess());
+                response.put("message", result.isSuccess() ? result.getMessage() : "批量删除节点失败: " + result.getMessage());
                 response.put("output", result.getOutput());
-                response.put("error", result.getError());
+
+                if (result.isSuccess() && deploy) 
+                {
+                    Map<String, Object> deployResult = deployNetwork(incremental);
+                    response.put("deploy", deployResult);
+                    response.put("success", Boolean.TRUE.equals(deployResult.get("success")));
+                }
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "批量删除节点时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    @PostMapping("/start-all")//启动所有节点
+    public Map<String, Object> startAllNodes() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
+            {
+                response.put("success", false);
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNodes(powerShellService.getNodeDirectoryNames(), "start-all", true)) 
+            {
+                // 先启动 Notary，再并行启动其余节点，并等待 RPC 与 webserver 就绪
+                NodeStartupOrchestrator.StartupReport report = nodeStartupOrchestrator.startAll();
+
+                response.put("success", report.isSuccess());
+                response.put("message", report.isSuccess() ? "节点启动成功" : "部分节点未能就绪");
+                response.put("totalMs", report.getTotalMs());
+                response.put("nodes", report.getNodes());
             }
         } 
         catch (Exception e) 
@@ -247,21 +657,12 @@ public class NodeController
                 return response;
             }
 
-            PowerShellService.ProcessResult result = powerShellService.startNode(request.getNodeName());
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNode(request.getNodeName(), "start", true)) {
+                NodeStartupOrchestrator.NodeReadiness readiness = nodeStartupOrchestrator.startNode(request.getNodeName());
 
-            if (result.isSuccess() && result.getExitCode() == 0) 
-            {
-                response.put("success", true);
-                response.put("message", "节点启动成功");
-                response.put("output", result.getOutput());
-            } 
-            else 
-            {
-                response.put("success", false);
-                response.put("message", "节点启动失败");
-                response.put("exitCode", result.getExitCode());
-                response.put("output", result.getOutput());
-                response.put("error", result.getError());
+                response.put("success", readiness.isReady());
+                response.put("message", readiness.isReady() ? "节点启动成功" : "节点启动失败: " + readiness.getMessage());
+                response.put("readiness", readiness);
             }
         }
         catch (Exception e) 
@@ -284,29 +685,122 @@ public class NodeController
                 return response;
             }
 
-            PowerShellService.ProcessResult result = powerShellService.stopNode(request.getNodeName());
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNode(request.getNodeName(), "stop", true)) {
+                PowerShellService.ProcessResult result = powerShellService.stopNode(request.getNodeName());
 
-            if (result.isSuccess() && result.getExitCode() == 0) {
-                response.put("success", true);
-                response.put("message", "节点停止成功");
-                response.put("output", result.getOutput());
+                if (result.isSuccess() && result.getExitCode() == 0) {
+                    response.put("success", true);
+                    response.put("message", "节点停止成功");
+                    response.put("output", result.getOutput());
+                } 
+                else 
+                {
+                    response.put("success", false);
+                    response.put("message", "节点停止失败");
+                    response.put("exitCode", result.getExitCode());
+                    response.put("output", result.getOutput());
+                    response.put("error", result.getError());
+                }
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "停止节点时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+    
+    @PostMapping("/stop-all")//并行停止所有节点
+    public Map<String, Object> stopAllNodes() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
+            {
+                response.put("success", false);
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNodes(powerShellService.getNodeDirectoryNames(), "stop-all", true)) 
+            {
+                response.putAll(nodeFleetService.stopAll());
+                response.put("message", Boolean.TRUE.equals(response.get("success")) ? "所有节点已停止" : "部分节点停止失败");
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "停止所有节点时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    @PostMapping("/rolling-restart")//滚动重启节点
+    public Map<String, Object> rollingRestart(@RequestBody(required = false) RollingRestartRequest request) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            if (!powerShellService.validateCordaProject()) 
+            {
+                response.put("success", false);
+                response.put("message", "Corda 项目配置验证失败，请检查配置");
+                return response;
+            }
+
+            RollingRestartRequest req = request != null ? request : new RollingRestartRequest();
+            List<String> lockedNames = req.getNodeNames() != null && !req.getNodeNames().isEmpty()
+                ? req.getNodeNames() : powerShellService.getNodeDirectoryNames();
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNodes(lockedNames, "rolling-restart", true)) 
+            {
+                response.putAll(nodeFleetService.rollingRestart(req.getNodeNames(), req.getMinAvailable()));
+                response.put("message", Boolean.TRUE.equals(response.get("success")) ? "滚动重启完成" : "滚动重启中止");
+            }
+        } 
+        catch (Exception e) 
+        {
+            response.put("success", false);
+            response.put("message", "滚动重启时发生错误: " + e.getMessage());
+        }
+        return response;
+    }
+
+    @GetMapping("/status")//查询节点进程状态
+    public Map<String, Object> nodeStatus(@RequestParam(required = false) String nodeName) 
+    {
+        Map<String, Object> response = new HashMap<>();
+        try 
+        {
+            // 只读取并发的进程注册表，不获取节点锁，启动等待就绪期间也能查询
+            if (nodeName != null && !nodeName.isEmpty()) 
+            {
+                response.put("node", powerShellService.getNodeStatus(nodeName));
             } 
             else 
             {
-                response.put("success", false);
-                response.put("message", "节点停止失败");
-                response.put("exitCode", result.getExitCode());
-                response.put("output", result.getOutput());
-                response.put("error", result.getError());
+                response.put("nodes", powerShellService.getAllNodeStatus());
             }
+            response.put("success", true);
         } 
         catch (Exception e) 
         {
             response.put("success", false);
-            response.put("message", "停止节点时发生错误: " + e.getMessage());
+            response.put("message", "查询节点状态时发生错误: " + e.getMessage());
         }
         return response;
     }
+
+    @GetMapping("/locks")//查看节点操作锁的持有者和等待者
+    public Map<String, Object> lockStatus() 
+    {
+        Map<String, Object> response = new HashMap<>();
+        response.putAll(nodeLockManager.getStatus());
+        response.put("success", true);
+        return response;
+    }
     
     public static class StartNodeRequest 
     {
@@ -359,6 +853,17 @@ public class NodeController
         public void setAutoDb(boolean autoDb) { this.autoDb = autoDb; }
     }
     
+    public static class RollingRestartRequest {
+        private List<String> nodeNames;
+        private Integer minAvailable;
+        
+        public List<String> getNodeNames() { return nodeNames; }
+        public void setNodeNames(List<String> nodeNames) { this.nodeNames = nodeNames; }
+        
+        public Integer getMinAvailable() { return minAvailable; }
+        public void setMinAvailable(Integer minAvailable) { this.minAvailable = minAvailable; }
+    }
+    
     public static class RemoveNodeRequest {
         private String nodeName;
         
@@ -0,0 +1,276 @@
+package com.example.demo.service;
+
+import com.example.demo.util.HostResources;
+import com.example.demo.util.ProcFs;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 主机容量模型：统计正在运行的节点和 webserver 的实际常驻内存，按历史样本估计一个新节点
+ * （节点 JVM + webserver）的占用，判断再加节点是否会超出主机内存或 CPU。
+ */
+@Service
+public class CapacityPlannerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CapacityPlannerService.class);
+
+    private static final long MB = 1024 * 1024;
+    private static final int HISTORY_SIZE = 200;
+    // 样本数少于该值时使用 JvmSizingService 的估算
+    private static final int MIN_SAMPLES = 3;
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private JvmSizingService jvmSizingService;
+
+    @Value("${corda.capacity.admission-enabled:true}")
+    private boolean enabled;
+
+    // 留给操作系统、数据库和管理器自身的内存
+    @Value("${corda.capacity.reserved-mb:1024}")
+    private long reservedMb;
+
+    @Value("${corda.capacity.max-load-per-cpu:1.5}")
+    private double maxLoadPerCpu;
+
+    @Value("${corda.capacity.sample-interval-seconds:30}")
+    private long sampleIntervalSeconds;
+
+    // 启动后堆还在增长，运行满该时间的进程才计入历史样本
+    @Value("${corda.capacity.warmup-seconds:120}")
+    private long warmupSeconds;
+
+    private final Deque<Long> nodeSamples = new ArrayDeque<>();
+    private final Deque<Long> webserverSamples = new ArrayDeque<>();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "capacity-sampler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void startSampler() {
+        if (ProcFs.isAvailable() && sampleIntervalSeconds > 0) {
+            sampler.scheduleWithFixedDelay(this::sampleQuietly, sampleIntervalSeconds, sampleIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 评估再添加 additionalNodes 个节点（各带一个 webserver）后的余量
+     */
+    public CapacityReport assess(int additionalNodes) {
+        HostResources host = HostResources.read();
+        // 只读取当前占用，历史样本只由定时采样写入，避免频繁查询 /capacity 时写入重复样本
+        Usage usage = measure(false);
+
+        int declared = powerShellService.getProjectModel().getNodes().size();
+        int declaredNotRunning = Math.max(0, declared - usage.runningNodes);
+        int plannedNodes = Math.max(1, declared + additionalNodes);
+
+        JvmSizingService.JvmPlan plan = jvmSizingService.plan(plannedNodes);
+        long nodeEstimate;
+        long webEstimate;
+        String estimateSource;
+        synchronized (this) {
+            boolean fromHistory = nodeSamples.size() >= MIN_SAMPLES;
+            nodeEstimate = fromHistory ? percentile90(nodeSamples) : plan.getEstimatedNodeRssMb() * MB;
+            webEstimate = webserverSamples.size() >= MIN_SAMPLES ? percentile90(webserverSamples) : plan.getEstimatedWebserverRssMb() * MB;
+            estimateSource = fromHistory ? "history(" + nodeSamples.size() + ")" : "jvm-plan";
+        }
+        long pairEstimate = nodeEstimate + webEstimate;
+
+        // 管理器以外的进程占用：总内存 - 可用内存 - 受管进程的 RSS
+        long managedRss = usage.nodeRss + usage.webserverRss;
+        long otherUsage = Math.max(0, host.getMemTotalBytes() - host.getMemAvailableBytes() - managedRss);
+        long budget = host.getMemTotalBytes() - reservedMb * MB - otherUsage;
+        long demand = managedRss + (long) (declaredNotRunning + additionalNodes) * pairEstimate;
+        long headroom = budget - demand;
+        long maxAdditional = pairEstimate > 0
+            ? Math.max(0, (budget - managedRss - (long) declaredNotRunning * pairEstimate) / pairEstimate) : 0;
+        double loadPerCpu = host.getLoadAverage() >= 0 ? host.getLoadAverage() / Math.max(1, host.getCpuCount()) : 0;
+
+        List<String> reasons = new ArrayList<>();
+        if (additionalNodes > 0 && headroom < 0) {
+            reasons.add("内存不足：添加后预计需要 " + demand / MB + " MB，可用预算 " + budget / MB + " MB（已声明未运行节点 "
+                + declaredNotRunning + " 个，每个节点约 " + pairEstimate / MB + " MB）");
+        }
+        if (additionalNodes > 0 && loadPerCpu > maxLoadPerCpu) {
+            reasons.add(String.format("CPU 负载过高：每核负载 %.2f，上限 %.2f", loadPerCpu, maxLoadPerCpu));
+        }
+
+        return new CapacityReport(reasons.isEmpty(), reasons, additionalNodes, host.getMemTotalBytes() / MB,
+            host.getMemAvailableBytes() / MB, reservedMb, otherUsage / MB, usage.runningNodes, usage.runningWebservers,
+            usage.nodeRss / MB, usage.webserverRss / MB, declared, declaredNotRunning, nodeEstimate / MB, webEstimate / MB,
+            estimateSource, budget / MB, demand / MB, headroom / MB, maxAdditional, host.getCpuCount(), loadPerCpu, maxLoadPerCpu);
+    }
+
+    private void sampleQuietly() {
+        try {
+            measure(true);
+        } catch (RuntimeException e) {
+            logger.debug("采样节点内存失败: {}", e.getMessage());
+        }
+    }
+
+    // 统计受管进程的 RSS；recordHistory 为 true 时把已预热进程的样本加入历史
+    private Usage measure(boolean recordHistory) {
+        Usage usage = new Usage();
+        Instant warm = Instant.now().minus(Duration.ofSeconds(warmupSeconds));
+        for (String name : nodeProcessSupervisor.getRegisteredNames()) {
+            NodeProcessSupervisor.ManagedProcess managed = nodeProcessSupervisor.get(name).orElse(null);
+            if (managed == null || !managed.isAlive()) {
+                continue;
+            }
+            long rss = ProcFs.readTreeRssBytes(managed.getHandle());
+            boolean webserver = name.startsWith(PowerShellService.webserverProcessName(""));
+            if (webserver) {
+                usage.runningWebservers++;
+                usage.webserverRss += rss;
+            } else {
+                usage.runningNodes++;
+                usage.nodeRss += rss;
+            }
+            if (recordHistory && rss > 0 && managed.getStartTime().isBefore(warm)) {
+                record(webserver ? webserverSamples : nodeSamples, rss);
+            }
+        }
+        return usage;
+    }
+
+    private synchronized void record(Deque<Long> samples, long value) {
+        samples.addLast(value);
+        while (samples.size() > HISTORY_SIZE) {
+            samples.removeFirst();
+        }
+    }
+
+    private static long percentile90(Deque<Long> samples) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.9) - 1)];
+    }
+
+    private static class Usage {
+        int runningNodes;
+        int runningWebservers;
+        long nodeRss;
+        long webserverRss;
+    }
+
+    /**
+     * 容量评估结果（内存单位 MB）
+     */
+    public static class CapacityReport {
+        private final boolean admitted;
+        private final List<String> reasons;
+        private final int requestedNodes;
+        private final long memTotalMb;
+        private final long memAvailableMb;
+        private final long reservedMb;
+        private final long otherUsageMb;
+        private final int runningNodes;
+        private final int runningWebservers;
+        private final long runningNodeRssMb;
+        private final long runningWebserverRssMb;
+        private final int declaredNodes;
+        private final int declaredNotRunning;
+        private final long estimatedNodeMb;
+        private final long estimatedWebserverMb;
+        private final String estimateSource;
+        private final long budgetMb;
+        private final long demandMb;
+        private final long headroomMb;
+        private final long maxAdditionalNodes;
+        private final int cpuCount;
+        private final double loadPerCpu;
+        private final double maxLoadPerCpu;
+
+        public CapacityReport(boolean admitted, List<String> reasons, int requestedNodes, long memTotalMb, long memAvailableMb,
+                              long reservedMb, long otherUsageMb, int runningNodes, int runningWebservers,
+                              long runningNodeRssMb, long runningWebserverRssMb, int declaredNodes, int declaredNotRunning,
+                              long estimatedNodeMb, long estimatedWebserverMb, String estimateSource, long budgetMb,
+                              long demandMb, long headroomMb, long maxAdditionalNodes, int cpuCount, double loadPerCpu,
+                              double maxLoadPerCpu) {
+            this.admitted = admitted;
+            this.reasons = reasons;
+            this.requestedNodes = requestedNodes;
+            this.memTotalMb = memTotalMb;
+            this.memAvailableMb = memAvailableMb;
+            this.reservedMb = reservedMb;
+            this.otherUsageMb = otherUsageMb;
+            this.runningNodes = runningNodes;
+            this.runningWebservers = runningWebservers;
+            this.runningNodeRssMb = runningNodeRssMb;
+            this.runningWebserverRssMb = runningWebserverRssMb;
+            this.declaredNodes = declaredNodes;
+            this.declaredNotRunning = declaredNotRunning;
+            this.estimatedNodeMb = estimatedNodeMb;
+            this.estimatedWebserverMb = estimatedWebserverMb;
+            this.estimateSource = estimateSource;
+            this.budgetMb = budgetMb;
+            this.demandMb = demandMb;
+            this.headroomMb = headroomMb;
+            this.maxAdditionalNodes = maxAdditionalNodes;
+            this.cpuCount = cpuCount;
+            this.loadPerCpu = loadPerCpu;
+            this.maxLoadPerCpu = maxLoadPerCpu;
+        }
+
+        public String getSummary() {
+            return admitted ? "余量 " + headroomMb + " MB，还可添加约 " + maxAdditionalNodes + " 个节点"
+                : String.join("；", reasons);
+        }
+
+        public boolean isAdmitted() { return admitted; }
+        public List<String> getReasons() { return reasons; }
+        public int getRequestedNodes() { return requestedNodes; }
+        public long getMemTotalMb() { return memTotalMb; }
+        public long getMemAvailableMb() { return memAvailableMb; }
+        public long getReservedMb() { return reservedMb; }
+        public long getOtherUsageMb() { return otherUsageMb; }
+        public int getRunningNodes() { return runningNodes; }
+        public int getRunningWebservers() { return runningWebservers; }
+        public long getRunningNodeRssMb() { return runningNodeRssMb; }
+        public long getRunningWebserverRssMb() { return runningWebserverRssMb; }
+        public int getDeclaredNodes() { return declaredNodes; }
+        public int getDeclaredNotRunning() { return declaredNotRunning; }
+        public long getEstimatedNodeMb() { return estimatedNodeMb; }
+        public long getEstimatedWebserverMb() { return estimatedWebserverMb; }
+        public String getEstimateSource() { return estimateSource; }
+        public long getBudgetMb() { return budgetMb; }
+        public long getDemandMb() { return demandMb; }
+        public long getHeadroomMb() { return headroomMb; }
+        public long getMaxAdditionalNodes() { return maxAdditionalNodes; }
+        public int getCpuCount() { return cpuCount; }
+        public double getLoadPerCpu() { return loadPerCpu; }
+        public double getMaxLoadPerCpu() { return maxLoadPerCpu; }
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 节点目录大小统计：缓存 build/nodes 下每个目录自身文件的字节数和整棵子树的合计，
+ * WatchService 收到变化时只把该目录及其上级标记为失效，下次统计只重新列出失效的目录。
+ * 首次统计时每个节点的一级子目录（artemis、logs、cordapps、drivers 等）在 ForkJoin 池中并行 walkFileTree。
+ * 无法监听的目录（超过监听上限或不支持）每次都重新列出自身文件：文件变大不会改变目录的 mtime，
+ * 所以 mtime 不能作为缓存是否有效的依据。
+ */
+@Service
+public class DirectorySizeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectorySizeService.class);
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Value("${corda.dirsize.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.dirsize.interval-seconds:60}")
+    private long intervalSeconds;
+
+    @Value("${corda.dirsize.watch:true}")
+    private boolean watch;
+
+    // inotify 的监听数有系统上限（fs.inotify.max_user_watches），超过的目录每次统计都重新列出
+    @Value("${corda.dirsize.max-watches:4096}")
+    private int maxWatches;
+
+    // 0 表示使用 CPU 核数
+    @Value("${corda.dirsize.parallelism:0}")
+    private int parallelism;
+
+    private final Map<Path, DirEntry> cache = new ConcurrentHashMap<>();
+    private final Map<String, Path> roots = new ConcurrentHashMap<>();
+    private final Map<String, NodeSize> sizes = new ConcurrentHashMap<>();
+    private final AtomicInteger watchCount = new AtomicInteger();
+    private final AtomicInteger relisted = new AtomicInteger();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "directory-size");
+        t.setDaemon(true);
+        return t;
+    });
+    private ForkJoinPool pool;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    @PostConstruct
+    public void start() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        if (!enabled) {
+            logger.info("节点目录大小统计未启用");
+            return;
+        }
+        if (watch) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                watchThread = new Thread(this::watchLoop, "directory-size-watch");
+                watchThread.setDaemon(true);
+                watchThread.start();
+            } catch (IOException | UnsupportedOperationException e) {
+                logger.warn("无法创建 WatchService，每次统计都重新列出所有目录: {}", e.getMessage());
+            }
+        }
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+        pool.shutdownNow();
+    }
+
+    private void refreshQuietly() {
+        try {
+            refreshAll();
+        } catch (RuntimeException e) {
+            logger.warn("统计节点目录大小失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新统计所有节点目录；缓存有效的目录不访问磁盘
+     */
+    public synchronized Map<String, Object> refreshAll() {
+        long started = System.nanoTime();
+        relisted.set(0);
+        Map<String, Path> current = new LinkedHashMap<>();
+        for (File dir : powerShellService.getNodeDirectories()) {
+            current.put(dir.getName(), dir.toPath().toAbsolutePath().normalize());
+        }
+        // 已删除的节点：清理缓存和监听
+        for (Map.Entry<String, Path> entry : new ArrayList<>(roots.entrySet())) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                purge(entry.getValue());
+                roots.remove(entry.getKey());
+                sizes.remove(entry.getKey());
+            }
+        }
+        roots.putAll(current);
+
+        List<ForkJoinTask<Long>> tasks = new ArrayList<>();
+        for (Path root : current.values()) {
+            tasks.add(pool.submit(() -> refresh(root, 0)));
+        }
+        long now = System.currentTimeMillis();
+        int i = 0;
+        for (Map.Entry<String, Path> entry : current.entrySet()) {
+            long total = tasks.get(i++).join();
+            NodeSize previous = sizes.get(entry.getKey());
+            sizes.put(entry.getKey(), new NodeSize(total, now, breakdown(entry.getValue()), previous));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("nodes", current.size());
+        result.put("directoriesCached", cache.size());
+        result.put("directoriesRelisted", relisted.get());
+        result.put("watchedDirectories", watchCount.get());
+        result.put("durationMs", (System.nanoTime() - started) / 1_000_000);
+        logger.debug("目录大小统计完成: {}", result);
+        return result;
+    }
+
+    // depth 为相对节点根目录的层级；未缓存的一级及以下子目录整棵 walkFileTree
+    private long refresh(Path dir, int depth) {
+        DirEntry entry = cache.get(dir);
+        if (entry == null) {
+            if (depth >= 1) {
+                return walk(dir);
+            }
+            entry = new DirEntry(dir);
+            cache.put(dir, entry);
+            register(entry);
+            entry.dirty = true;
+        }
+        if (entry.isValid()) {
+            return entry.subtreeBytes;
+        }
+        long seen = entry.invalidations;
+        if (entry.dirty || entry.watchKey == null) {
+            relist(entry);
+        }
+
+        long total = entry.ownBytes;
+        List<ForkJoinTask<Long>> forks = new ArrayList<>();
+        for (Path child : entry.children) {
+            DirEntry childEntry = cache.get(child);
+            if (childEntry != null && childEntry.isValid()) {
+                total += childEntry.subtreeBytes;
+            } else {
+                forks.add(ForkJoinTask.adapt(() -> refresh(child, depth + 1)).fork());
+            }
+        }
+        for (ForkJoinTask<Long> fork : forks) {
+            total += fork.join();
+        }
+        entry.subtreeBytes = total;
+        entry.hasUnwatchedDescendant = hasUnwatchedChild(entry);
+        // 统计期间又收到变化事件时保持失效，下次重新统计
+        if (entry.invalidations == seen) {
+            entry.subtreeValid = true;
+        }
+        return total;
+    }
+
+    // 重新列出目录自身的文件和子目录；已删除的子目录连同其子树一起移出缓存
+    private void relist(DirEntry entry) {
+        entry.dirty = false;
+        relisted.incrementAndGet();
+        long own = 0;
+        List<Path> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(entry.path)) {
+            for (Path child : stream) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isDirectory()) {
+                        children.add(child);
+                    } else {
+                        own += attributes.size();
+                    }
+                } catch (IOException e) {
+                    // 文件在列出后被删除
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("列出目录 {} 失败: {}", entry.path, e.getMessage());
+        }
+        for (Path old : entry.children) {
+            if (!children.contains(old)) {
+                purge(old);
+            }
+        }
+        entry.ownBytes = own;
+        entry.children = children;
+    }
+
+    /**
+     * 未缓存的子树：walkFileTree 一次建立其中所有目录的缓存并注册监听
+     */
+    private long walk(Path dir) {
+        Deque<DirEntry> stack = new ArrayDeque<>();
+        long[] total = {0};
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attributes) {
+                    DirEntry entry = new DirEntry(path);
+                    if (!stack.isEmpty()) {
+                        stack.peek().children.add(path);
+                    }
+                    stack.push(entry);
+                    // 先放入缓存再注册监听，遍历期间的变化事件能把它标记为失效
+                    cache.put(path, entry);
+                    register(entry);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) {
+                    stack.peek().ownBytes += attributes.size();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path path, IOException e) {
+                    DirEntry entry = stack.pop();
+                    long subtree = entry.ownBytes;
+                    for (Path child : entry.children) {
+                        DirEntry childEntry = cache.get(child);
+                        if (childEntry != null) {
+                            subtree += childEntry.subtreeBytes;
+                        }
+                    }
+                    entry.subtreeBytes = subtree;
+                    entry.hasUnwatchedDescendant = hasUnwatchedChild(entry);
+                    if (entry.invalidations == 0) {
+                        entry.subtreeValid = true;
+                    }
+                    total[0] = subtree;
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            logger.debug("遍历目录 {} 失败: {}", dir, e.getMessage());
+        }
+        relisted.incrementAndGet();
+        return total[0];
+    }
+
+    // 子树中只要有一个目录没有监听，其变化就不会产生事件，上级的缓存不能直接使用
+    private boolean hasUnwatchedChild(DirEntry entry) {
+        for (Path child : entry.children) {
+            DirEntry childEntry = cache.get(child);
+            if (childEntry == null || childEntry.watchKey == null || childEntry.hasUnwatchedDescendant) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void register(DirEntry entry) {
+        if (watchService == null || watchCount.get() >= maxWatches) {
+            return;
+        }
+        try {
+            entry.watchKey = entry.path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            if (watchCount.incrementAndGet() == maxWatches) {
+                logger.info("目录监听数达到上限 {}，其余目录每次统计都重新列出", maxWatches);
+            }
+        } catch (IOException | ClosedWatchServiceException e) {
+            logger.debug("无法监听目录 {}: {}", entry.path, e.getMessage());
+        }
+    }
+
+    private void purge(Path dir) {
+        cache.keySet().removeIf(path -> {
+            if (!path.startsWith(dir)) {
+                return false;
+            }
+            DirEntry entry = cache.get(path);
+            if (entry != null && entry.watchKey != null) {
+                entry.watchKey.cancel();
+                watchCount.decrementAndGet();
+            }
+            return true;
+        });
+    }
+
+    // 事件只标记失效，不在监听线程中访问磁盘
+    private void watchLoop() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                // OVERFLOW 表示丢失了事件，同样整体重新列出该目录
+                if (event.kind() == StandardWatchEventKinds.ENTRY_MODIFY && event.context() instanceof Path
+                    && cache.containsKey(dir.resolve((Path) event.context()))) {
+                    // 子目录自身的 mtime 变化由子目录的监听处理
+                    continue;
+                }
+                invalidate(dir);
+                break;
+            }
+            if (!key.reset()) {
+                // 目录已删除
+                invalidate(dir.getParent());
+            }
+        }
+    }
+
+    private void invalidate(Path dir) {
+        DirEntry entry = cache.get(dir);
+        if (entry != null) {
+            entry.dirty = true;
+        }
+        for (Path path = dir; path != null; path = path.getParent()) {
+            DirEntry ancestor = cache.get(path);
+            if (ancestor == null) {
+                break;
+            }
+            ancestor.invalidations++;
+            ancestor.subtreeValid = false;
+        }
+    }
+
+    // 节点根目录下各一级子目录的大小，根目录自身的文件记为 "."
+    private Map<String, Long> breakdown(Path root) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        DirEntry entry = cache.get(root);
+        if (entry == null) {
+            return result;
+        }
+        result.put(".", entry.ownBytes);
+        entry.children.stream().sorted().forEach(child -> {
+            DirEntry childEntry = cache.get(child);
+            result.put(child.getFileName().toString(), childEntry != null ? childEntry.subtreeBytes : 0L);
+        });
+        return result;
+    }
+
+    /**
+     * 最近一次统计的节点目录大小（字节），尚未统计时返回 null
+     */
+    public Long getSize(String nodeName) {
+        NodeSize size = sizes.get(nodeName);
+        return size != null ? size.totalBytes : null;
+    }
+
+    public Map<String, Object> getSizes() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        sizes.keySet().stream().sorted().forEach(name -> {
+            NodeSize size = sizes.get(name);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("totalBytes", size.totalBytes);
+            item.put("measuredAt", size.measuredAt);
+            item.put("growthBytesPerHour", size.growthBytesPerHour);
+            item.put("subdirectories", size.subdirectories);
+            result.put(name, item);
+        });
+        return result;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static class DirEntry {
+        private final Path path;
+        private volatile long ownBytes;
+        private volatile List<Path> children = new ArrayList<>();
+        private volatile long subtreeBytes;
+        private volatile boolean subtreeValid;
+        private volatile boolean dirty;
+        private volatile boolean hasUnwatchedDescendant;
+        // 监听线程是唯一的写入者
+        private volatile long invalidations;
+        private WatchKey watchKey;
+
+        DirEntry(Path path) {
+            this.path = path;
+        }
+
+        // 被监听的目录依赖事件；未监听的目录及其上级每次都要重新统计，因为文件变大不会改变目录 mtime
+        boolean isValid() {
+            return subtreeValid && !dirty && watchKey != null && !hasUnwatchedDescendant;
+        }
+    }
+
+    private static class NodeSize {
+        private final long totalBytes;
+        private final long measuredAt;
+        private final Long growthBytesPerHour;
+        private final Map<String, Long> subdirectories;
+        // 用于计算增长速度的基准：至少间隔一分钟
+        private final long baselineBytes;
+        private final long baselineAt;
+
+        NodeSize(long totalBytes, long measuredAt, Map<String, Long> subdirectories, NodeSize previous) {
+            this.totalBytes = totalBytes;
+            this.measuredAt = measuredAt;
+            this.subdirectories = subdirectories;
+            if (previous == null) {
+                baselineBytes = totalBytes;
+                baselineAt = measuredAt;
+                growthBytesPerHour = null;
+            } else {
+                long elapsed = measuredAt - previous.baselineAt;
+                growthBytesPerHour = elapsed > 0 ? (totalBytes - previous.baselineBytes) * 3_600_000L / elapsed
+                    : previous.growthBytesPerHour;
+                boolean rebase = elapsed >= 60_000;
+                baselineBytes = rebase ? totalBytes : previous.baselineBytes;
+                baselineAt = rebase ? measuredAt : previous.baselineAt;
+            }
+        }
+    }
+}
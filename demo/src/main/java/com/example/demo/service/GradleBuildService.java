@@ -0,0 +1,332 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.events.FailureResult;
+import org.gradle.tooling.events.FinishEvent;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.SkippedResult;
+import org.gradle.tooling.events.StartEvent;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 通过 Gradle Tooling API 执行 Corda 项目的构建任务。
+ * 整个进程内复用同一个 ProjectConnection，重复部署时直接使用已预热的 Gradle daemon，
+ * 不再每次 fork gradlew；构建过程中的任务进度写入日志和内存缓冲区，并支持取消。
+ */
+@Service
+public class GradleBuildService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GradleBuildService.class);
+
+    @Value("${corda.gradle.configuration-cache:false}")
+    private boolean configurationCache;
+
+    @Value("${corda.gradle.build-timeout-minutes:10}")
+    private long buildTimeoutMinutes;
+
+    @Value("${corda.gradle.progress-buffer-size:500}")
+    private int progressBufferSize;
+
+    // 同一个项目目录同一时间只允许一个构建，避免 deployNodes 互相覆盖 build/nodes
+    private final ReentrantLock buildLock = new ReentrantLock();
+    private final ArrayDeque<String> progress = new ArrayDeque<>();
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "gradle-build-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private ProjectConnection connection;
+    private File connectedRoot;
+
+    private volatile CancellationTokenSource currentToken;
+    private volatile List<String> currentTasks;
+    private volatile Instant currentStartTime;
+    private volatile Map<String, Object> lastBuild;
+
+    /**
+     * 持有构建锁执行 action：Tooling API 构建以及不可用时回退的 fork gradlew 都在锁内，
+     * 回退期间其他请求同样会被拒绝，不会与之并发改写 build/nodes
+     */
+    public PowerShellService.ProcessResult runExclusive(List<String> tasksAndArgs, Supplier<PowerShellService.ProcessResult> action) {
+        if (!buildLock.tryLock()) {
+            return new PowerShellService.ProcessResult(-1, "",
+                "已有 Gradle 构建正在执行: " + currentTasks, false);
+        }
+        try {
+            currentTasks = tasksAndArgs;
+            currentStartTime = Instant.now();
+            return action.get();
+        } finally {
+            currentTasks = null;
+            currentStartTime = null;
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * 在项目根执行任务；以 "-" 开头的项作为命令行参数传给 Gradle
+     */
+    public PowerShellService.ProcessResult run(File projectRoot, List<String> tasksAndArgs) {
+        List<String> tasks = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        for (String item : tasksAndArgs) {
+            if (item.startsWith("-")) {
+                arguments.add(item);
+            } else {
+                tasks.add(item);
+            }
+        }
+        if (configurationCache) {
+            arguments.add("--configuration-cache");
+        }
+
+        if (!buildLock.tryLock()) {
+            return new PowerShellService.ProcessResult(-1, "",
+                "已有 Gradle 构建正在执行: " + currentTasks, false);
+        }
+        LineCollector output = new LineCollector();
+        CancellationTokenSource token = GradleConnector.newCancellationTokenSource();
+        ScheduledFuture<?> timeout = null;
+        long begin = System.nanoTime();
+        try {
+            currentToken = token;
+            currentTasks = tasksAndArgs;
+            currentStartTime = Instant.now();
+            clearProgress();
+            logger.info("通过 Tooling API 执行 Gradle 任务: {} {}", tasks, arguments);
+
+            BuildLauncher build = getConnection(projectRoot).newBuild()
+                .forTasks(tasks.toArray(new String[0]))
+                .withArguments(arguments)
+                .withCancellationToken(token.token())
+                .setStandardOutput(output)
+                .setStandardError(output)
+                .addProgressListener(this::onProgress, EnumSet.of(OperationType.TASK));
+
+            timeout = timeoutScheduler.schedule(() -> {
+                logger.warn("Gradle 构建超过 {} 分钟，取消构建", buildTimeoutMinutes);
+                token.cancel();
+            }, buildTimeoutMinutes, TimeUnit.MINUTES);
+
+            build.run();
+            recordBuild(tasksAndArgs, "SUCCESS", begin);
+            logger.info("Gradle 任务执行完成，耗时 {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+            return new PowerShellService.ProcessResult(0, output.text(), "", true);
+        } catch (BuildCancelledException e) {
+            recordBuild(tasksAndArgs, "CANCELLED", begin);
+            logger.warn("Gradle 构建已取消: {}", tasksAndArgs);
+            return new PowerShellService.ProcessResult(-1, output.text(), "Gradle 构建已取消", false);
+        } catch (BuildException e) {
+            // 任务失败，与 gradlew 的退出码 1 保持一致
+            recordBuild(tasksAndArgs, "FAILED", begin);
+            logger.error("Gradle 构建失败: {}", rootMessage(e));
+            return new PowerShellService.ProcessResult(1, output.text(), rootMessage(e), true);
+        } catch (GradleConnectionException | IllegalStateException e) {
+            recordBuild(tasksAndArgs, "ERROR", begin);
+            logger.error("连接 Gradle 失败", e);
+            closeConnection();
+            throw new GradleUnavailableException("连接 Gradle 失败: " + rootMessage(e), e);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            output.flushLine();
+            currentToken = null;
+            // 由 runExclusive 调用时外层仍持有锁，回退构建期间仍显示为正在执行，留到外层释放时再清除
+            if (buildLock.getHoldCount() == 1) {
+                currentTasks = null;
+                currentStartTime = null;
+            }
+            buildLock.unlock();
+        }
+    }
+
+    /**
+     * 取消正在执行的构建
+     */
+    public boolean cancel() {
+        CancellationTokenSource token = currentToken;
+        if (token == null) {
+            return false;
+        }
+        logger.info("请求取消 Gradle 构建: {}", currentTasks);
+        token.cancel();
+        return true;
+    }
+
+    /**
+     * 当前构建状态和最近的任务进度事件
+     */
+    public Map<String, Object> getProgress() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<String> tasks = currentTasks;
+        Instant started = currentStartTime;
+        result.put("running", tasks != null);
+        result.put("tasks", tasks);
+        result.put("startTime", started != null ? started.toString() : null);
+        synchronized (progress) {
+            result.put("events", new ArrayList<>(progress));
+        }
+        result.put("lastBuild", lastBuild);
+        return result;
+    }
+
+    private void onProgress(ProgressEvent event) {
+        String line;
+        if (event instanceof StartEvent) {
+            line = event.getDisplayName();
+        } else if (event instanceof TaskFinishEvent finish) {
+            line = event.getDescriptor().getDisplayName() + " " + outcome(finish) + " ("
+                + (finish.getResult().getEndTime() - finish.getResult().getStartTime()) + " ms)";
+        } else if (event instanceof FinishEvent) {
+            line = event.getDisplayName();
+        } else {
+            return;
+        }
+        logger.debug("[gradle] {}", line);
+        synchronized (progress) {
+            if (progress.size() >= progressBufferSize) {
+                progress.removeFirst();
+            }
+            progress.addLast(Instant.ofEpochMilli(event.getEventTime()) + " " + line);
+        }
+    }
+
+    private static String outcome(TaskFinishEvent event) {
+        if (event.getResult() instanceof FailureResult) return "FAILED";
+        if (event.getResult() instanceof SkippedResult) return "SKIPPED";
+        if (event.getResult() instanceof TaskSuccessResult success) {
+            if (success.isFromCache()) return "FROM-CACHE";
+            if (success.isUpToDate()) return "UP-TO-DATE";
+        }
+        return "SUCCESS";
+    }
+
+    private void clearProgress() {
+        synchronized (progress) {
+            progress.clear();
+        }
+    }
+
+    private void recordBuild(List<String> tasks, String outcome, long begin) {
+        Map<String, Object> build = new LinkedHashMap<>();
+        build.put("tasks", tasks);
+        build.put("outcome", outcome);
+        build.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        build.put("finishedAt", Instant.now().toString());
+        lastBuild = build;
+    }
+
+    // 项目根目录不变时一直复用同一个连接（使用项目自带的 Gradle Wrapper 版本）
+    private synchronized ProjectConnection getConnection(File projectRoot) {
+        File root = projectRoot.getAbsoluteFile();
+        if (connection != null && root.equals(connectedRoot)) {
+            return connection;
+        }
+        closeConnection();
+        logger.info("建立 Gradle Tooling API 连接: {}", root);
+        connection = GradleConnector.newConnector()
+            .forProjectDirectory(root)
+            .connect();
+        connectedRoot = root;
+        return connection;
+    }
+
+    private synchronized void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                logger.warn("关闭 Gradle 连接失败: {}", e.getMessage());
+            }
+            connection = null;
+            connectedRoot = null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cancel();
+        timeoutScheduler.shutdownNow();
+        closeConnection();
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : e.getMessage();
+    }
+
+    /**
+     * 无法通过 Tooling API 连接 Gradle（例如 daemon 启动失败），调用方可以回退到 fork gradlew
+     */
+    public static class GradleUnavailableException extends RuntimeException {
+        public GradleUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // 把构建输出按行写入日志，同时保留完整文本返回给接口
+    private static class LineCollector extends OutputStream {
+        private final StringBuilder text = new StringBuilder();
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                flushLine();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        synchronized void flushLine() {
+            if (line.size() == 0) {
+                return;
+            }
+            String s = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            text.append(s).append("\n");
+            logger.info("[gradle] {}", s);
+        }
+
+        synchronized String text() {
+            flushLine();
+            return text.toString();
+        }
+    }
+}
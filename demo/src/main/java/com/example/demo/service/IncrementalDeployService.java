@@ -0,0 +1,452 @@
+package com.example.demo.service;
+
+import com.example.demo.util.GradleNodeBlocks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 增量部署：先把 deployNodes 生成到 build/nodes-staging，再根据指纹只替换输入发生变化的节点目录。
+ * 未变化的节点保留原有证书、数据库和 network-parameters。
+ */
+@Service
+public class IncrementalDeployService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalDeployService.class);
+
+    public static final String FINGERPRINT_FILE = ".deploy-fingerprints.properties";
+    private static final String STAGING_DIR = "build/nodes-staging";
+    private static final long GENERATE_NODE_INFO_TIMEOUT_MINUTES = 5;
+    private static final Pattern NOTARY = Pattern.compile("(?m)^\\s*notary\\s*=");
+
+    // 配置变更时保留的节点状态：证书、身份、H2 数据库、消息队列、日志
+    private static final Set<String> PRESERVED_ENTRIES = Set.of(
+        "certificates", "persistence.mv.db", "persistence.trace.db", "artemis", "brokers", "logs",
+        "network-parameters", "additional-node-infos", NodeProcessSupervisor.PID_FILE_NAME,
+        NodeProcessSupervisor.CORDA_PID_FILE_NAME);
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private NodeDatabaseProvisioner nodeDatabaseProvisioner;
+
+    @Autowired
+    private SharedArtifactStore sharedArtifactStore;
+
+    public Map<String, Object> deploy() {
+        long begin = System.currentTimeMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        File projectRoot = powerShellService.getProjectRootDirectory();
+        File nodesDir = new File(projectRoot, "build/nodes");
+        File stagingDir = new File(projectRoot, STAGING_DIR);
+
+        GradleNodeBlocks blocks;
+        try {
+            blocks = GradleNodeBlocks.parse(Files.readString(new File(projectRoot, "build.gradle").toPath(), StandardCharsets.UTF_8));
+            deleteRecursively(stagingDir.toPath());
+        } catch (IOException | IllegalArgumentException e) {
+            report.put("success", false);
+            report.put("error", "准备增量部署失败: " + e.getMessage());
+            return report;
+        }
+
+        // 只为缺失数据库的节点建库，成功后跳过 setupCordaDb 的 psql
+        List<String> tasks = new ArrayList<>(List.of("deployNodes", "-PdeployNodesDir=" + STAGING_DIR));
+        if (nodeDatabaseProvisioner.isEnabled()) {
+            Map<String, Object> database = nodeDatabaseProvisioner.provisionAll();
+            report.put("database", database);
+            if (!Boolean.TRUE.equals(database.get("success"))) {
+                report.put("success", false);
+                report.put("error", "创建节点数据库失败");
+                return report;
+            }
+            tasks.add("-PskipDbSetup=true");
+        }
+
+        // 不执行 clean，已编译的 CorDapp 和 jar 任务保持 UP-TO-DATE
+        PowerShellService.ProcessResult gradle = powerShellService.executeGradleTasks(tasks);
+        report.put("output", gradle.getOutput());
+        if (!gradle.isSuccess() || gradle.getExitCode() != 0) {
+            report.put("success", false);
+            report.put("exitCode", gradle.getExitCode());
+            report.put("error", gradle.getError());
+            return report;
+        }
+
+        try {
+            Properties previous = loadFingerprints(nodesDir);
+            Properties current = new Properties();
+            String defaultsText = blocks.getNodeDefaults() != null ? blocks.getNodeDefaults().getText() : "";
+
+            Set<String> notaryDirs = new HashSet<>();
+            for (GradleNodeBlocks.Block block : blocks.getNodes()) {
+                String dir = block.getDirectoryName();
+                current.setProperty(dir + ".config", sha256(defaultsText + "\n" + block.getText()));
+                current.setProperty(dir + ".cordapps", hashDirectory(new File(stagingDir, dir + "/cordapps").toPath()));
+                current.setProperty(dir + ".drivers", hashDirectory(new File(stagingDir, dir + "/drivers").toPath()));
+                if (NOTARY.matcher(block.getText()).find()) {
+                    notaryDirs.add(dir);
+                }
+            }
+
+            // 首次部署或 Notary 变化时 network-parameters 必须重新生成，只能整体替换
+            boolean full = previous.isEmpty() || notaryDirs.stream().anyMatch(dir ->
+                !current.getProperty(dir + ".config").equals(previous.getProperty(dir + ".config"))
+                    || !new File(nodesDir, dir).exists());
+
+            List<Map<String, Object>> nodes = full
+                ? replaceAll(blocks, nodesDir, stagingDir)
+                : syncChanged(blocks, nodesDir, stagingDir, previous, current);
+
+            redistributeNodeInfos(nodesDir);
+            if (sharedArtifactStore.isEnabled()) {
+                report.put("sharedArtifacts", sharedArtifactStore.deduplicate(nodesDir));
+            }
+            saveFingerprints(nodesDir, fingerprintsToSave(previous, current, nodes));
+            deleteRecursively(stagingDir.toPath());
+
+            boolean success = nodes.stream().noneMatch(n -> "SKIPPED_RUNNING".equals(n.get("action")));
+            report.put("success", success);
+            report.put("mode", full ? "full" : "incremental");
+            report.put("nodes", nodes);
+            report.put("totalMs", System.currentTimeMillis() - begin);
+            logger.info("增量部署完成，模式: {}，耗时 {} ms", report.get("mode"), report.get("totalMs"));
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("同步节点目录失败", e);
+            report.put("success", false);
+            report.put("error", "同步节点目录失败: " + e.getMessage());
+        }
+        return report;
+    }
+
+    private List<Map<String, Object>> replaceAll(GradleNodeBlocks blocks, File nodesDir, File stagingDir) throws IOException {
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        Files.createDirectories(nodesDir.toPath());
+        for (GradleNodeBlocks.Block block : blocks.getNodes()) {
+            String dir = block.getDirectoryName();
+            if (nodeProcessSupervisor.isRunning(dir)) {
+                nodes.add(nodeAction(dir, "SKIPPED_RUNNING"));
+                continue;
+            }
+            Path target = new File(nodesDir, dir).toPath();
+            deleteRecursively(target);
+            Files.move(new File(stagingDir, dir).toPath(), target);
+            nodes.add(nodeAction(dir, "REPLACED"));
+        }
+        copyTopLevelFiles(stagingDir, nodesDir);
+        removeDeletedNodes(blocks, nodesDir, nodes);
+        return nodes;
+    }
+
+    private List<Map<String, Object>> syncChanged(GradleNodeBlocks blocks, File nodesDir, File stagingDir,
+                                                  Properties previous, Properties current) throws IOException {
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        File networkParameters = findNetworkParameters(nodesDir);
+
+        for (GradleNodeBlocks.Block block : blocks.getNodes()) {
+            String dir = block.getDirectoryName();
+            File target = new File(nodesDir, dir);
+            File staged = new File(stagingDir, dir);
+            boolean exists = target.exists();
+            boolean configChanged = !current.getProperty(dir + ".config").equals(previous.getProperty(dir + ".config"));
+            boolean cordappsChanged = !current.getProperty(dir + ".cordapps").equals(previous.getProperty(dir + ".cordapps"));
+            boolean driversChanged = !current.getProperty(dir + ".drivers").equals(previous.getProperty(dir + ".drivers"));
+
+            if (exists && !configChanged && !cordappsChanged && !driversChanged) {
+                nodes.add(nodeAction(dir, "UNCHANGED"));
+                continue;
+            }
+            if (nodeProcessSupervisor.isRunning(dir)) {
+                nodes.add(nodeAction(dir, "SKIPPED_RUNNING"));
+                continue;
+            }
+
+            if (!exists) {
+                Files.move(staged.toPath(), target.toPath());
+                // 新节点沿用现有网络的 network-parameters，保证与其他节点一致
+                if (networkParameters != null) {
+                    Files.copy(networkParameters.toPath(), new File(target, "network-parameters").toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+                }
+                nodes.add(nodeAction(dir, "ADDED"));
+            } else if (configChanged) {
+                replaceExceptPreserved(staged, target);
+                nodes.add(nodeAction(dir, "UPDATED"));
+            } else {
+                if (cordappsChanged) {
+                    replaceEntry(new File(staged, "cordapps"), new File(target, "cordapps"));
+                }
+                if (driversChanged) {
+                    replaceEntry(new File(staged, "drivers"), new File(target, "drivers"));
+                }
+                nodes.add(nodeAction(dir, cordappsChanged ? "CORDAPPS_UPDATED" : "DRIVERS_UPDATED"));
+            }
+        }
+        removeDeletedNodes(blocks, nodesDir, nodes);
+        return nodes;
+    }
+
+    // 替换节点目录内容，但保留节点身份和数据
+    private void replaceExceptPreserved(File staged, File target) throws IOException {
+        File[] entries = staged.listFiles();
+        if (entries == null) {
+            return;
+        }
+        // 配置变化可能改动了 p2pAddress 等 nodeInfo 内容，旧的 nodeInfo 不能再分发给其他节点
+        for (File info : listNodeInfos(target)) {
+            Files.delete(info.toPath());
+        }
+        // 保留了旧证书时，staging 中的 nodeInfo 由新生成的密钥签名，也不能使用
+        boolean keepCertificates = new File(target, "certificates").exists();
+        for (File entry : entries) {
+            String name = entry.getName();
+            File existing = new File(target, name);
+            if (PRESERVED_ENTRIES.contains(name) && existing.exists()) {
+                continue;
+            }
+            if (name.startsWith("nodeInfo-") && keepCertificates) {
+                continue;
+            }
+            replaceEntry(entry, existing);
+        }
+        if (keepCertificates) {
+            generateNodeInfo(target);
+        }
+    }
+
+    // 用保留的证书和新的 node.conf 重新生成 nodeInfo
+    private void generateNodeInfo(File nodeDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", isWindows() ? "java.exe" : "java").toString());
+        command.add("-jar");
+        command.add("corda.jar");
+        command.add("generate-node-info");
+
+        File logFile = new File(nodeDir, "logs/generate-node-info.log");
+        Files.createDirectories(logFile.getParentFile().toPath());
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(nodeDir);
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(logFile);
+        Process process = pb.start();
+        try {
+            if (!process.waitFor(GENERATE_NODE_INFO_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                throw new IOException("生成 " + nodeDir.getName() + " 的 nodeInfo 超时，日志: " + logFile);
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("生成 " + nodeDir.getName() + " 的 nodeInfo 时被中断");
+        }
+        if (process.exitValue() != 0 || listNodeInfos(nodeDir).length == 0) {
+            throw new IOException("生成 " + nodeDir.getName() + " 的 nodeInfo 失败，退出码 " + process.exitValue() + "，日志: " + logFile);
+        }
+        logger.info("已为 {} 重新生成 nodeInfo", nodeDir.getName());
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    private void replaceEntry(File source, File target) throws IOException {
+        if (!source.exists()) {
+            return;
+        }
+        deleteRecursively(target.toPath());
+        Files.move(source.toPath(), target.toPath());
+    }
+
+    private void removeDeletedNodes(GradleNodeBlocks blocks, File nodesDir, List<Map<String, Object>> nodes) throws IOException {
+        Set<String> declared = new HashSet<>();
+        blocks.getNodes().forEach(b -> declared.add(b.getDirectoryName()));
+        for (File dir : powerShellService.getNodeDirectories()) {
+            if (!declared.contains(dir.getName())) {
+                if (nodeProcessSupervisor.isRunning(dir.getName())) {
+                    nodes.add(nodeAction(dir.getName(), "SKIPPED_RUNNING"));
+                    continue;
+                }
+                deleteRecursively(dir.toPath());
+                nodes.add(nodeAction(dir.getName(), "REMOVED"));
+            }
+        }
+    }
+
+    // 让每个节点的 additional-node-infos 恰好包含所有节点当前的 nodeInfo 文件
+    private void redistributeNodeInfos(File nodesDir) throws IOException {
+        List<File> nodeDirs = powerShellService.getNodeDirectories();
+        Map<String, File> nodeInfos = new LinkedHashMap<>();
+        for (File dir : nodeDirs) {
+            for (File info : listNodeInfos(dir)) {
+                nodeInfos.put(info.getName(), info);
+            }
+        }
+        for (File dir : nodeDirs) {
+            File additional = new File(dir, "additional-node-infos");
+            Files.createDirectories(additional.toPath());
+            File[] existing = listNodeInfos(additional);
+            for (File info : existing) {
+                if (!nodeInfos.containsKey(info.getName())) {
+                    Files.delete(info.toPath());
+                }
+            }
+            for (File info : nodeInfos.values()) {
+                File target = new File(additional, info.getName());
+                if (!target.exists()) {
+                    Files.copy(info.toPath(), target.toPath());
+                }
+            }
+        }
+    }
+
+    private File[] listNodeInfos(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.startsWith("nodeInfo-"));
+        return files != null ? files : new File[0];
+    }
+
+    private File findNetworkParameters(File nodesDir) {
+        for (File dir : powerShellService.getNodeDirectories()) {
+            File params = new File(dir, "network-parameters");
+            if (params.exists()) {
+                return params;
+            }
+        }
+        return null;
+    }
+
+    // runnodes 等顶层脚本随 staging 一并更新
+    private void copyTopLevelFiles(File stagingDir, File nodesDir) throws IOException {
+        File[] files = stagingDir.listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            Files.copy(file.toPath(), new File(nodesDir, file.getName()).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private Map<String, Object> nodeAction(String node, String action) {
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("node", node);
+        item.put("action", action);
+        return item;
+    }
+
+    private Properties loadFingerprints(File nodesDir) throws IOException {
+        Properties props = new Properties();
+        File file = new File(nodesDir, FINGERPRINT_FILE);
+        if (file.exists()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                props.load(in);
+            }
+        }
+        return props;
+    }
+
+    /**
+     * 因节点运行而跳过的节点沿用上一次的指纹，下次部署时仍会被识别为有变化；
+     * 之前没有指纹的跳过节点不写入，下次按新节点处理
+     */
+    static Properties fingerprintsToSave(Properties previous, Properties current, List<Map<String, Object>> nodes) {
+        Set<String> skipped = new HashSet<>();
+        for (Map<String, Object> node : nodes) {
+            if ("SKIPPED_RUNNING".equals(node.get("action"))) {
+                skipped.add(String.valueOf(node.get("node")));
+            }
+        }
+        Properties saved = new Properties();
+        for (String key : current.stringPropertyNames()) {
+            String dir = key.substring(0, key.lastIndexOf('.'));
+            if (!skipped.contains(dir)) {
+                saved.setProperty(key, current.getProperty(key));
+            } else if (previous.getProperty(key) != null) {
+                saved.setProperty(key, previous.getProperty(key));
+            }
+        }
+        return saved;
+    }
+
+    private void saveFingerprints(File nodesDir, Properties props) throws IOException {
+        Files.createDirectories(nodesDir.toPath());
+        try (OutputStream out = Files.newOutputStream(new File(nodesDir, FINGERPRINT_FILE).toPath())) {
+            props.store(out, "deployNodes input fingerprints");
+        }
+    }
+
+    // 目录内所有文件（相对路径 + 内容）的 SHA-256
+    private String hashDirectory(Path dir) throws IOException {
+        MessageDigest digest = newDigest();
+        if (Files.isDirectory(dir)) {
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(dir)) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(dir.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                try (InputStream in = Files.newInputStream(file)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String sha256(String text) {
+        return HexFormat.of().formatHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(path)) {
+            for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
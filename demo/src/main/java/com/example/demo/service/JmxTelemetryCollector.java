@@ -0,0 +1,438 @@
+package com.example.demo.service;
+
+import com.sun.tools.attach.VirtualMachine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 通过 JMX 定时采集各节点 JVM 的堆、GC、线程，以及 Corda 自己注册在 net.corda 域下的指标
+ * （在途流程、检查点、P2P 队列等），按节点打上 node 标签注册为 Micrometer gauge。
+ * 默认用 Attach API 在目标 JVM 中启动本地管理代理，也可以为节点配置远程 JMX 端口。
+ */
+@Service
+public class JmxTelemetryCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(JmxTelemetryCollector.class);
+
+    private static final String CORDA_DOMAIN = "net.corda";
+    // Dropwizard JmxReporter 导出的数值属性：Gauge 为 Value，Counter/Meter/Timer 有 Count 等
+    private static final String[] CORDA_ATTRIBUTES = {"Value", "Count", "OneMinuteRate", "Mean", "99thPercentile", "Max"};
+    private static final String ARTEMIS_QUEUES = "org.apache.activemq.artemis:component=addresses,subcomponent=queues,*";
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${corda.jmx.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.jmx.interval-seconds:15}")
+    private long intervalSeconds;
+
+    // 为节点指定远程 JMX 地址，格式：PartyA=localhost:9010,PartyB=localhost:9011；未配置的节点使用 Attach API
+    @Value("${corda.jmx.endpoints:}")
+    private String endpoints;
+
+    // 在途流程数超过该值时记警告日志，0 表示不检查
+    @Value("${corda.jmx.flow-backlog-warn:50}")
+    private long flowBacklogWarn;
+
+    private final Map<String, NodeConnection> connections = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Meter>> meters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "jmx-telemetry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("JMX 指标采集未启用");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::collectQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        connections.values().forEach(NodeConnection::close);
+        connections.clear();
+    }
+
+    private void collectQuietly() {
+        try {
+            collectAll();
+        } catch (RuntimeException e) {
+            logger.warn("采集 JMX 指标失败: {}", e.getMessage());
+        }
+    }
+
+    void collectAll() {
+        Map<String, String> remote = parseEndpoints(endpoints);
+        Set<String> targets = new HashSet<>(remote.keySet());
+        for (String name : nodeProcessSupervisor.getRegisteredNames()) {
+            if (nodeProcessSupervisor.get(name).map(NodeProcessSupervisor.ManagedProcess::isAlive).orElse(false)) {
+                targets.add(name);
+            }
+        }
+
+        for (String name : targets) {
+            try {
+                NodeConnection connection = connect(name, remote.get(name));
+                Map<String, Double> values = scrape(connection.server);
+                snapshots.put(name, new Snapshot(System.currentTimeMillis(), connection.source, values, null));
+                registerMeters(name, values.keySet());
+                checkBacklog(name, values);
+            } catch (Exception e) {
+                // 连接失效（进程重启或退出）时丢弃，下次重新连接
+                NodeConnection stale = connections.remove(name);
+                if (stale != null) {
+                    stale.close();
+                }
+                Snapshot previous = snapshots.get(name);
+                snapshots.put(name, new Snapshot(System.currentTimeMillis(), previous != null ? previous.source : null,
+                    Map.of(), e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                logger.debug("采集 {} 的 JMX 指标失败: {}", name, e.getMessage());
+            }
+        }
+
+        for (String name : new ArrayList<>(snapshots.keySet())) {
+            if (!targets.contains(name)) {
+                forget(name);
+            }
+        }
+    }
+
+    // 节点已移除或进程已退出：关闭连接、清除样本并注销 gauge
+    private void forget(String name) {
+        NodeConnection connection = connections.remove(name);
+        if (connection != null) {
+            connection.close();
+        }
+        snapshots.remove(name);
+        Map<String, Meter> registered = meters.remove(name);
+        if (registered != null) {
+            registered.values().forEach(meterRegistry::remove);
+        }
+    }
+
+    private NodeConnection connect(String name, String remoteAddress) throws Exception {
+        NodeConnection existing = connections.get(name);
+        if (existing != null) {
+            long pid = remoteAddress != null ? -1 : currentPid(name);
+            if (existing.pid == pid && (existing.cordaFound || isWebserver(name) || existing.attempts++ % 4 != 0)) {
+                return existing;
+            }
+            // PID 变了，或节点 JVM 当时还没注册 Corda 指标，重新选择目标 JVM
+            connections.remove(name);
+            existing.close();
+        }
+
+        NodeConnection connection;
+        if (remoteAddress != null) {
+            String url = remoteAddress.startsWith("service:jmx:") ? remoteAddress
+                : "service:jmx:rmi:///jndi/rmi://" + remoteAddress + "/jmxrmi";
+            JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(url));
+            connection = new NodeConnection(-1, url, connector);
+        } else {
+            connection = attach(name);
+        }
+        connections.put(name, connection);
+        return connection;
+    }
+
+    /**
+     * corda.jar 由 Capsule 启动，真正的节点 JVM 是子进程；startNode 脚本还会再套一层 shell。
+     * 依次 attach 进程树中的 java 进程，优先选择已注册 net.corda 指标的那个。
+     */
+    private NodeConnection attach(String name) throws Exception {
+        NodeProcessSupervisor.ManagedProcess managed = nodeProcessSupervisor.get(name)
+            .orElseThrow(() -> new IllegalStateException("进程未登记: " + name));
+        List<ProcessHandle> candidates = new ArrayList<>();
+        managed.getHandle().descendants().filter(JmxTelemetryCollector::isJava).forEach(candidates::add);
+        // 子进程优先，最后才是登记的根进程
+        Collections.reverse(candidates);
+        if (isJava(managed.getHandle())) {
+            candidates.add(managed.getHandle());
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("进程树中没有 java 进程");
+        }
+
+        NodeConnection fallback = null;
+        Exception lastError = null;
+        for (ProcessHandle candidate : candidates) {
+            try {
+                String address = startLocalAgent(candidate.pid());
+                JMXConnector connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+                NodeConnection connection = new NodeConnection(managed.getPid(), "attach:" + candidate.pid(), connector);
+                if (Arrays.asList(connection.server.getDomains()).contains(CORDA_DOMAIN)) {
+                    connection.cordaFound = true;
+                    if (fallback != null) {
+                        fallback.close();
+                    }
+                    return connection;
+                }
+                if (fallback == null) {
+                    fallback = connection;
+                } else {
+                    connection.close();
+                }
+            } catch (Exception e) {
+                lastError = e;
+            }
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        throw lastError;
+    }
+
+    private static String startLocalAgent(long pid) throws Exception {
+        VirtualMachine vm = VirtualMachine.attach(Long.toString(pid));
+        try {
+            // 代理已启动时直接返回现有地址
+            return vm.startLocalManagementAgent();
+        } finally {
+            vm.detach();
+        }
+    }
+
+    private static boolean isJava(ProcessHandle handle) {
+        return handle.info().command()
+            .map(command -> {
+                String file = command.replace('\\', '/');
+                file = file.substring(file.lastIndexOf('/') + 1);
+                return file.equals("java") || file.equals("java.exe") || file.equals("javaw.exe");
+            })
+            .orElse(false);
+    }
+
+    private long currentPid(String name) {
+        return nodeProcessSupervisor.get(name).map(NodeProcessSupervisor.ManagedProcess::getPid).orElse(-1L);
+    }
+
+    private static boolean isWebserver(String name) {
+        return name.startsWith(PowerShellService.webserverProcessName(""));
+    }
+
+    /**
+     * 读取一次指标。键为 gauge 名称加可选的 "|tag=value" 后缀，值统一为 double
+     */
+    private Map<String, Double> scrape(MBeanServerConnection server) throws Exception {
+        Map<String, Double> values = new LinkedHashMap<>();
+
+        ObjectName memory = new ObjectName("java.lang:type=Memory");
+        CompositeData heap = (CompositeData) server.getAttribute(memory, "HeapMemoryUsage");
+        CompositeData nonHeap = (CompositeData) server.getAttribute(memory, "NonHeapMemoryUsage");
+        values.put("corda.node.jvm.heap.used", number(heap.get("used")));
+        values.put("corda.node.jvm.heap.committed", number(heap.get("committed")));
+        values.put("corda.node.jvm.heap.max", number(heap.get("max")));
+        values.put("corda.node.jvm.nonheap.used", number(nonHeap.get("used")));
+
+        ObjectName threading = new ObjectName("java.lang:type=Threading");
+        readAttributes(server, threading, new String[]{"ThreadCount", "DaemonThreadCount", "PeakThreadCount"}, values,
+            attribute -> attribute.equals("ThreadCount") ? "corda.node.jvm.threads.live"
+                : "corda.node.jvm.threads." + attribute.replace("ThreadCount", "").toLowerCase());
+
+        ObjectName runtime = new ObjectName("java.lang:type=Runtime");
+        values.put("corda.node.jvm.uptime.ms", number(server.getAttribute(runtime, "Uptime")));
+
+        readAttributes(server, new ObjectName("java.lang:type=OperatingSystem"), new String[]{"ProcessCpuLoad"}, values,
+            attribute -> "corda.node.jvm.process.cpu");
+
+        for (ObjectName gc : server.queryNames(new ObjectName("java.lang:type=GarbageCollector,*"), null)) {
+            String suffix = "|gc=" + gc.getKeyProperty("name");
+            readAttributes(server, gc, new String[]{"CollectionCount", "CollectionTime"}, values,
+                attribute -> (attribute.equals("CollectionCount") ? "corda.node.jvm.gc.count" : "corda.node.jvm.gc.time.ms") + suffix);
+        }
+
+        for (ObjectName name : server.queryNames(new ObjectName(CORDA_DOMAIN + ":*"), null)) {
+            // 例如 net.corda:type=Flows,name=InFlight -> metric=Flows.InFlight
+            String type = name.getKeyProperty("type");
+            String metricName = name.getKeyProperty("name");
+            String component = name.getKeyProperty("component");
+            String metric = (type != null ? type + "." : "") + (component != null ? component + "." : "") + metricName;
+            readAttributes(server, name, CORDA_ATTRIBUTES, values,
+                attribute -> "corda.node.metric|metric=" + metric + "|attribute=" + attribute);
+        }
+
+        // 节点内嵌 Artemis 开启 JMX 管理时，可以直接读到 P2P 队列的积压消息数
+        for (ObjectName queue : server.queryNames(new ObjectName(ARTEMIS_QUEUES), null)) {
+            String queueName = ObjectName.unquote(queue.getKeyProperty("queue"));
+            readAttributes(server, queue, new String[]{"MessageCount"}, values,
+                attribute -> "corda.node.artemis.queue.messages|queue=" + queueName);
+        }
+        return values;
+    }
+
+    private static void readAttributes(MBeanServerConnection server, ObjectName name, String[] attributes,
+                                       Map<String, Double> values, Function<String, String> key)
+        throws IOException {
+        try {
+            // getAttributes 只返回存在的属性，不同类型的 MBean 可以用同一组属性名查询
+            for (Attribute attribute : server.getAttributes(name, attributes).asList()) {
+                Object value = attribute.getValue();
+                if (value instanceof Number) {
+                    values.put(key.apply(attribute.getName()), ((Number) value).doubleValue());
+                }
+            }
+        } catch (JMException e) {
+            // MBean 在查询后被注销
+        }
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    // 首次出现的指标注册为 gauge，gauge 读取最新快照中的值，没有值时返回 NaN
+    private void registerMeters(String node, Set<String> keys) {
+        Map<String, Meter> registered = meters.computeIfAbsent(node, k -> new ConcurrentHashMap<>());
+        for (String key : keys) {
+            if (registered.containsKey(key)) {
+                continue;
+            }
+            String[] parts = key.split("\\|");
+            List<Tag> tags = new ArrayList<>();
+            tags.add(Tag.of("node", node));
+            for (int i = 1; i < parts.length; i++) {
+                int eq = parts[i].indexOf('=');
+                tags.add(Tag.of(parts[i].substring(0, eq), parts[i].substring(eq + 1)));
+            }
+            Meter meter = Gauge.builder(parts[0], () -> value(node, key))
+                .tags(Tags.of(tags))
+                .register(meterRegistry);
+            registered.put(key, meter);
+        }
+    }
+
+    private Double value(String node, String key) {
+        Snapshot snapshot = snapshots.get(node);
+        return snapshot != null ? snapshot.values.getOrDefault(key, Double.NaN) : Double.NaN;
+    }
+
+    private void checkBacklog(String name, Map<String, Double> values) {
+        Double inFlight = values.get("corda.node.metric|metric=Flows.InFlight|attribute=Value");
+        if (flowBacklogWarn > 0 && inFlight != null && inFlight >= flowBacklogWarn) {
+            logger.warn("节点 {} 在途流程数 {} 已达到告警阈值 {}，节点可能过载", name, inFlight.longValue(), flowBacklogWarn);
+        }
+    }
+
+    static Map<String, String> parseEndpoints(String spec) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return result;
+        }
+        for (String entry : spec.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq > 0) {
+                result.put(entry.substring(0, eq).trim(), entry.substring(eq + 1).trim());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 所有节点最近一次采集的结果
+     */
+    public Map<String, Object> getSnapshots() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        snapshots.keySet().stream().sorted().forEach(name -> result.put(name, getSnapshot(name)));
+        return result;
+    }
+
+    public Map<String, Object> getSnapshot(String name) {
+        Snapshot snapshot = snapshots.get(name);
+        if (snapshot == null) {
+            return null;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("timestamp", snapshot.timestamp);
+        map.put("source", snapshot.source);
+        map.put("error", snapshot.error);
+        map.put("flowsInFlight", snapshot.values.get("corda.node.metric|metric=Flows.InFlight|attribute=Value"));
+        map.put("metrics", snapshot.values);
+        return map;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static class NodeConnection {
+        private final long pid;
+        private final String source;
+        private final JMXConnector connector;
+        private final MBeanServerConnection server;
+        private boolean cordaFound;
+        private int attempts;
+
+        NodeConnection(long pid, String source, JMXConnector connector) throws IOException {
+            this.pid = pid;
+            this.source = source;
+            this.connector = connector;
+            this.server = connector.getMBeanServerConnection();
+        }
+
+        void close() {
+            try {
+                connector.close();
+            } catch (IOException e) {
+                // 目标进程已退出
+            }
+        }
+    }
+
+    private static class Snapshot {
+        private final long timestamp;
+        private final String source;
+        private final Map<String, Double> values;
+        private final String error;
+
+        Snapshot(long timestamp, String source, Map<String, Double> values, String error) {
+            this.timestamp = timestamp;
+            this.source = source;
+            this.values = values;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.demo.service;
+
+import com.example.demo.util.HostResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 按主机内存、CPU 和计划部署的节点数计算每个节点 JVM 和 webserver JVM 的堆、GC 和线程参数，
+ * 避免 N 个 JVM 各自按物理内存的比例取默认堆大小而互相挤占。
+ * 参数写入 node.conf 的 custom.jvmArgs，并直接加到管理器启动节点和 webserver 的命令行上。
+ */
+@Service
+public class JvmSizingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JvmSizingService.class);
+
+    private static final long MB = 1024 * 1024;
+    private static final String BLOCK_BEGIN = "# corda-manager jvm-sizing begin";
+    private static final String BLOCK_END = "# corda-manager jvm-sizing end";
+    private static final Pattern MANAGED_BLOCK = Pattern.compile(
+        "(?s)\\n?" + Pattern.quote(BLOCK_BEGIN) + ".*?" + Pattern.quote(BLOCK_END) + "\\n?");
+
+    @Value("${corda.jvm.sizing-enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.jvm.profile:balanced}")
+    private String defaultProfile;
+
+    // 留给操作系统、PostgreSQL 和管理器自身的内存
+    @Value("${corda.jvm.reserved-mb:1024}")
+    private long reservedMb;
+
+    /**
+     * dense-test：单机塞尽量多的测试节点，Serial GC、小堆、只做 C1 编译；
+     * balanced：G1，按节点数分摊 GC 线程；throughput：Parallel GC，大堆且初始堆等于最大堆。
+     */
+    public enum Profile {
+        DENSE_TEST("dense-test", 0.70, 256, 1024, 160, 64, 256, 96),
+        BALANCED("balanced", 0.75, 512, 2048, 256, 128, 512, 128),
+        THROUGHPUT("throughput", 0.80, 1024, 4096, 320, 256, 1024, 160);
+
+        private final String id;
+        // 一对 节点 + webserver 的内存中分给节点的比例
+        private final double nodeShare;
+        private final long nodeMinHeapMb;
+        private final long nodeMaxHeapMb;
+        // 堆以外的开销：元空间、代码缓存、线程栈、直接内存
+        private final long nodeOverheadMb;
+        private final long webMinHeapMb;
+        private final long webMaxHeapMb;
+        private final long webOverheadMb;
+
+        Profile(String id, double nodeShare, long nodeMinHeapMb, long nodeMaxHeapMb, long nodeOverheadMb,
+                long webMinHeapMb, long webMaxHeapMb, long webOverheadMb) {
+            this.id = id;
+            this.nodeShare = nodeShare;
+            this.nodeMinHeapMb = nodeMinHeapMb;
+            this.nodeMaxHeapMb = nodeMaxHeapMb;
+            this.nodeOverheadMb = nodeOverheadMb;
+            this.webMinHeapMb = webMinHeapMb;
+            this.webMaxHeapMb = webMaxHeapMb;
+            this.webOverheadMb = webOverheadMb;
+        }
+
+        public String getId() { return id; }
+
+        public static Profile of(String id) {
+            String normalized = id == null ? "" : id.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+            for (Profile profile : values()) {
+                if (profile.id.equals(normalized)) {
+                    return profile;
+                }
+            }
+            throw new IllegalArgumentException("未知的 JVM 配置档: " + id + "，可选 dense-test、balanced、throughput");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public JvmPlan plan(int nodeCount) {
+        return plan(Profile.of(defaultProfile), nodeCount, HostResources.read());
+    }
+
+    public JvmPlan plan(Profile profile, int nodeCount, HostResources host) {
+        int nodes = Math.max(1, nodeCount);
+        long totalMb = host.getMemTotalBytes() / MB;
+        long usableMb = Math.max(0, totalMb - reservedMb);
+        long pairMb = usableMb / nodes;
+        long nodeBudgetMb = (long) (pairMb * profile.nodeShare);
+        long webBudgetMb = pairMb - nodeBudgetMb;
+
+        long nodeHeap = clamp(nodeBudgetMb - profile.nodeOverheadMb, profile.nodeMinHeapMb, profile.nodeMaxHeapMb);
+        long webHeap = clamp(webBudgetMb - profile.webOverheadMb, profile.webMinHeapMb, profile.webMaxHeapMb);
+        long nodeRss = nodeHeap + profile.nodeOverheadMb;
+        long webRss = webHeap + profile.webOverheadMb;
+        boolean overcommitted = (nodeRss + webRss) * nodes > usableMb;
+
+        // 所有 JVM 共用 CPU：GC 线程按每个进程分到的核数计算
+        int cpus = Math.max(1, host.getCpuCount());
+        int processes = nodes * 2;
+        int gcThreads = Math.max(1, (int) Math.ceil((double) cpus / processes) * (profile == Profile.THROUGHPUT ? 2 : 1));
+        gcThreads = Math.min(gcThreads, cpus);
+
+        List<String> nodeArgs = jvmArgs(profile, nodeHeap, gcThreads, cpus, true);
+        List<String> webArgs = jvmArgs(profile, webHeap, 1, cpus, false);
+        if (overcommitted) {
+            logger.warn("按 {} 配置档，{} 个节点需要约 {} MB，超过可用的 {} MB", profile.id, nodes, (nodeRss + webRss) * nodes, usableMb);
+        }
+        return new JvmPlan(profile.id, nodes, nodeHeap, webHeap, nodeRss, webRss, usableMb, overcommitted,
+            nodeArgs, webArgs, host.toMap());
+    }
+
+    private List<String> jvmArgs(Profile profile, long heapMb, int gcThreads, int cpus, boolean node) {
+        List<String> args = new ArrayList<>();
+        switch (profile) {
+            case DENSE_TEST -> {
+                args.add("-Xms" + Math.min(heapMb, node ? 128 : 64) + "m");
+                args.add("-Xmx" + heapMb + "m");
+                args.add("-XX:+UseSerialGC");
+                args.add("-XX:TieredStopAtLevel=1");
+                args.add("-XX:ReservedCodeCacheSize=64m");
+                args.add("-XX:MaxMetaspaceSize=" + (node ? 256 : 128) + "m");
+                args.add("-XX:MaxDirectMemorySize=" + (node ? 128 : 64) + "m");
+                args.add("-Xss512k");
+                args.add("-XX:ActiveProcessorCount=" + Math.min(cpus, node ? 2 : 1));
+            }
+            case BALANCED -> {
+                args.add("-Xms" + Math.max(64, heapMb / 4) + "m");
+                args.add("-Xmx" + heapMb + "m");
+                args.add("-XX:+UseG1GC");
+                args.add("-XX:MaxGCPauseMillis=200");
+                args.add("-XX:ParallelGCThreads=" + gcThreads);
+                args.add("-XX:ConcGCThreads=" + Math.max(1, (gcThreads + 3) / 4));
+                args.add("-XX:+UseStringDeduplication");
+            }
+            case THROUGHPUT -> {
+                args.add("-Xms" + heapMb + "m");
+                args.add("-Xmx" + heapMb + "m");
+                args.add("-XX:+UseParallelGC");
+                args.add("-XX:ParallelGCThreads=" + gcThreads);
+            }
+        }
+        args.add("-XX:+ExitOnOutOfMemoryError");
+        return args;
+    }
+
+    /**
+     * 把参数写入 node.conf 的 custom.jvmArgs（替换上次写入的块，deployNodes 重新生成 node.conf 后会再次写入）
+     */
+    public void applyToNodeConf(File nodeDir, List<String> jvmArgs) throws IOException {
+        Path nodeConf = nodeDir.toPath().resolve("node.conf");
+        if (!Files.exists(nodeConf)) {
+            return;
+        }
+        String content = Files.readString(nodeConf, StandardCharsets.UTF_8);
+        String stripped = MANAGED_BLOCK.matcher(content).replaceAll("\n");
+        StringBuilder block = new StringBuilder();
+        block.append(BLOCK_BEGIN).append('\n');
+        block.append("custom {\n    jvmArgs = [");
+        for (int i = 0; i < jvmArgs.size(); i++) {
+            block.append(i == 0 ? "" : ", ").append('"').append(jvmArgs.get(i)).append('"');
+        }
+        block.append("]\n}\n");
+        block.append(BLOCK_END).append('\n');
+        String updated = (stripped.endsWith("\n") ? stripped : stripped + "\n") + block;
+        if (!updated.equals(content)) {
+            Files.writeString(nodeConf, updated, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * 一次计算结果：每个节点和 webserver 的堆大小、预估常驻内存以及对应的 JVM 参数
+     */
+    public static class JvmPlan {
+        private final String profile;
+        private final int nodeCount;
+        private final long nodeHeapMb;
+        private final long webserverHeapMb;
+        private final long estimatedNodeRssMb;
+        private final long estimatedWebserverRssMb;
+        private final long usableMemoryMb;
+        private final boolean overcommitted;
+        private final List<String> nodeJvmArgs;
+        private final List<String> webserverJvmArgs;
+        private final Map<String, Object> host;
+
+        public JvmPlan(String profile, int nodeCount, long nodeHeapMb, long webserverHeapMb,
+                       long estimatedNodeRssMb, long estimatedWebserverRssMb, long usableMemoryMb, boolean overcommitted,
+                       List<String> nodeJvmArgs, List<String> webserverJvmArgs, Map<String, Object> host) {
+            this.profile = profile;
+            this.nodeCount = nodeCount;
+            this.nodeHeapMb = nodeHeapMb;
+            this.webserverHeapMb = webserverHeapMb;
+            this.estimatedNodeRssMb = estimatedNodeRssMb;
+            this.estimatedWebserverRssMb = estimatedWebserverRssMb;
+            this.usableMemoryMb = usableMemoryMb;
+            this.overcommitted = overcommitted;
+            this.nodeJvmArgs = nodeJvmArgs;
+            this.webserverJvmArgs = webserverJvmArgs;
+            this.host = host;
+        }
+
+        public String getProfile() { return profile; }
+        public int getNodeCount() { return nodeCount; }
+        public long getNodeHeapMb() { return nodeHeapMb; }
+        public long getWebserverHeapMb() { return webserverHeapMb; }
+        public long getEstimatedNodeRssMb() { return estimatedNodeRssMb; }
+        public long getEstimatedWebserverRssMb() { return estimatedWebserverRssMb; }
+        public long getUsableMemoryMb() { return usableMemoryMb; }
+        public boolean isOvercommitted() { return overcommitted; }
+        public List<String> getNodeJvmArgs() { return nodeJvmArgs; }
+        public List<String> getWebserverJvmArgs() { return webserverJvmArgs; }
+        public Map<String, Object> getHost() { return host; }
+    }
+}
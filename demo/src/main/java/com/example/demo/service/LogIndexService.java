@@ -0,0 +1,503 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 节点和 webserver 日志的内存倒排索引：由 NodeLogScanner 逐行推送，抽取流程 ID、交易哈希、
+ * X.500 名称、异常类名等关键字，每个关键字对应一个 (文件, 行偏移量) 的压缩倒排表。
+ * 查询时对多个关键字求交集，按偏移量回读原始行，跨节点按时间排序返回。
+ */
+@Service
+public class LogIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogIndexService.class);
+
+    // 倒排表元素：高 24 位为文件编号，低 40 位为行偏移量（单个文件最大 1 TB）
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_LINE_BYTES = 8192;
+    private static final int LOOKBACK_BYTES = 32 * 1024;
+
+    private static final Pattern X500 = Pattern.compile("O=([^,\\]\\n]+),\\s*L=([^,\\]\\n]+),\\s*C=([A-Z]{2})");
+    private static final Pattern EXCEPTION = Pattern.compile("\\b((?:[a-z][\\w$]*\\.)*([A-Z][\\w$]*(?:Exception|Error)))\\b");
+    // Corda 日志为 UTC 的 "2025-01-01T00:00:00,000Z"，Spring Boot 为带时区的 ISO 时间
+    private static final Pattern TIMESTAMP = Pattern.compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2})(?:[.,](\\d{1,9}))?(Z|[+-]\\d{2}:\\d{2})");
+
+    @Autowired
+    private NodeLogScanner nodeLogScanner;
+
+    @Value("${corda.logindex.enabled:true}")
+    private boolean enabled;
+
+    // 倒排表元素总数上限（每个 8 字节），超过后丢弃最早的文件
+    @Value("${corda.logindex.max-postings:4000000}")
+    private long maxPostings;
+
+    private final Map<String, Postings> index = new HashMap<>();
+    private final List<IndexedFile> files = new ArrayList<>();
+    private final Map<Path, Integer> currentFileIds = new HashMap<>();
+    private long postingCount;
+    private int liveFiles;
+    private long linesIndexed;
+    // 扫描线程独占
+    private final Matcher x500Matcher = X500.matcher("");
+    private final Matcher exceptionMatcher = EXCEPTION.matcher("");
+
+    @PostConstruct
+    public void register() {
+        if (!enabled) {
+            logger.info("日志索引未启用");
+            return;
+        }
+        nodeLogScanner.addLineListener(new NodeLogScanner.LineListener() {
+            @Override
+            public void onLine(String source, Path file, long offset, String line) {
+                indexLine(source, file, offset, line);
+            }
+
+            @Override
+            public void onFileReset(Path file) {
+                retire(file);
+            }
+        });
+    }
+
+    private synchronized void indexLine(String source, Path file, long offset, String line) {
+        Set<String> tokens = new LinkedHashSet<>();
+        extractTokens(line, tokens);
+        if (tokens.isEmpty() || postingCount > maxPostings) {
+            // 只剩一个文件时仍超过上限，停止索引直到该文件被轮转
+            return;
+        }
+        int fileId = currentFileIds.computeIfAbsent(file, f -> {
+            files.add(new IndexedFile(source, f));
+            liveFiles++;
+            return files.size() - 1;
+        });
+        long posting = ((long) fileId << OFFSET_BITS) | (offset & OFFSET_MASK);
+        for (String token : tokens) {
+            index.computeIfAbsent(token, k -> new Postings()).add(posting);
+            postingCount++;
+        }
+        linesIndexed++;
+        if (postingCount > maxPostings && liveFiles > 1) {
+            evictOldest();
+        }
+    }
+
+    // 同一行内重复出现的关键字只记一次；统一小写，查询时同样处理。
+    // UUID 和哈希手工扫描十六进制串，其余先用 indexOf 过滤再执行正则
+    private void extractTokens(String line, Set<String> tokens) {
+        extractHexTokens(line, tokens);
+        if (line.contains("O=")) {
+            x500Matcher.reset(line);
+            while (x500Matcher.find()) {
+                String organisation = x500Matcher.group(1).trim();
+                tokens.add(("O=" + organisation + ",L=" + x500Matcher.group(2).trim() + ",C=" + x500Matcher.group(3)).toLowerCase(Locale.ROOT));
+                tokens.add(organisation.toLowerCase(Locale.ROOT));
+            }
+        }
+        if (line.contains("Exception") || line.contains("Error")) {
+            exceptionMatcher.reset(line);
+            while (exceptionMatcher.find()) {
+                // 全限定名和简单类名都可以查询
+                tokens.add(exceptionMatcher.group(1).toLowerCase(Locale.ROOT));
+                tokens.add(exceptionMatcher.group(2).toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    // 连续的十六进制和 '-' 组成的片段：8-4-4-4-12 为 UUID（流程 ID），64 位十六进制为交易哈希
+    private static void extractHexTokens(String line, Set<String> tokens) {
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            if (!isHex(line.charAt(i)) || (i > 0 && isWordChar(line.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            boolean dash = false;
+            while (end < length && (isHex(line.charAt(end)) || line.charAt(end) == '-')) {
+                dash |= line.charAt(end) == '-';
+                end++;
+            }
+            if (end == length || !isWordChar(line.charAt(end))) {
+                int span = end - i;
+                if (span == 36 && isUuid(line, i)) {
+                    tokens.add(line.substring(i, end).toLowerCase(Locale.ROOT));
+                } else if (span == 64 && !dash) {
+                    tokens.add(line.substring(i, end).toLowerCase(Locale.ROOT));
+                }
+            }
+            i = end + 1;
+        }
+    }
+
+    private static boolean isUuid(String s, int start) {
+        for (int k = 0; k < 36; k++) {
+            boolean dash = k == 8 || k == 13 || k == 18 || k == 23;
+            if ((s.charAt(start + k) == '-') != dash) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    // 文件被轮转：旧编号作废，之后的行使用新编号
+    private synchronized void retire(Path file) {
+        Integer fileId = currentFileIds.remove(file);
+        if (fileId != null && !files.get(fileId).dead) {
+            files.get(fileId).dead = true;
+            liveFiles--;
+            compact();
+        }
+    }
+
+    // 从编号最小（最早开始索引）的文件丢弃，直到降到上限的 80%；至少保留一个文件
+    private void evictOldest() {
+        long target = maxPostings * 8 / 10;
+        for (int i = 0; i < files.size() && postingCount > target && liveFiles > 1; i++) {
+            IndexedFile file = files.get(i);
+            if (!file.dead) {
+                file.dead = true;
+                liveFiles--;
+                currentFileIds.remove(file.path, i);
+                compact();
+            }
+        }
+        logger.info("日志索引超过 {} 条，已丢弃最早的文件，当前 {} 条", maxPostings, postingCount);
+    }
+
+    // 删除已作废文件的倒排元素，空的关键字一并删除
+    private void compact() {
+        boolean[] dead = new boolean[files.size()];
+        for (int i = 0; i < dead.length; i++) {
+            dead[i] = files.get(i).dead;
+        }
+        long remaining = 0;
+        Iterator<Postings> iterator = index.values().iterator();
+        while (iterator.hasNext()) {
+            Postings postings = iterator.next();
+            postings.removeIf(value -> dead[(int) (value >>> OFFSET_BITS)]);
+            if (postings.size == 0) {
+                iterator.remove();
+            } else {
+                remaining += postings.size;
+            }
+        }
+        postingCount = remaining;
+    }
+
+    /**
+     * 查询同时包含所有关键字的日志行，跨节点按时间排序。
+     * 关键字可以是流程 ID、交易哈希、X.500 名称、组织名或异常类名，多个关键字用空格分隔。
+     */
+    public SearchResult search(String query, String source, int limit) {
+        long started = System.nanoTime();
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return new SearchResult(terms, List.of(), 0, false, 0);
+        }
+
+        long[] matches;
+        List<IndexedFile> fileSnapshot;
+        synchronized (this) {
+            long[][] lists = new long[terms.size()][];
+            for (int i = 0; i < terms.size(); i++) {
+                Postings postings = index.get(terms.get(i));
+                if (postings == null) {
+                    return new SearchResult(terms, List.of(), 0, false, (System.nanoTime() - started) / 1_000_000);
+                }
+                lists[i] = postings.sortedCopy();
+            }
+            // 从最短的倒排表开始求交集
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+            matches = lists[0];
+            for (int i = 1; i < lists.length && matches.length > 0; i++) {
+                matches = intersect(matches, lists[i]);
+            }
+            fileSnapshot = new ArrayList<>(files);
+        }
+
+        // 倒排表按 (文件编号, 偏移量) 排序；从后往前每个文件最多回读 limit 行，即每个文件最新的匹配行
+        List<LogHit> hits = new ArrayList<>();
+        int total = 0;
+        int currentFile = -1;
+        int readInFile = 0;
+        for (int i = matches.length - 1; i >= 0; i--) {
+            int fileId = (int) (matches[i] >>> OFFSET_BITS);
+            IndexedFile file = fileSnapshot.get(fileId);
+            if (file.dead || (source != null && !source.isBlank() && !source.equals(file.source))) {
+                continue;
+            }
+            total++;
+            if (fileId != currentFile) {
+                currentFile = fileId;
+                readInFile = 0;
+            }
+            if (readInFile++ >= limit) {
+                continue;
+            }
+            long offset = matches[i] & OFFSET_MASK;
+            String line = readLine(file.path, offset);
+            if (line != null) {
+                Instant timestamp = parseTimestamp(line);
+                if (timestamp == null) {
+                    // 堆栈等续行没有时间戳，取前面最近一行的时间
+                    timestamp = timestampBefore(file.path, offset);
+                }
+                hits.add(new LogHit(file.source, file.path.getFileName().toString(), offset, timestamp, line));
+            }
+        }
+        // 跨节点按时间升序；没有时间戳的行（例如堆栈）排在最后。超过 limit 时保留最新的部分
+        hits.sort(Comparator.comparing(LogHit::getTimestamp, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(LogHit::getSource)
+            .thenComparingLong(LogHit::getOffset));
+        boolean truncated = total > limit;
+        List<LogHit> page = hits.size() > limit ? new ArrayList<>(hits.subList(hits.size() - Math.max(0, limit), hits.size())) : hits;
+        return new SearchResult(terms, page, total, truncated, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // 先按索引时的规则抽取；抽不出来时把每个词当作关键字（例如组织名或简单异常类名）
+    private List<String> queryTerms(String query) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        synchronized (this) {
+            extractTokens(query, terms);
+        }
+        if (terms.isEmpty()) {
+            for (String word : query.trim().split("\\s+")) {
+                terms.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                result[n++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static String readLine(Path file, long offset) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(MAX_LINE_BYTES);
+            channel.read(buffer, offset);
+            byte[] array = buffer.array();
+            int end = 0;
+            while (end < buffer.position() && array[end] != '\n') {
+                end++;
+            }
+            if (end > 0 && array[end - 1] == '\r') {
+                end--;
+            }
+            return new String(array, 0, end, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static Instant timestampBefore(Path file, long offset) {
+        long from = Math.max(0, offset - LOOKBACK_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (offset - from));
+            channel.read(buffer, from);
+            String window = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+            Instant last = null;
+            for (String line : window.split("\n")) {
+                Instant timestamp = parseTimestamp(line);
+                if (timestamp != null) {
+                    last = timestamp;
+                }
+            }
+            return last;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    static Instant parseTimestamp(String line) {
+        Matcher matcher = TIMESTAMP.matcher(line);
+        if (!matcher.find() || matcher.start() > 64) {
+            return null;
+        }
+        String fraction = matcher.group(2) != null ? "." + matcher.group(2) : "";
+        try {
+            return OffsetDateTime.parse(matcher.group(1) + fraction + matcher.group(3)).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("tokens", index.size());
+        status.put("postings", postingCount);
+        status.put("maxPostings", maxPostings);
+        status.put("linesIndexed", linesIndexed);
+        status.put("files", liveFiles);
+        status.put("approxMemoryBytes", index.values().stream().mapToLong(p -> p.values.length * 8L + 64).sum());
+        return status;
+    }
+
+    private static class IndexedFile {
+        private final String source;
+        private final Path path;
+        private boolean dead;
+
+        IndexedFile(String source, Path path) {
+            this.source = source;
+            this.path = path;
+        }
+    }
+
+    /**
+     * 按追加顺序保存的 long 数组；同一文件内偏移量递增，多个文件交错时查询前再排序
+     */
+    private static class Postings {
+        private long[] values = new long[4];
+        private int size;
+        private boolean sorted = true;
+
+        void add(long value) {
+            if (size > 0) {
+                long last = values[size - 1];
+                if (last == value) {
+                    return;
+                }
+                if (value < last) {
+                    sorted = false;
+                }
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            }
+            values[size++] = value;
+        }
+
+        long[] sortedCopy() {
+            if (!sorted) {
+                Arrays.sort(values, 0, size);
+                sorted = true;
+            }
+            return Arrays.copyOf(values, size);
+        }
+
+        void removeIf(LongPredicate predicate) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(values[i])) {
+                    values[n++] = values[i];
+                }
+            }
+            size = n;
+            if (values.length > 16 && size < values.length / 4) {
+                values = Arrays.copyOf(values, Math.max(4, size * 2));
+            }
+        }
+    }
+
+    /**
+     * 一条匹配的日志行
+     */
+    public static class LogHit {
+        private final String source;
+        private final String file;
+        private final long offset;
+        private final Instant timestamp;
+        private final String line;
+
+        public LogHit(String source, String file, long offset, Instant timestamp, String line) {
+            this.source = source;
+            this.file = file;
+            this.offset = offset;
+            this.timestamp = timestamp;
+            this.line = line;
+        }
+
+        public String getSource() { return source; }
+        public String getFile() { return file; }
+        public long getOffset() { return offset; }
+        public Instant getTimestamp() { return timestamp; }
+        public String getLine() { return line; }
+    }
+
+    /**
+     * 查询结果：total 为匹配行数，truncated 表示超过 limit 被截断
+     */
+    public static class SearchResult {
+        private final List<String> terms;
+        private final List<LogHit> hits;
+        private final int total;
+        private final boolean truncated;
+        private final long durationMs;
+
+        public SearchResult(List<String> terms, List<LogHit> hits, int total, boolean truncated, long durationMs) {
+            this.terms = terms;
+            this.hits = hits;
+            this.total = total;
+            this.truncated = truncated;
+            this.durationMs = durationMs;
+        }
+
+        public List<String> getTerms() { return terms; }
+        public List<LogHit> getHits() { return hits; }
+        public int getTotal() { return total; }
+        public boolean isTruncated() { return truncated; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.demo.service;
+
+import com.example.demo.util.NodeDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 通过 JDBC 为各节点创建数据库和角色，取代 setupCordaDb 任务每次部署都串行执行整份 psql 脚本。
+ * 每个节点先查询 pg_roles / pg_database，只创建缺失的部分；不同节点之间并行执行。
+ */
+@Service
+public class NodeDatabaseProvisioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeDatabaseProvisioner.class);
+
+    private static final Pattern DB_IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private TemplateDatabaseService templateDatabaseService;
+
+    // 与 setupCordaDb 任务使用相同的管理员账号
+    @Value("${corda.db.admin-url:jdbc:postgresql://localhost:5432/postgres}")
+    private String adminUrl;
+
+    @Value("${corda.db.admin-user:postgres}")
+    private String adminUser;
+
+    @Value("${corda.db.admin-password:890415}")
+    private String adminPassword;
+
+    @Value("${corda.db.max-parallel:8}")
+    private int maxParallel;
+
+    // true 时部署前由管理器建库，并通过 -PskipDbSetup=true 跳过 psql
+    @Value("${corda.db.provision-over-jdbc:true}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为 build.gradle 中所有配置了数据源的节点补齐数据库和角色
+     */
+    public Map<String, Object> provisionAll() {
+        List<NodeDefinition> nodes = new ArrayList<>();
+        for (NodeDefinition node : powerShellService.getProjectModel().getNodes()) {
+            if (node.getDbName() != null && node.getDbUser() != null) {
+                nodes.add(node);
+            }
+        }
+        return provision(nodes);
+    }
+
+    public Map<String, Object> provision(List<NodeDefinition> nodes) {
+        long begin = System.nanoTime();
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Object> template = null;
+        boolean cloneFromTemplate = false;
+        if (templateDatabaseService.isEnabled() && hasMissingDatabase(nodes)) {
+            // 只有需要新建数据库时才检查（必要时重建）模板库
+            template = templateDatabaseService.ensureTemplate();
+            cloneFromTemplate = Boolean.TRUE.equals(template.get("ready"));
+        }
+        boolean useTemplate = cloneFromTemplate;
+        if (!nodes.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallel, nodes.size())));
+            try {
+                List<Future<Map<String, Object>>> futures = new ArrayList<>();
+                for (NodeDefinition node : nodes) {
+                    futures.add(executor.submit(() -> provisionOne(node, useTemplate)));
+                }
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        results.add(futures.get(i).get());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        results.add(failed(nodes.get(i), "等待数据库创建时被中断", 0));
+                    } catch (Exception e) {
+                        results.add(failed(nodes.get(i), e.getMessage(), 0));
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        boolean success = results.stream().allMatch(r -> Boolean.TRUE.equals(r.get("success")));
+        long created = results.stream().filter(r -> Boolean.TRUE.equals(r.get("databaseCreated")) || Boolean.TRUE.equals(r.get("roleCreated"))).count();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("success", success);
+        report.put("totalMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        report.put("created", created);
+        report.put("unchanged", results.size() - created);
+        if (template != null) {
+            report.put("template", template);
+        }
+        report.put("nodes", results);
+        logger.info("节点数据库检查完成: {} 个节点，新建 {} 个，耗时 {} ms，全部成功: {}",
+            results.size(), created, report.get("totalMs"), success);
+        return report;
+    }
+
+    private Map<String, Object> provisionOne(NodeDefinition node, boolean useTemplate) {
+        long begin = System.nanoTime();
+        String db = node.getDbName();
+        String user = node.getDbUser();
+        if (!DB_IDENTIFIER.matcher(db).matches() || !DB_IDENTIFIER.matcher(user).matches()) {
+            return failed(node, "数据库名或用户名不合法: " + db + " / " + user, begin);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("node", node.getLegalName());
+        result.put("database", db);
+        result.put("user", user);
+        try (Connection admin = DriverManager.getConnection(adminUrl, adminUser, adminPassword)) {
+            boolean roleCreated = false;
+            if (!exists(admin, "SELECT 1 FROM pg_roles WHERE rolname = ?", user)) {
+                execute(admin, "CREATE ROLE \"" + user + "\" WITH LOGIN PASSWORD '" + node.getDbPassword().replace("'", "''") + "'");
+                roleCreated = true;
+            }
+            boolean databaseCreated = false;
+            boolean cloned = false;
+            if (!exists(admin, "SELECT 1 FROM pg_database WHERE datname = ?", db)) {
+                // CREATE DATABASE 不能在事务中执行，连接保持 autocommit
+                if (useTemplate) {
+                    execute(admin, "CREATE DATABASE \"" + db + "\" TEMPLATE \"" + templateDatabaseService.getTemplateName() + "\"");
+                    cloned = true;
+                } else {
+                    execute(admin, "CREATE DATABASE \"" + db + "\"");
+                }
+                databaseCreated = true;
+            }
+            execute(admin, "GRANT ALL PRIVILEGES ON DATABASE \"" + db + "\" TO \"" + user + "\"");
+
+            boolean schemaOwnerChanged = false;
+            try (Connection nodeDb = DriverManager.getConnection(databaseUrl(db), adminUser, adminPassword)) {
+                if (cloned) {
+                    // 复制出的 schema、表和序列属于模板角色，逐个转给节点用户；
+                    // 不用 REASSIGN OWNED，它会连同模板库等共享对象一起转走
+                    changeOwner(nodeDb, templateDatabaseService.getTemplateOwner(), user);
+                }
+                if (!exists(nodeDb, "SELECT 1 FROM information_schema.schemata WHERE schema_name = 'public' AND schema_owner = ?", user)) {
+                    execute(nodeDb, "GRANT CREATE ON SCHEMA public TO \"" + user + "\"");
+                    execute(nodeDb, "ALTER SCHEMA public OWNER TO \"" + user + "\"");
+                    schemaOwnerChanged = true;
+                }
+            }
+            result.put("success", true);
+            result.put("roleCreated", roleCreated);
+            result.put("databaseCreated", databaseCreated);
+            result.put("clonedFromTemplate", cloned);
+            result.put("schemaOwnerChanged", schemaOwnerChanged);
+        } catch (SQLException e) {
+            logger.error("为节点 {} 创建数据库失败: {}", node.getLegalName(), e.getMessage());
+            result.put("success", false);
+            result.put("message", e.getMessage());
+        }
+        result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return result;
+    }
+
+    // 当前库中属于 from 的 schema 和关系（表、视图、物化视图、外部表、独立序列），在一个事务中改为 to
+    private static void changeOwner(Connection connection, String from, String to) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT quote_ident(n.nspname) FROM pg_namespace n JOIN pg_roles r ON r.oid = n.nspowner"
+                    + " WHERE r.rolname = ?")) {
+            ps.setString(1, from);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    statements.add("ALTER SCHEMA " + rs.getString(1) + " OWNER TO \"" + to + "\"");
+                }
+            }
+        }
+        // 属于表的序列（serial/identity）随表一起变更，不能单独 ALTER
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT c.relkind, quote_ident(n.nspname) || '.' || quote_ident(c.relname)"
+                    + " FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace JOIN pg_roles r ON r.oid = c.relowner"
+                    + " WHERE r.rolname = ? AND c.relkind IN ('r', 'p', 'v', 'm', 'f', 'S')"
+                    + " AND n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg_toast%'"
+                    + " AND NOT (c.relkind = 'S' AND EXISTS (SELECT 1 FROM pg_depend d WHERE d.classid = 'pg_class'::regclass"
+                    + " AND d.objid = c.oid AND d.deptype IN ('a', 'i')))")) {
+            ps.setString(1, from);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    statements.add("ALTER " + relationKeyword(rs.getString(1)) + " " + rs.getString(2) + " OWNER TO \"" + to + "\"");
+                }
+            }
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static String relationKeyword(String relkind) {
+        switch (relkind) {
+            case "v": return "VIEW";
+            case "m": return "MATERIALIZED VIEW";
+            case "f": return "FOREIGN TABLE";
+            case "S": return "SEQUENCE";
+            default: return "TABLE";
+        }
+    }
+
+    private boolean hasMissingDatabase(List<NodeDefinition> nodes) {
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        try (Connection admin = DriverManager.getConnection(adminUrl, adminUser, adminPassword)) {
+            for (NodeDefinition node : nodes) {
+                if (!exists(admin, "SELECT 1 FROM pg_database WHERE datname = ?", node.getDbName())) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            // 连接失败时交给各节点的建库步骤报告具体错误
+            return false;
+        }
+    }
+
+    // 把管理员连接串中的数据库名替换为节点数据库
+    String databaseUrl(String database) {
+        int query = adminUrl.indexOf('?');
+        String base = query >= 0 ? adminUrl.substring(0, query) : adminUrl;
+        String params = query >= 0 ? adminUrl.substring(query) : "";
+        return base.substring(0, base.lastIndexOf('/') + 1) + database + params;
+    }
+
+    private static boolean exists(Connection connection, String sql, String value) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, value);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static Map<String, Object> failed(NodeDefinition node, String message, long begin) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("node", node.getLegalName());
+        result.put("database", node.getDbName());
+        result.put("user", node.getDbUser());
+        result.put("success", false);
+        result.put("message", message);
+        result.put("durationMs", begin > 0 ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin) : 0);
+        return result;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 执行 deployNodes：全量部署（先补齐节点数据库，再运行 gradlew deployNodes）或增量部署。
+ * 调用方负责持有项目锁
+ */
+@Service
+public class NodeDeployService {
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private IncrementalDeployService incrementalDeployService;
+
+    @Autowired
+    private NodeDatabaseProvisioner nodeDatabaseProvisioner;
+
+    @Autowired
+    private SharedArtifactStore sharedArtifactStore;
+
+    public Map<String, Object> deploy(boolean incremental) {
+        Map<String, Object> response = new HashMap<>();
+        if (incremental) {
+            // 只重新生成输入发生变化的节点目录
+            response.putAll(incrementalDeployService.deploy());
+            response.put("message", Boolean.TRUE.equals(response.get("success")) ? "增量部署执行成功" : "增量部署执行失败");
+            return response;
+        }
+
+        boolean skipDbSetup = false;
+        if (nodeDatabaseProvisioner.isEnabled()) {
+            // 先通过 JDBC 并行补齐缺失的节点数据库
+            Map<String, Object> database = nodeDatabaseProvisioner.provisionAll();
+            response.put("database", database);
+            if (!Boolean.TRUE.equals(database.get("success"))) {
+                response.put("success", false);
+                response.put("message", "创建节点数据库失败");
+                return response;
+            }
+            skipDbSetup = true;
+        }
+
+        PowerShellService.ProcessResult result = powerShellService.executeGradleDeploy(skipDbSetup);
+        if (result.isSuccess() && result.getExitCode() == 0) {
+            response.put("success", true);
+            response.put("message", "gradlew deployNodes 执行成功");
+            response.put("output", result.getOutput());
+            if (sharedArtifactStore.isEnabled()) {
+                // 各节点的 corda.jar、cordapps、drivers 换成共享存储中的链接
+                File nodesDir = new File(powerShellService.getProjectRootDirectory(), "build/nodes");
+                try {
+                    response.put("sharedArtifacts", sharedArtifactStore.deduplicate(nodesDir));
+                } catch (IOException e) {
+                    response.put("success", false);
+                    response.put("message", "gradlew deployNodes 执行成功，但链接共享构件失败: " + e.getMessage());
+                }
+            }
+        } else {
+            response.put("success", false);
+            response.put("message", "gradlew deployNodes 执行失败");
+            response.put("exitCode", result.getExitCode());
+            response.put("output", result.getOutput());
+            response.put("error", result.getError());
+        }
+        return response;
+    }
+}
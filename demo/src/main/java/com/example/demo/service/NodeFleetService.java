@@ -0,0 +1,276 @@
+package com.example.demo.service;
+
+import com.example.demo.util.NodeConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点集群操作：并行停止全部节点、分批滚动重启。
+ * 所有启停都经过 PowerShellService 的节点进程层（即 NodeProcessSupervisor）。
+ */
+@Service
+public class NodeFleetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeFleetService.class);
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private NodeStartupOrchestrator nodeStartupOrchestrator;
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Value("${corda.fleet.max-parallel:16}")
+    private int maxParallel;
+
+    /**
+     * 并行停止全部正在运行的节点及其 webserver；节点已退出但 webserver 仍在运行的也一并停止
+     */
+    public Map<String, Object> stopAll() {
+        long begin = System.nanoTime();
+        List<String> running = getRunningNodeNames();
+        logger.info("开始并行停止 {} 个节点: {}", running.size(), running);
+
+        List<Map<String, Object>> results = stopInParallel(running);
+        results.addAll(stopOrphanWebservers(running));
+        boolean success = results.stream().allMatch(r -> Boolean.TRUE.equals(r.get("success")));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("success", success);
+        report.put("totalMs", elapsedMs(begin));
+        report.put("nodes", results);
+        logger.info("停止全部节点完成，耗时 {} ms，全部成功: {}", report.get("totalMs"), success);
+        return report;
+    }
+
+    /**
+     * 滚动重启：任何时刻至少保持 minAvailable 个节点在线，每批节点就绪后才处理下一批。
+     * nodeNames 为空时重启全部正在运行的节点，Notary 放在最后一批单独重启。
+     */
+    public Map<String, Object> rollingRestart(List<String> nodeNames, Integer minAvailable) {
+        long begin = System.nanoTime();
+        List<String> running = getRunningNodeNames();
+        List<String> targets = nodeNames == null || nodeNames.isEmpty() ? new ArrayList<>(running) : new ArrayList<>(nodeNames);
+
+        List<String> notaries = new ArrayList<>();
+        for (String name : targets) {
+            if (isNotary(name)) {
+                notaries.add(name);
+            }
+        }
+        targets.removeAll(notaries);
+
+        int runningTargets = 0;
+        for (String name : targets) {
+            if (running.contains(name)) {
+                runningTargets++;
+            }
+        }
+        int keepUp = minAvailable != null ? minAvailable : Math.max(0, running.size() - 1);
+        int batchSize = planBatchSize(running.size(), runningTargets, targets.size(), keepUp);
+        logger.info("开始滚动重启 {} 个节点，保持至少 {} 个在线，每批 {} 个", targets.size() + notaries.size(), keepUp, batchSize);
+
+        List<List<String>> batches = planBatches(targets, notaries, batchSize);
+
+        List<Map<String, Object>> batchReports = new ArrayList<>();
+        boolean success = true;
+        for (int i = 0; i < batches.size(); i++) {
+            List<String> batch = batches.get(i);
+            Map<String, Object> batchReport = restartBatch(i + 1, batch);
+            batchReports.add(batchReport);
+            if (!Boolean.TRUE.equals(batchReport.get("success"))) {
+                logger.warn("第 {} 批节点 {} 未能就绪，停止后续滚动重启", i + 1, batch);
+                success = false;
+                break;
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("success", success);
+        report.put("minAvailable", keepUp);
+        report.put("batchSize", batchSize);
+        report.put("totalMs", elapsedMs(begin));
+        report.put("batches", batchReports);
+        return report;
+    }
+
+    /**
+     * 每批重启的节点数：不在目标中的运行节点始终在线，所以每批最多停掉 running - minAvailable 个，
+     * 且不超过目标中正在运行的节点数。minAvailable 不小于运行中的节点数时无法滚动，直接拒绝
+     */
+    static int planBatchSize(int runningCount, int runningTargetCount, int targetCount, int minAvailable) {
+        if (minAvailable < 0) {
+            throw new IllegalArgumentException("minAvailable 不能为负数");
+        }
+        if (runningCount == 0) {
+            // 没有在线节点需要保护，目标一次性启动
+            return Math.max(1, targetCount);
+        }
+        if (minAvailable >= runningCount) {
+            throw new IllegalArgumentException("minAvailable=" + minAvailable + " 不小于正在运行的节点数 " + runningCount + "，无法滚动重启");
+        }
+        return Math.max(1, Math.min(runningCount - minAvailable, runningTargetCount));
+    }
+
+    /**
+     * 普通节点按 batchSize 分批，Notary 逐个放在最后，避免所有交易同时失去公证服务
+     */
+    static List<List<String>> planBatches(List<String> targets, List<String> notaries, int batchSize) {
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i += batchSize) {
+            batches.add(new ArrayList<>(targets.subList(i, Math.min(i + batchSize, targets.size()))));
+        }
+        for (String notary : notaries) {
+            batches.add(List.of(notary));
+        }
+        return batches;
+    }
+
+    private Map<String, Object> restartBatch(int index, List<String> batch) {
+        long begin = System.nanoTime();
+        List<Map<String, Object>> stopResults = stopInParallel(batch);
+
+        List<NodeStartupOrchestrator.NodeReadiness> readiness = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallel, batch.size())));
+        try {
+            List<Future<NodeStartupOrchestrator.NodeReadiness>> futures = new ArrayList<>();
+            for (String name : batch) {
+                futures.add(executor.submit(() -> nodeStartupOrchestrator.startNode(name)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    readiness.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    readiness.add(NodeStartupOrchestrator.NodeReadiness.failed(batch.get(i), "等待节点就绪时被中断"));
+                } catch (Exception e) {
+                    readiness.add(NodeStartupOrchestrator.NodeReadiness.failed(batch.get(i), "重启节点时发生错误: " + e.getMessage()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("batch", index);
+        report.put("nodes", batch);
+        report.put("success", readiness.stream().allMatch(NodeStartupOrchestrator.NodeReadiness::isReady));
+        report.put("totalMs", elapsedMs(begin));
+        report.put("stop", stopResults);
+        report.put("readiness", readiness);
+        return report;
+    }
+
+    private List<Map<String, Object>> stopInParallel(List<String> names) {
+        List<Map<String, Object>> results = new ArrayList<>();
+        if (names.isEmpty()) {
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallel, names.size())));
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (String name : names) {
+                futures.add(executor.submit(() -> stopOne(name)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(Map.of("node", names.get(i), "success", false, "message", "等待节点停止时被中断"));
+                } catch (Exception e) {
+                    results.add(Map.of("node", names.get(i), "success", false, "message", "停止节点时发生错误: " + e.getMessage()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    // 节点崩溃后 NodeProcessSupervisor 中仍登记着它的 webserver，getRunningNodeNames 看不到这些进程
+    private List<Map<String, Object>> stopOrphanWebservers(List<String> stoppedNodes) {
+        String prefix = PowerShellService.webserverProcessName("");
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (String processName : nodeProcessSupervisor.getRegisteredNames()) {
+            if (!processName.startsWith(prefix)) {
+                continue;
+            }
+            String nodeName = processName.substring(prefix.length());
+            if (stoppedNodes.contains(nodeName) || !nodeProcessSupervisor.isRunning(processName)) {
+                continue;
+            }
+            long begin = System.nanoTime();
+            PowerShellService.ProcessResult result = powerShellService.stopWebserver(nodeName);
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("node", nodeName);
+            item.put("webserverOnly", true);
+            item.put("success", result.isSuccess());
+            item.put("message", result.isSuccess() ? result.getOutput() : result.getError());
+            item.put("durationMs", elapsedMs(begin));
+            results.add(item);
+        }
+        if (!results.isEmpty()) {
+            logger.info("已停止 {} 个节点已退出但仍在运行的 webserver", results.size());
+        }
+        return results;
+    }
+
+    private Map<String, Object> stopOne(String name) {
+        long begin = System.nanoTime();
+        // 先停 webserver，避免它在节点关闭期间不断重连 RPC
+        powerShellService.stopWebserver(name);
+        PowerShellService.ProcessResult result = powerShellService.stopNode(name);
+
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("node", name);
+        item.put("success", result.isSuccess());
+        item.put("message", result.isSuccess() ? result.getOutput() : result.getError());
+        item.put("durationMs", elapsedMs(begin));
+        return item;
+    }
+
+    private List<String> getRunningNodeNames() {
+        List<String> running = new ArrayList<>();
+        for (File dir : powerShellService.getNodeDirectories()) {
+            Map<String, Object> status = powerShellService.getNodeStatus(dir.getName());
+            if (Boolean.TRUE.equals(status.get("running"))) {
+                running.add(dir.getName());
+            }
+        }
+        return running;
+    }
+
+    private boolean isNotary(String nodeName) {
+        for (File dir : powerShellService.getNodeDirectories()) {
+            if (dir.getName().equals(nodeName)) {
+                try {
+                    return NodeConf.read(new File(dir, "node.conf")).isNotary();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private long elapsedMs(long begin) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.demo.service;
+
+import com.example.demo.util.GradleNodeBlocks;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 节点操作锁：
+ * <ul>
+ *   <li>项目锁（公平读写锁）：修改 build.gradle、build/nodes、数据库的操作（添加/删除节点、部署等）持有写锁，
+ *       节点启停和状态查询持有读锁，因此部署期间不会启停节点，不同节点的启停可以并行；</li>
+ *   <li>节点锁（按节点名分段的公平读写锁）：启动/停止持有写锁，状态查询持有读锁。</li>
+ * </ul>
+ * 获取锁有超时，超时抛出 LockTimeoutException 并带上当前持有者；持有者和等待者可以通过 getStatus() 查看。
+ * 使用 try-with-resources 释放：{@code try (NodeLockManager.Lease lease = nodeLockManager.lockNode(name, "start", true)) { ... }}
+ */
+@Service
+public class NodeLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeLockManager.class);
+
+    private static final String PROJECT = "project";
+
+    @Value("${corda.locks.project-timeout-seconds:30}")
+    private long projectTimeoutSeconds;
+
+    @Value("${corda.locks.node-timeout-seconds:10}")
+    private long nodeTimeoutSeconds;
+
+    // 段数（向上取 2 的幂），不同节点落在同一段时会互相等待
+    @Value("${corda.locks.stripes:64}")
+    private int stripeCount;
+
+    private final ReentrantReadWriteLock projectLock = new ReentrantReadWriteLock(true);
+    private ReentrantReadWriteLock[] stripes;
+    private final Map<Long, LeaseInfo> holders = new ConcurrentHashMap<>();
+    private final Map<Long, LeaseInfo> waiters = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        stripes = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantReadWriteLock(true);
+        }
+    }
+
+    /**
+     * 修改项目文件的操作：独占项目锁，等待正在进行的节点操作结束
+     */
+    public Lease lockProject(String operation) {
+        List<Acquired> acquired = new ArrayList<>();
+        acquire(acquired, projectLock.writeLock(), PROJECT, "WRITE", operation, projectTimeoutSeconds);
+        return new Lease(acquired);
+    }
+
+    /**
+     * 单个节点的启动/停止（exclusive=true）或状态查询（exclusive=false）
+     */
+    public Lease lockNode(String nodeName, String operation, boolean exclusive) {
+        return lockNodes(List.of(nodeName), operation, exclusive);
+    }
+
+    /**
+     * 多个节点的操作（例如全部启动、滚动重启）；按段号顺序加锁避免死锁
+     */
+    public Lease lockNodes(Collection<String> nodeNames, String operation, boolean exclusive) {
+        List<Acquired> acquired = new ArrayList<>();
+        try {
+            acquire(acquired, projectLock.readLock(), PROJECT, "READ", operation, projectTimeoutSeconds);
+            TreeSet<String> keys = new TreeSet<>();
+            for (String name : nodeNames) {
+                keys.add(lockKey(name));
+            }
+            TreeSet<Integer> indexes = new TreeSet<>();
+            for (String key : keys) {
+                indexes.add(stripeIndex(key));
+            }
+            String scope = "node:" + String.join(",", keys);
+            for (int index : indexes) {
+                ReentrantReadWriteLock stripe = stripes[index];
+                acquire(acquired, exclusive ? stripe.writeLock() : stripe.readLock(), scope,
+                    exclusive ? "WRITE" : "READ", operation, nodeTimeoutSeconds);
+            }
+            return new Lease(acquired);
+        } catch (RuntimeException e) {
+            new Lease(acquired).close();
+            throw e;
+        }
+    }
+
+    private void acquire(List<Acquired> acquired, Lock lock, String scope, String mode, String operation, long timeoutSeconds) {
+        long id = ids.incrementAndGet();
+        LeaseInfo info = new LeaseInfo(id, scope, mode, operation, Thread.currentThread().getName(), Instant.now());
+        waiters.put(id, info);
+        boolean locked;
+        try {
+            locked = lock.tryLock(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        } finally {
+            waiters.remove(id);
+        }
+        if (!locked) {
+            String holder = describeHolders(scope.equals(PROJECT) ? PROJECT : null);
+            logger.warn("{} 等待 {} 锁超时（{} 秒），当前持有者: {}", operation, scope, timeoutSeconds, holder);
+            throw new LockTimeoutException("操作 " + operation + " 等待 " + scope + " 锁超时（" + timeoutSeconds
+                + " 秒），当前持有者: " + holder);
+        }
+        LeaseInfo held = new LeaseInfo(id, scope, mode, operation, info.thread, Instant.now());
+        holders.put(id, held);
+        acquired.add(new Acquired(id, lock));
+    }
+
+    // 锁键统一为节点目录名："O=PartyA,L=London,C=GB" 与 "PartyA" 落在同一段
+    static String lockKey(String nodeName) {
+        return GradleNodeBlocks.directoryName(nodeName.trim());
+    }
+
+    int stripeIndex(String nodeName) {
+        int h = nodeName.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    private String describeHolders(String scope) {
+        StringBuilder sb = new StringBuilder();
+        for (LeaseInfo info : holders.values()) {
+            if (scope == null || info.scope.equals(scope)) {
+                if (sb.length() > 0) {
+                    sb.append("; ");
+                }
+                sb.append(info.operation).append(" [").append(info.scope).append(' ').append(info.mode)
+                    .append(", 线程 ").append(info.thread).append(", 已持有 ")
+                    .append(Duration.between(info.acquiredAt, Instant.now()).toSeconds()).append(" 秒]");
+            }
+        }
+        return sb.length() > 0 ? sb.toString() : "无";
+    }
+
+    /**
+     * 当前持有者和等待者
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("projectWriteLocked", projectLock.isWriteLocked());
+        status.put("projectReadHolds", projectLock.getReadLockCount());
+        status.put("projectQueueLength", projectLock.getQueueLength());
+        status.put("stripes", stripes.length);
+        status.put("holders", describe(holders));
+        status.put("waiters", describe(waiters));
+        return status;
+    }
+
+    private static List<Map<String, Object>> describe(Map<Long, LeaseInfo> leases) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        Instant now = Instant.now();
+        leases.values().stream().sorted(Comparator.comparingLong(info -> info.id)).forEach(info -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("scope", info.scope);
+            item.put("mode", info.mode);
+            item.put("operation", info.operation);
+            item.put("thread", info.thread);
+            item.put("since", info.acquiredAt.toString());
+            item.put("elapsedMs", Duration.between(info.acquiredAt, now).toMillis());
+            result.add(item);
+        });
+        return result;
+    }
+
+    private static class LeaseInfo {
+        private final long id;
+        private final String scope;
+        private final String mode;
+        private final String operation;
+        private final String thread;
+        private final Instant acquiredAt;
+
+        LeaseInfo(long id, String scope, String mode, String operation, String thread, Instant acquiredAt) {
+            this.id = id;
+            this.scope = scope;
+            this.mode = mode;
+            this.operation = operation;
+            this.thread = thread;
+            this.acquiredAt = acquiredAt;
+        }
+    }
+
+    private static class Acquired {
+        private final long id;
+        private final Lock lock;
+
+        Acquired(long id, Lock lock) {
+            this.id = id;
+            this.lock = lock;
+        }
+    }
+
+    /**
+     * 已获得的一组锁，close() 按获取的逆序释放；必须在获取锁的线程中关闭
+     */
+    public class Lease implements AutoCloseable {
+        private final List<Acquired> acquired;
+
+        private Lease(List<Acquired> acquired) {
+            this.acquired = acquired;
+        }
+
+        @Override
+        public void close() {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                Acquired a = acquired.get(i);
+                holders.remove(a.id);
+                a.lock.unlock();
+            }
+            acquired.clear();
+        }
+    }
+
+    /**
+     * 等待锁超时
+     */
+    public static class LockTimeoutException extends RuntimeException {
+        public LockTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
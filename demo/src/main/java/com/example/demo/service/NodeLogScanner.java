@@ -0,0 +1,497 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 增量扫描节点日志（build/nodes/<节点>/logs/*.log）和 webserver 日志（logs/<节点>.log）：
+ * 每个文件记录已读偏移量，下次只用 FileChannel 读取新增字节，文件被轮转或截断时从头开始。
+ * 逐行按级别和流程失败分类，累计每个节点的计数并保留最近的错误行，偏移量和计数保存在状态文件中。
+ */
+@Service
+public class NodeLogScanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeLogScanner.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_STORED_LINE = 2000;
+    // PowerShellService 把节点进程的标准输出重定向到这里，Corda 的 ERROR 行会同时出现在 node-<主机名>.log 中
+    private static final String NODE_STDOUT_LOG = "node-stdout.log";
+
+    // Corda: "[ERROR] 2025-01-01T00:00:00,000Z [main] ..."；Spring Boot: "2025-01-01T00:00:00.000+08:00 ERROR 1234 --- ..."
+    private static final Pattern LEVEL = Pattern.compile("^(?:\\[(ERROR|WARN|FATAL)\\s*]|.{0,48}?\\s(ERROR|WARN|FATAL)\\s)");
+    private static final Pattern FLOW_FAILURE = Pattern.compile(
+        "FlowException|UnexpectedFlowEndException|admitted to (?:the )?hospital"
+            + "|[Ff]low \\[[0-9a-f-]{36}][^\\n]{0,200}?(?:error|failed|terminated|hospitali[sz]ed)");
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Value("${corda.logscan.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.logscan.interval-seconds:10}")
+    private long intervalSeconds;
+
+    // 每个节点保留的最近错误行数
+    @Value("${corda.logscan.recent-errors:200}")
+    private int recentErrors;
+
+    // 偏移量和计数的状态文件，相对路径基于 Corda 项目根目录
+    @Value("${corda.logscan.state-file:build/log-scanner.properties}")
+    private String stateFile;
+
+    private final Map<String, FileCursor> cursors = new ConcurrentHashMap<>();
+    private final List<LineListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, SourceStats> stats = new ConcurrentHashMap<>();
+    // 扫描线程独占，复用 Matcher 避免每行创建对象
+    private final Matcher levelMatcher = LEVEL.matcher("");
+    private final Matcher flowFailureMatcher = FLOW_FAILURE.matcher("");
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "node-log-scanner");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean stateLoaded;
+
+    /**
+     * 逐行接收新增日志；offset 是行首在文件中的字节偏移量。回调在扫描线程中执行
+     */
+    public interface LineListener {
+        void onLine(String source, Path file, long offset, String line);
+
+        // 文件被轮转或截断，之前回调过的偏移量已失效
+        default void onFileReset(Path file) {
+        }
+    }
+
+    @FunctionalInterface
+    private interface LineConsumer {
+        void accept(long offset, String line);
+    }
+
+    public void addLineListener(LineListener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            logger.info("节点日志扫描未启用");
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(this::scanQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void scanQuietly() {
+        try {
+            scan();
+        } catch (RuntimeException e) {
+            logger.warn("扫描节点日志失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 扫描所有日志文件的新增内容，返回本次扫描的统计
+     */
+    public synchronized ScanResult scan() {
+        long started = System.nanoTime();
+        if (!stateLoaded) {
+            loadState();
+            stateLoaded = true;
+        }
+        long bytes = 0;
+        int files = 0;
+        int rotated = 0;
+        for (Map.Entry<String, List<Path>> entry : discoverFiles().entrySet()) {
+            SourceStats sourceStats = stats.computeIfAbsent(entry.getKey(), k -> new SourceStats());
+            for (Path file : entry.getValue()) {
+                FileCursor cursor = cursors.computeIfAbsent(file.toString(), k -> new FileCursor());
+                try {
+                    if (checkRotation(file, cursor)) {
+                        rotated++;
+                        sourceStats.rotations++;
+                    }
+                    long read = readNewLines(entry.getKey(), file, cursor, sourceStats);
+                    bytes += read;
+                    files++;
+                } catch (IOException e) {
+                    logger.debug("读取日志 {} 失败: {}", file, e.getMessage());
+                }
+            }
+        }
+        if (bytes > 0 || rotated > 0) {
+            saveState();
+        }
+        return new ScanResult(files, bytes, rotated, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // 节点名 -> 日志文件；webserver 日志归到 webserver-<节点>
+    private Map<String, List<Path>> discoverFiles() {
+        Map<String, List<Path>> files = new LinkedHashMap<>();
+        Path projectRoot = powerShellService.getProjectModel().getProjectRoot();
+        for (File nodeDir : powerShellService.getNodeDirectories()) {
+            String name = nodeDir.getName();
+            // 只取 logs 下一层的 .log 文件，archive 中是已轮转压缩的旧文件
+            try (Stream<Path> stream = Files.list(nodeDir.toPath().resolve("logs"))) {
+                List<Path> logs = stream.filter(p -> p.getFileName().toString().endsWith(".log") && Files.isRegularFile(p))
+                    .sorted().toList();
+                if (!logs.isEmpty()) {
+                    files.put(name, logs);
+                }
+            } catch (IOException e) {
+                // 节点还没有启动过，没有 logs 目录
+            }
+            Path webserverLog = projectRoot.resolve("logs").resolve(name + ".log");
+            if (Files.isRegularFile(webserverLog)) {
+                files.put(PowerShellService.webserverProcessName(name), List.of(webserverLog));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 文件标识（inode）或创建时间变化说明原文件已被改名轮转，大小小于偏移量说明被截断，两种情况都从头读取
+     */
+    private boolean checkRotation(Path file, FileCursor cursor) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        String fileKey = attributes.fileKey() != null ? attributes.fileKey().toString() : null;
+        long created = attributes.creationTime().toMillis();
+        boolean replaced = cursor.fileKey != null && fileKey != null ? !cursor.fileKey.equals(fileKey)
+            : cursor.created != 0 && cursor.created != created;
+        boolean truncated = attributes.size() < cursor.offset;
+        cursor.fileKey = fileKey;
+        cursor.created = created;
+        if (replaced || truncated) {
+            logger.info("日志文件 {} 已{}，从头开始扫描", file, replaced ? "轮转" : "截断");
+            cursor.offset = 0;
+            for (LineListener listener : listeners) {
+                listener.onFileReset(file);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 从 cursor.offset 读到文件末尾并分类计数
+     */
+    private long readNewLines(String source, Path file, FileCursor cursor, SourceStats sourceStats) throws IOException {
+        if (!cursor.replayed) {
+            // 本进程第一次读取该文件：状态文件中已扫描过的部分只回放给监听器（例如日志索引），不重复计数
+            cursor.replayed = true;
+            if (cursor.offset > 0 && !listeners.isEmpty() && countsErrors(file)) {
+                readLines(file, 0, cursor.offset, (offset, line) -> notifyListeners(source, file, offset, line));
+            }
+        }
+        long consumedStart = cursor.offset;
+        cursor.offset = readLines(file, cursor.offset, Long.MAX_VALUE,
+            (offset, line) -> handleLine(source, file, offset, line, sourceStats));
+        long read = cursor.offset - consumedStart;
+        sourceStats.bytes += read;
+        return read;
+    }
+
+    /**
+     * 用 FileChannel 从 from 读到 end（或文件末尾），返回最后一个完整行之后的偏移量；
+     * 末尾未写完的半行留到下次，超过缓冲区大小的单行按缓冲区截断处理。
+     */
+    private static long readLines(Path file, long from, long end, LineConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() <= from) {
+                return from;
+            }
+            channel.position(from);
+            ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+            byte[] array = buffer.array();
+            long lineOffset = from;
+            long remaining = end - from;
+            while (remaining > 0) {
+                buffer.limit((int) Math.min(array.length, buffer.position() + remaining));
+                int n = channel.read(buffer);
+                if (n <= 0) {
+                    break;
+                }
+                remaining -= n;
+                int limit = buffer.position();
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (array[i] == '\n') {
+                        int lineEnd = i > start && array[i - 1] == '\r' ? i - 1 : i;
+                        consumer.accept(lineOffset + start, new String(array, start, lineEnd - start, StandardCharsets.UTF_8));
+                        start = i + 1;
+                    }
+                }
+                if (start == 0 && limit == array.length) {
+                    consumer.accept(lineOffset, new String(array, 0, limit, StandardCharsets.UTF_8));
+                    start = limit;
+                }
+                lineOffset += start;
+                System.arraycopy(array, start, array, 0, limit - start);
+                buffer.position(limit - start);
+            }
+            return lineOffset;
+        }
+    }
+
+    private void notifyListeners(String source, Path file, long offset, String line) {
+        for (LineListener listener : listeners) {
+            try {
+                listener.onLine(source, file, offset, line);
+            } catch (RuntimeException e) {
+                logger.debug("日志行监听器处理失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handleLine(String source, Path file, long offset, String line, SourceStats sourceStats) {
+        if (!countsErrors(file)) {
+            // 既不计数也不交给日志索引，避免同一条错误被计两次、在搜索结果中出现两次
+            return;
+        }
+        notifyListeners(source, file, offset, line);
+        sourceStats.lines++;
+        // 先用 indexOf 过滤掉绝大多数普通行，只有可能命中的行才执行正则
+        String level = null;
+        if ((line.contains("ERROR") || line.contains("WARN") || line.contains("FATAL")) && levelMatcher.reset(line).find()) {
+            level = levelMatcher.group(1) != null ? levelMatcher.group(1) : levelMatcher.group(2);
+        }
+        boolean flowFailure = line.contains("FlowException") || line.contains("hospital")
+            || ((line.contains("error") || line.contains("failed") || line.contains("terminated"))
+                && flowFailureMatcher.reset(line).find());
+        if ("ERROR".equals(level) || "FATAL".equals(level)) {
+            sourceStats.errors++;
+        } else if ("WARN".equals(level)) {
+            sourceStats.warnings++;
+        }
+        if (flowFailure) {
+            sourceStats.flowFailures++;
+        }
+        if (flowFailure || "ERROR".equals(level) || "FATAL".equals(level)) {
+            sourceStats.addRecent(new LogEntry(file.getFileName().toString(), offset, flowFailure ? "FLOW_FAILURE" : level,
+                line.length() > MAX_STORED_LINE ? line.substring(0, MAX_STORED_LINE) : line), recentErrors);
+        }
+    }
+
+    /**
+     * node-stdout.log 是节点日志的重复副本，不参与级别和流程失败计数，也不推送给日志索引
+     */
+    static boolean countsErrors(Path file) {
+        return !NODE_STDOUT_LOG.equals(file.getFileName().toString());
+    }
+
+    private Path statePath() {
+        Path path = Path.of(stateFile);
+        return path.isAbsolute() ? path : powerShellService.getProjectModel().getProjectRoot().resolve(path);
+    }
+
+    private void loadState() {
+        Path path = statePath();
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            logger.warn("读取日志扫描状态 {} 失败，从头扫描: {}", path, e.getMessage());
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key);
+            if (key.startsWith("file.") && key.endsWith(".offset")) {
+                String file = key.substring(5, key.length() - 7);
+                FileCursor cursor = new FileCursor();
+                cursor.offset = Long.parseLong(value);
+                cursor.fileKey = properties.getProperty("file." + file + ".key");
+                cursor.created = Long.parseLong(properties.getProperty("file." + file + ".created", "0"));
+                cursors.put(file, cursor);
+            } else if (key.startsWith("source.") && key.endsWith(".errors")) {
+                String source = key.substring(7, key.length() - 7);
+                SourceStats sourceStats = stats.computeIfAbsent(source, k -> new SourceStats());
+                sourceStats.errors = Long.parseLong(value);
+                sourceStats.warnings = Long.parseLong(properties.getProperty("source." + source + ".warnings", "0"));
+                sourceStats.flowFailures = Long.parseLong(properties.getProperty("source." + source + ".flowFailures", "0"));
+            }
+        }
+        logger.info("已加载日志扫描状态：{} 个文件，{} 个节点", cursors.size(), stats.size());
+    }
+
+    private void saveState() {
+        Properties properties = new Properties();
+        cursors.forEach((file, cursor) -> {
+            properties.setProperty("file." + file + ".offset", Long.toString(cursor.offset));
+            if (cursor.fileKey != null) {
+                properties.setProperty("file." + file + ".key", cursor.fileKey);
+            }
+            properties.setProperty("file." + file + ".created", Long.toString(cursor.created));
+        });
+        stats.forEach((source, sourceStats) -> {
+            properties.setProperty("source." + source + ".errors", Long.toString(sourceStats.errors));
+            properties.setProperty("source." + source + ".warnings", Long.toString(sourceStats.warnings));
+            properties.setProperty("source." + source + ".flowFailures", Long.toString(sourceStats.flowFailures));
+        });
+        Path path = statePath();
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                properties.store(out, "node log scanner offsets");
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("保存日志扫描状态失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 节点日志中累计的 ERROR 行数，未扫描到时返回 null
+     */
+    public Integer getErrorCount(String source) {
+        SourceStats sourceStats = stats.get(source);
+        return sourceStats != null ? (int) Math.min(Integer.MAX_VALUE, sourceStats.errors) : null;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.keySet().stream().sorted().forEach(source -> {
+            SourceStats sourceStats = stats.get(source);
+            synchronized (sourceStats) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("errors", sourceStats.errors);
+                item.put("warnings", sourceStats.warnings);
+                item.put("flowFailures", sourceStats.flowFailures);
+                item.put("lines", sourceStats.lines);
+                item.put("bytesScanned", sourceStats.bytes);
+                item.put("rotations", sourceStats.rotations);
+                item.put("recentErrors", sourceStats.recent.size());
+                result.put(source, item);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 某个节点最近的错误行，最新的在前
+     */
+    public List<LogEntry> getRecentErrors(String source, int limit) {
+        SourceStats sourceStats = stats.get(source);
+        if (sourceStats == null) {
+            return List.of();
+        }
+        synchronized (sourceStats) {
+            List<LogEntry> entries = new ArrayList<>(sourceStats.recent);
+            return entries.subList(0, Math.min(Math.max(0, limit), entries.size()));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private static class FileCursor {
+        private long offset;
+        private String fileKey;
+        private long created;
+        private boolean replayed;
+    }
+
+    private static class SourceStats {
+        private long errors;
+        private long warnings;
+        private long flowFailures;
+        private long lines;
+        private long bytes;
+        private long rotations;
+        private final Deque<LogEntry> recent = new ArrayDeque<>();
+
+        synchronized void addRecent(LogEntry entry, int capacity) {
+            recent.addFirst(entry);
+            while (recent.size() > Math.max(1, capacity)) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 一条错误日志：文件名、行首偏移量、分类和内容
+     */
+    public static class LogEntry {
+        private final String file;
+        private final long offset;
+        private final String kind;
+        private final String line;
+
+        public LogEntry(String file, long offset, String kind, String line) {
+            this.file = file;
+            this.offset = offset;
+            this.kind = kind;
+            this.line = line;
+        }
+
+        public String getFile() { return file; }
+        public long getOffset() { return offset; }
+        public String getKind() { return kind; }
+        public String getLine() { return line; }
+    }
+
+    /**
+     * 一次扫描的统计
+     */
+    public static class ScanResult {
+        private final int files;
+        private final long bytes;
+        private final int rotated;
+        private final long durationMs;
+
+        public ScanResult(int files, long bytes, int rotated, long durationMs) {
+            this.files = files;
+            this.bytes = bytes;
+            this.rotated = rotated;
+            this.durationMs = durationMs;
+        }
+
+        public int getFiles() { return files; }
+        public long getBytes() { return bytes; }
+        public int getRotated() { return rotated; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
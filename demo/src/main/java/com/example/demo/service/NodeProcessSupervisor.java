@@ -0,0 +1,400 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 节点进程监管器：保存每个已启动节点的 ProcessHandle 和 PID 文件，
+ * 按 PID 停止进程（先 SIGTERM，超时后 SIGKILL），不再依赖 ps | grep | kill -9。
+ */
+@Service
+public class NodeProcessSupervisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeProcessSupervisor.class);
+
+    // 管理器写入的 PID 文件
+    public static final String PID_FILE_NAME = "manager.pid";
+    // Corda 节点自己写入的 PID 文件
+    public static final String CORDA_PID_FILE_NAME = "process-id";
+
+    @Value("${corda.node.stop-grace-seconds:30}")
+    private long stopGraceSeconds;
+
+    private final Map<String, ManagedProcess> registry = new ConcurrentHashMap<>();
+    private final List<ExitListener> exitListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 进程退出回调；expected 为 true 表示由 stop() 主动停止
+     */
+    @FunctionalInterface
+    public interface ExitListener {
+        void onExit(ManagedProcess process, boolean expected);
+    }
+
+    public void addExitListener(ExitListener listener) {
+        exitListeners.add(listener);
+    }
+
+    /**
+     * 启动进程并登记到注册表，标准输出追加写入 logFile
+     */
+    public ManagedProcess start(String name, File workDir, List<String> command, File logFile) throws IOException {
+        return start(name, workDir, new File(workDir, PID_FILE_NAME), command, logFile);
+    }
+
+    /**
+     * 工作目录被多个进程共用时（如各节点的 webserver 都在项目根目录运行）需要单独指定 PID 文件
+     */
+    public ManagedProcess start(String name, File workDir, File pidFile, List<String> command, File logFile) throws IOException {
+        File logDir = logFile.getParentFile();
+        if (logDir != null && !logDir.exists()) {
+            logDir.mkdirs();
+        }
+
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workDir);
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+
+        // 检查和登记在同一次 compute 中完成，两个并发的 start 只有一个能真正启动进程
+        ManagedProcess managed;
+        try {
+            managed = registry.compute(name, (key, existing) -> {
+                if (existing != null && existing.isAlive()) {
+                    throw new IllegalStateException("进程 " + name + " 已在运行，PID: " + existing.getPid());
+                }
+                try {
+                    Process started = pb.start();
+                    return new ManagedProcess(name, workDir, pidFile, started.toHandle(), started, command, logFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Process process = managed.getProcess();
+        writePidFile(pidFile, process.pid());
+        watchExit(managed);
+
+        logger.info("已启动进程 {}，PID: {}，命令: {}", name, process.pid(), String.join(" ", command));
+        return managed;
+    }
+
+    /**
+     * 接管管理器重启之前启动的进程：读取 PID 文件，并确认进程工作目录与 workDir 完全一致
+     */
+    public Optional<ManagedProcess> adopt(String name, File workDir) {
+        return adopt(name, workDir, new File(workDir, PID_FILE_NAME),
+                List.of(new File(workDir, PID_FILE_NAME), new File(workDir, CORDA_PID_FILE_NAME)));
+    }
+
+    /**
+     * 按单独指定的 PID 文件接管进程，与 start(name, workDir, pidFile, ...) 对应
+     */
+    public Optional<ManagedProcess> adopt(String name, File workDir, File pidFile) {
+        return adopt(name, workDir, pidFile, List.of(pidFile));
+    }
+
+    private Optional<ManagedProcess> adopt(String name, File workDir, File pidFile, List<File> candidates) {
+        ManagedProcess existing = registry.get(name);
+        if (existing != null) {
+            return Optional.of(existing);
+        }
+
+        for (File candidate : candidates) {
+            Long pid = readPidFile(candidate);
+            if (pid == null) {
+                continue;
+            }
+            Optional<ProcessHandle> handle = ProcessHandle.of(pid).filter(ProcessHandle::isAlive);
+            if (handle.isPresent() && isRunningIn(handle.get(), workDir, pidFile)) {
+                ManagedProcess managed = new ManagedProcess(name, workDir, pidFile, handle.get(), null,
+                        handle.get().info().arguments().map(List::of).orElse(List.of()), null);
+                // 并发接管或启动时以先登记的为准
+                ManagedProcess winner = registry.putIfAbsent(name, managed);
+                if (winner != null) {
+                    return Optional.of(winner);
+                }
+                watchExit(managed);
+                logger.info("已接管进程 {}，PID: {}", name, pid);
+                return Optional.of(managed);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public Optional<ManagedProcess> get(String name) {
+        return Optional.ofNullable(registry.get(name));
+    }
+
+    public boolean isRunning(String name) {
+        ManagedProcess managed = registry.get(name);
+        return managed != null && managed.isAlive();
+    }
+
+    /**
+     * 使用默认宽限时间停止进程
+     */
+    public StopResult stop(String name) {
+        return stop(name, stopGraceSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 先发送 SIGTERM，等待宽限时间后对仍存活的进程发送 SIGKILL
+     */
+    public StopResult stop(String name, long grace, TimeUnit unit) {
+        ManagedProcess managed = registry.get(name);
+        if (managed == null) {
+            return new StopResult(name, -1, false, false, "进程未登记: " + name);
+        }
+        if (!managed.isAlive()) {
+            registry.remove(name);
+            deletePidFile(managed.getPidFile());
+            return new StopResult(name, managed.getPid(), true, false, "进程已退出，退出码: " + managed.exitCodeText());
+        }
+
+        managed.stopRequested = true;
+        // 子进程（例如 startNode 脚本拉起的 JVM）一并处理
+        List<ProcessHandle> targets = new ArrayList<>();
+        managed.getHandle().descendants().forEach(targets::add);
+        targets.add(managed.getHandle());
+
+        logger.info("向进程 {} (PID: {}) 及其 {} 个子进程发送 SIGTERM", name, managed.getPid(), targets.size() - 1);
+        targets.forEach(ProcessHandle::destroy);
+
+        boolean forced = false;
+        try {
+            CompletableFuture.allOf(targets.stream()
+                    .map(ProcessHandle::onExit)
+                    .toArray(CompletableFuture[]::new))
+                    .get(grace, unit);
+        } catch (TimeoutException e) {
+            logger.warn("进程 {} 在 {} {} 内未退出，发送 SIGKILL", name, grace, unit);
+            forced = true;
+            targets.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+            try {
+                managed.getHandle().onExit().get(10, TimeUnit.SECONDS);
+            } catch (Exception ignored) {
+                // 强制终止后仍未退出时在结果中体现
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new StopResult(name, managed.getPid(), false, false, "等待进程退出时被中断");
+        } catch (Exception e) {
+            logger.warn("等待进程 {} 退出时发生错误", name, e);
+        }
+
+        boolean stopped = !managed.isAlive();
+        if (stopped) {
+            registry.remove(name);
+            deletePidFile(managed.getPidFile());
+        }
+        String message = stopped
+                ? "进程已停止，退出码: " + managed.exitCodeText() + (forced ? "（SIGKILL）" : "（SIGTERM）")
+                : "进程仍在运行";
+        logger.info("停止进程 {} 结果: {}", name, message);
+        return new StopResult(name, managed.getPid(), stopped, forced, message, managed.exitCode());
+    }
+
+    /**
+     * 查询单个进程状态，仅读取注册表与 ProcessHandle，不派生任何子进程
+     */
+    public Map<String, Object> status(String name) {
+        ManagedProcess managed = registry.get(name);
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("name", name);
+        if (managed == null) {
+            status.put("running", false);
+            status.put("status", "STOPPED");
+            return status;
+        }
+        boolean alive = managed.isAlive();
+        status.put("running", alive);
+        status.put("status", alive ? "RUNNING" : "STOPPED");
+        status.put("processId", managed.getPid());
+        status.put("startTime", managed.getStartTime().toString());
+        if (!alive) {
+            status.put("exitCode", managed.exitCode());
+        }
+        return status;
+    }
+
+    public Map<String, Map<String, Object>> statusAll() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        registry.keySet().stream().sorted().forEach(name -> result.put(name, status(name)));
+        return result;
+    }
+
+    public List<String> getRegisteredNames() {
+        return new ArrayList<>(registry.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 管理器退出时保留节点进程，PID 文件用于下次启动时接管
+        logger.info("管理器关闭，当前登记的进程: {}", registry.keySet());
+    }
+
+    // 进程退出时由 JDK 的进程回收线程回调，不需要轮询
+    private void watchExit(ManagedProcess managed) {
+        managed.getHandle().onExit().thenRun(() -> {
+            for (ExitListener listener : exitListeners) {
+                try {
+                    listener.onExit(managed, managed.stopRequested);
+                } catch (RuntimeException e) {
+                    logger.warn("处理进程 {} 退出回调失败", managed.getName(), e);
+                }
+            }
+        });
+    }
+
+    // 通过 /proc/<pid>/cwd 精确比较工作目录，避免前缀相同的节点路径被误判
+    private boolean isRunningIn(ProcessHandle handle, File workDir, File pidFile) {
+        Path cwd = Paths.get("/proc", String.valueOf(handle.pid()), "cwd");
+        try {
+            if (Files.exists(cwd)) {
+                return Files.isSameFile(cwd, workDir.toPath());
+            }
+        } catch (IOException e) {
+            logger.debug("无法读取进程 {} 的工作目录", handle.pid(), e);
+            return false;
+        }
+        // 非 Linux 平台：无法读取工作目录时只信任管理器自己写入的 PID 文件
+        Long managerPid = readPidFile(pidFile);
+        return managerPid != null && managerPid == handle.pid();
+    }
+
+    private void writePidFile(File pidFile, long pid) {
+        try {
+            File parent = pidFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            Files.writeString(pidFile.toPath(), String.valueOf(pid), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("写入 PID 文件失败: {}", pidFile.getAbsolutePath(), e);
+        }
+    }
+
+    private void deletePidFile(File pidFile) {
+        try {
+            Files.deleteIfExists(pidFile.toPath());
+        } catch (IOException e) {
+            logger.warn("删除 PID 文件失败: {}", pidFile.getAbsolutePath(), e);
+        }
+    }
+
+    private Long readPidFile(File pidFile) {
+        if (!pidFile.isFile()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(Files.readString(pidFile.toPath(), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            logger.debug("无法解析 PID 文件: {}", pidFile.getAbsolutePath(), e);
+            return null;
+        }
+    }
+
+    public static class ManagedProcess {
+        private final String name;
+        private final File workDir;
+        private final File pidFile;
+        private final ProcessHandle handle;
+        private final Process process;
+        private final List<String> command;
+        private final File logFile;
+        private final Instant startTime;
+        private volatile boolean stopRequested;
+
+        public ManagedProcess(String name, File workDir, File pidFile, ProcessHandle handle, Process process,
+                              List<String> command, File logFile) {
+            this.name = name;
+            this.workDir = workDir;
+            this.pidFile = pidFile;
+            this.handle = handle;
+            this.process = process;
+            this.command = command;
+            this.logFile = logFile;
+            this.startTime = handle.info().startInstant().orElse(Instant.now());
+        }
+
+        public boolean isAlive() { return handle.isAlive(); }
+
+        // 仅由本管理器启动的进程才能取得退出码
+        public Integer exitCode() {
+            if (process == null || process.isAlive()) {
+                return null;
+            }
+            return process.exitValue();
+        }
+
+        String exitCodeText() {
+            Integer code = exitCode();
+            return code != null ? String.valueOf(code) : "未知";
+        }
+
+        public String getName() { return name; }
+        public File getWorkDir() { return workDir; }
+        public File getPidFile() { return pidFile; }
+        public ProcessHandle getHandle() { return handle; }
+        public long getPid() { return handle.pid(); }
+        public List<String> getCommand() { return command; }
+        public File getLogFile() { return logFile; }
+        public Instant getStartTime() { return startTime; }
+        public Process getProcess() { return process; }
+        public boolean isStopRequested() { return stopRequested; }
+    }
+
+    public static class StopResult {
+        private final String name;
+        private final long pid;
+        private final boolean stopped;
+        private final boolean forced;
+        private final String message;
+        private final Integer exitCode;
+
+        public StopResult(String name, long pid, boolean stopped, boolean forced, String message) {
+            this(name, pid, stopped, forced, message, null);
+        }
+
+        public StopResult(String name, long pid, boolean stopped, boolean forced, String message, Integer exitCode) {
+            this.name = name;
+            this.pid = pid;
+            this.stopped = stopped;
+            this.forced = forced;
+            this.message = message;
+            this.exitCode = exitCode;
+        }
+
+        public String getName() { return name; }
+        public long getPid() { return pid; }
+        public boolean isStopped() { return stopped; }
+        public boolean isForced() { return forced; }
+        public String getMessage() { return message; }
+        public Integer getExitCode() { return exitCode; }
+    }
+}
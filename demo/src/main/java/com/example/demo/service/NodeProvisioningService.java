@@ -0,0 +1,720 @@
+package com.example.demo.service;
+
+import com.example.demo.util.GradleNodeBlocks;
+import com.example.demo.util.NodeDefinition;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 在进程内完成 add_node.ps1 对 build.gradle、clients/build.gradle、setup_corda_db.sql 的修改。
+ * 先把 node 块解析成 NodeDefinition 模型，在内存中分配端口并生成全部修改，
+ * 最后以临时文件 + 原子替换的方式一次性写回，任一文件写入失败时回滚已替换的文件。
+ */
+@Service
+public class NodeProvisioningService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeProvisioningService.class);
+
+    private static final Pattern COPY_DRIVERS_TASK = Pattern.compile("task\\s+copyDriversToNodes\\s*\\(type:\\s*Copy\\)\\s*\\{");
+    private static final Pattern WEBSERVER_TASK = Pattern.compile("(?m)^task\\s+(run\\w+Server)\\s*\\(type:\\s*JavaExec[^)]*\\)\\s*\\{");
+    private static final Pattern SERVER_PORT = Pattern.compile("--server\\.port=(\\d+)");
+    private static final Pattern DB_IDENTIFIER = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private static final int FIRST_SERVER_PORT = 50008;
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private PortAllocationService portAllocationService;
+
+    @Autowired
+    private CapacityPlannerService capacityPlannerService;
+
+    @Autowired
+    private NodeLockManager nodeLockManager;
+
+    @Autowired
+    private NodeDeployService nodeDeployService;
+
+    // true 时 /api/nodes/add 和 /remove 仍然调用 add_node.ps1
+    @Value("${corda.provisioning.use-script:false}")
+    private boolean useScript;
+
+    // 主机容量不足时：reject 直接拒绝，queue 排队等待容量释放后再添加
+    @Value("${corda.capacity.on-overcommit:reject}")
+    private String onOvercommit;
+
+    @Value("${corda.capacity.queue-retry-seconds:30}")
+    private long queueRetrySeconds;
+
+    // 串行化对项目文件的读-改-写
+    private final ReentrantLock editLock = new ReentrantLock();
+
+    private final Deque<QueuedAdd> addQueue = new ArrayDeque<>();
+    private final Deque<Map<String, Object>> queueHistory = new ArrayDeque<>();
+    private final AtomicLong queueSequence = new AtomicLong();
+    private final ScheduledExecutorService queueScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "node-add-queue");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> queueTask;
+
+    public boolean isUseScript() {
+        return useScript;
+    }
+
+    /**
+     * 添加节点。autoPorts / autoDb 为 true 时忽略 requested 中对应的字段并自动生成
+     */
+    public ProvisionResult addNode(NodeDefinition requested, boolean autoPorts, boolean autoDb) {
+        return addNodes(List.of(new AddNodeSpec(requested, autoPorts, autoDb)));
+    }
+
+    /**
+     * 批量添加节点：全部在内存中校验并修改，任何一个节点不合法则一个都不写入；
+     * 全部合法时三个项目文件各只写一次
+     */
+    public ProvisionResult addNodes(List<AddNodeSpec> specs) {
+        return addNodes(specs, false, false);
+    }
+
+    /**
+     * 同上；请求被排队时，deploy 为 true 则在排队的节点写入项目文件后再执行 deployNodes
+     */
+    public ProvisionResult addNodes(List<AddNodeSpec> specs, boolean deploy, boolean incremental) {
+        if (specs == null || specs.isEmpty()) {
+            return ProvisionResult.failed("节点列表为空");
+        }
+        if (capacityPlannerService.isEnabled()) {
+            CapacityPlannerService.CapacityReport capacity = capacityPlannerService.assess(specs.size() + queuedNodeCount());
+            if (!capacity.isAdmitted()) {
+                if ("queue".equalsIgnoreCase(onOvercommit)) {
+                    long id = enqueue(specs, deploy, incremental);
+                    return ProvisionResult.queued(id, "主机容量不足，已排队（编号 " + id + "）: " + capacity.getSummary(), capacity);
+                }
+                logger.warn("拒绝添加 {} 个节点: {}", specs.size(), capacity.getSummary());
+                return ProvisionResult.rejected("主机容量不足: " + capacity.getSummary(), capacity);
+            }
+        }
+        return applyAdds(specs);
+    }
+
+    private ProvisionResult applyAdds(List<AddNodeSpec> specs) {
+        long begin = System.nanoTime();
+        editLock.lock();
+        List<Integer> reserved = new ArrayList<>();
+        try {
+            ProjectFiles files = ProjectFiles.load(powerShellService.getProjectRootDirectory().toPath());
+            List<String> log = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            List<NodeDefinition> added = new ArrayList<>();
+            for (AddNodeSpec spec : specs) {
+                try {
+                    added.add(applyAdd(files, spec.getRequested(), spec.isAutoPorts(), spec.isAutoDb(), reserved, log));
+                } catch (IllegalArgumentException e) {
+                    errors.add(spec.getRequested().getLegalName() + ": " + e.getMessage());
+                }
+            }
+            if (!errors.isEmpty()) {
+                portAllocationService.release(toArray(reserved));
+                return ProvisionResult.failed(String.join("; ", errors));
+            }
+            files.commit(log);
+            powerShellService.refreshProjectModel();
+            for (int i = 0; i < added.size(); i++) {
+                portAllocationService.persist(added.get(i), specs.get(i).isAutoPorts(), specs.get(i).isAutoDb());
+                logger.info("节点 {} 已添加: P2P={}, RPC={}, Admin={}, DB={}", added.get(i).getLegalName(),
+                    added.get(i).getP2pPort(), added.get(i).getRpcPort(), added.get(i).getAdminPort(), added.get(i).getDbName());
+            }
+            log.add(added.size() + " 个节点添加完成，耗时 " + elapsedMs(begin) + " ms");
+            return ProvisionResult.ok("节点添加成功", added, log);
+        } catch (IllegalArgumentException e) {
+            portAllocationService.release(toArray(reserved));
+            return ProvisionResult.failed(e.getMessage());
+        } catch (IOException e) {
+            portAllocationService.release(toArray(reserved));
+            logger.error("修改项目文件失败", e);
+            return ProvisionResult.failed("修改项目文件失败: " + e.getMessage());
+        } finally {
+            editLock.unlock();
+        }
+    }
+
+    /**
+     * 排队中的添加请求以及最近处理过的排队记录
+     */
+    public synchronized Map<String, Object> getQueueStatus() {
+        List<Map<String, Object>> pending = new ArrayList<>();
+        for (QueuedAdd queued : addQueue) {
+            pending.add(queued.toMap());
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("mode", onOvercommit);
+        status.put("pending", pending);
+        status.put("recent", new ArrayList<>(queueHistory));
+        return status;
+    }
+
+    private synchronized long enqueue(List<AddNodeSpec> specs, boolean deploy, boolean incremental) {
+        QueuedAdd queued = new QueuedAdd(queueSequence.incrementAndGet(), List.copyOf(specs), deploy, incremental);
+        addQueue.addLast(queued);
+        logger.info("主机容量不足，{} 个节点的添加请求已排队，编号 {}", specs.size(), queued.id);
+        if (queueTask == null) {
+            queueTask = queueScheduler.scheduleWithFixedDelay(this::drainQueue, queueRetrySeconds, queueRetrySeconds, TimeUnit.SECONDS);
+        }
+        return queued.id;
+    }
+
+    private synchronized int queuedNodeCount() {
+        int count = 0;
+        for (QueuedAdd queued : addQueue) {
+            count += queued.specs.size();
+        }
+        return count;
+    }
+
+    // 按先后顺序处理：队首容量仍不足时后面的请求也继续等待
+    private void drainQueue() {
+        while (true) {
+            QueuedAdd head;
+            synchronized (this) {
+                head = addQueue.peekFirst();
+            }
+            if (head == null) {
+                return;
+            }
+            try {
+                if (!capacityPlannerService.assess(head.specs.size()).isAdmitted()) {
+                    return;
+                }
+                ProvisionResult result;
+                Map<String, Object> deployResult = null;
+                try (NodeLockManager.Lease lease = nodeLockManager.lockProject("queued-add " + head.id)) {
+                    result = applyAdds(head.specs);
+                    if (result.isSuccess() && head.deploy) {
+                        // 与直接调用 /add-batch?deploy=true 一致：写入项目文件后在同一把项目锁内部署
+                        deployResult = nodeDeployService.deploy(head.incremental);
+                    }
+                }
+                synchronized (this) {
+                    addQueue.pollFirst();
+                    Map<String, Object> record = head.toMap();
+                    record.put("success", result.isSuccess()
+                            && (deployResult == null || Boolean.TRUE.equals(deployResult.get("success"))));
+                    record.put("message", result.getMessage());
+                    if (deployResult != null) {
+                        record.put("deploy", deployResult);
+                    }
+                    record.put("processedAt", System.currentTimeMillis());
+                    queueHistory.addFirst(record);
+                    while (queueHistory.size() > 50) {
+                        queueHistory.removeLast();
+                    }
+                }
+                logger.info("排队的添加请求 {} 已处理: {}", head.id, result.getMessage());
+                if (deployResult != null) {
+                    logger.info("排队的添加请求 {} 部署结果: {}", head.id, deployResult.get("message"));
+                }
+            } catch (RuntimeException e) {
+                logger.error("处理排队的添加请求 {} 失败", head.id, e);
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        queueScheduler.shutdownNow();
+    }
+
+    /**
+     * 删除节点的全部配置（node 块、驱动复制、数据库脚本、webserver 任务）
+     */
+    public ProvisionResult removeNode(String legalName) {
+        return removeNodes(List.of(legalName));
+    }
+
+    /**
+     * 批量删除节点：任何一个节点不存在则一个都不删除
+     */
+    public ProvisionResult removeNodes(List<String> legalNames) {
+        if (legalNames == null || legalNames.isEmpty()) {
+            return ProvisionResult.failed("节点列表为空");
+        }
+        long begin = System.nanoTime();
+        editLock.lock();
+        try {
+            ProjectFiles files = ProjectFiles.load(powerShellService.getProjectRootDirectory().toPath());
+            List<String> log = new ArrayList<>();
+            List<String> errors = new ArrayList<>();
+            List<NodeDefinition> removed = new ArrayList<>();
+            for (String legalName : legalNames) {
+                try {
+                    removed.add(applyRemove(files, legalName, log));
+                } catch (IllegalArgumentException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+            if (!errors.isEmpty()) {
+                return ProvisionResult.failed(String.join("; ", errors));
+            }
+            files.commit(log);
+            powerShellService.refreshProjectModel();
+            for (NodeDefinition node : removed) {
+                portAllocationService.forget(node);
+                logger.info("节点 {} 已删除", node.getLegalName());
+            }
+            log.add(removed.size() + " 个节点删除完成，耗时 " + elapsedMs(begin) + " ms");
+            return ProvisionResult.ok("节点删除成功", removed, log);
+        } catch (IllegalArgumentException e) {
+            return ProvisionResult.failed(e.getMessage());
+        } catch (IOException e) {
+            logger.error("修改项目文件失败", e);
+            return ProvisionResult.failed("修改项目文件失败: " + e.getMessage());
+        } finally {
+            editLock.unlock();
+        }
+    }
+
+    /**
+     * 当前 build.gradle 中定义的全部节点
+     */
+    public List<NodeDefinition> getNodeDefinitions() {
+        return powerShellService.getProjectModel().getNodes();
+    }
+
+    NodeDefinition applyAdd(ProjectFiles files, NodeDefinition requested, boolean autoPorts, boolean autoDb,
+                            List<Integer> reserved, List<String> log) {
+        String legalName = requested.getLegalName();
+        if (legalName == null || legalName.isBlank() || !legalName.contains("O=")) {
+            throw new IllegalArgumentException("节点名称必须是 X.500 名称，例如 O=PartyF,L=London,C=GB");
+        }
+        GradleNodeBlocks blocks = GradleNodeBlocks.parse(files.buildGradle);
+        if (!blocks.hasDeployNodesTask()) {
+            throw new IllegalArgumentException("build.gradle 中找不到 deployNodes 任务");
+        }
+        List<NodeDefinition> existing = definitions(blocks);
+        for (NodeDefinition node : existing) {
+            if (legalName.equals(node.getLegalName())) {
+                throw new IllegalArgumentException("节点 '" + legalName + "' 已存在于 build.gradle 中");
+            }
+            if (requested.getDirectoryName().equals(node.getDirectoryName())) {
+                throw new IllegalArgumentException("组织名 '" + node.getDirectoryName() + "' 已被节点 '" + node.getLegalName() + "' 使用");
+            }
+        }
+
+        // 端口在位图中 CAS 预留，失败时由调用方释放 reserved 中的端口
+        PortAllocationService.PortReservation ports;
+        if (autoPorts) {
+            ports = portAllocationService.allocate();
+            log.add("自动分配的端口: P2P=" + ports.getP2pPort() + ", RPC=" + ports.getRpcPort() + ", Admin=" + ports.getAdminPort());
+        } else {
+            if (requested.getP2pPort() == null || requested.getRpcPort() == null || requested.getAdminPort() == null) {
+                throw new IllegalArgumentException("必须提供 p2pPort、rpcPort、adminPort，或使用 autoPorts");
+            }
+            if (Set.of(requested.getP2pPort(), requested.getRpcPort(), requested.getAdminPort()).size() != 3) {
+                throw new IllegalArgumentException("P2P、RPC、Admin 端口不能相同");
+            }
+            ports = portAllocationService.reserve(requested.getP2pPort(), requested.getRpcPort(), requested.getAdminPort());
+        }
+        for (int port : ports.toArray()) {
+            reserved.add(port);
+        }
+        NodeDefinition node = requested.withPorts(ports.getP2pPort(), ports.getRpcPort(), ports.getAdminPort());
+
+        if (autoDb) {
+            String[] db = NodeDefinition.autoDatabase(legalName);
+            node = node.withDatabase(db[0], db[1]);
+            log.add("自动生成的数据库配置: DB=" + node.getDbName() + ", User=" + node.getDbUser());
+        } else if (node.getDbName() == null || node.getDbUser() == null) {
+            throw new IllegalArgumentException("必须提供 dbName 和 dbUser，或使用 autoDb");
+        }
+        if (!DB_IDENTIFIER.matcher(node.getDbName()).matches() || !DB_IDENTIFIER.matcher(node.getDbUser()).matches()) {
+            throw new IllegalArgumentException("数据库名和用户名只能包含小写字母、数字和下划线");
+        }
+
+        // build.gradle：在最后一个 node 块之后插入
+        List<GradleNodeBlocks.Block> nodeBlocks = blocks.getNodes();
+        int insertAt = nodeBlocks.isEmpty() ? blocks.getTaskEnd() : nodeBlocks.get(nodeBlocks.size() - 1).getEnd();
+        String prefix = nodeBlocks.isEmpty() ? "" : "\n";
+        String suffix = nodeBlocks.isEmpty() ? "\n" : "";
+        files.buildGradle = files.buildGradle.substring(0, insertAt) + prefix + node.renderGradleBlock() + suffix
+            + files.buildGradle.substring(insertAt);
+        log.add("已将节点 '" + legalName + "' 添加到 build.gradle");
+
+        // copyDriversToNodes：为新节点目录复制数据库驱动
+        String driversLine = node.renderDriversLine();
+        if (!files.buildGradle.contains(driversLine)) {
+            Matcher copy = COPY_DRIVERS_TASK.matcher(files.buildGradle);
+            if (copy.find()) {
+                int close = GradleNodeBlocks.matchingBrace(files.buildGradle, copy.end() - 1);
+                int lineStart = files.buildGradle.lastIndexOf('\n', close) + 1;
+                files.buildGradle = files.buildGradle.substring(0, lineStart) + driversLine + "\n" + files.buildGradle.substring(lineStart);
+                log.add("已更新 copyDriversToNodes 任务");
+            } else {
+                log.add("找不到 copyDriversToNodes 任务，需要手动添加: " + driversLine.trim());
+            }
+        }
+
+        // setup_corda_db.sql：追加建库建用户语句
+        if (files.setupSql != null) {
+            files.setupSql = files.setupSql + node.renderSqlBlock();
+            log.add("已更新 setup_corda_db.sql");
+        }
+
+        // clients/build.gradle：添加 webserver 启动任务
+        if (files.clientsGradle != null) {
+            String taskName = node.getWebserverTaskName();
+            if (Pattern.compile("task\\s+" + taskName + "\\s*\\(").matcher(files.clientsGradle).find()) {
+                log.add("任务 " + taskName + " 已存在，跳过创建");
+            } else {
+                int serverPort = nextServerPort(files.clientsGradle);
+                Matcher task = WEBSERVER_TASK.matcher(files.clientsGradle);
+                int lastTaskEnd = -1;
+                while (task.find()) {
+                    int close = GradleNodeBlocks.matchingBrace(files.clientsGradle, task.end() - 1);
+                    if (close > lastTaskEnd) {
+                        lastTaskEnd = close;
+                    }
+                }
+                if (lastTaskEnd >= 0) {
+                    files.clientsGradle = files.clientsGradle.substring(0, lastTaskEnd + 1) + node.renderWebserverTask(serverPort)
+                        + files.clientsGradle.substring(lastTaskEnd + 1);
+                } else {
+                    files.clientsGradle = files.clientsGradle.stripTrailing() + node.renderWebserverTask(serverPort) + "\n";
+                }
+                log.add("已将任务 " + taskName + " 添加到 clients/build.gradle，服务器端口=" + serverPort + ", RPC端口=" + node.getRpcPort());
+            }
+        }
+        return node;
+    }
+
+    NodeDefinition applyRemove(ProjectFiles files, String legalName, List<String> log) {
+        GradleNodeBlocks blocks = GradleNodeBlocks.parse(files.buildGradle);
+        GradleNodeBlocks.Block block = legalName != null ? blocks.findNode(legalName) : null;
+        if (block == null) {
+            throw new IllegalArgumentException("节点 '" + legalName + "' 不存在于 build.gradle 中");
+        }
+        NodeDefinition node = NodeDefinition.fromBlock(block);
+
+        // build.gradle：删除 node 块（连同其后的换行）
+        int end = block.getEnd();
+        if (end < files.buildGradle.length() && files.buildGradle.charAt(end) == '\n') {
+            end++;
+        }
+        files.buildGradle = files.buildGradle.substring(0, block.getStart()) + files.buildGradle.substring(end);
+        log.add("已从 build.gradle 中删除节点 '" + legalName + "'");
+
+        // copyDriversToNodes：删除该节点目录的驱动复制行
+        String driversLine = node.renderDriversLine().trim();
+        StringBuilder kept = new StringBuilder();
+        boolean driversRemoved = false;
+        for (String line : files.buildGradle.split("\n", -1)) {
+            if (!driversRemoved && line.trim().equals(driversLine)) {
+                driversRemoved = true;
+                continue;
+            }
+            kept.append(line).append('\n');
+        }
+        if (driversRemoved) {
+            files.buildGradle = kept.substring(0, kept.length() - 1);
+            log.add("已从 copyDriversToNodes 任务中删除 '" + node.getDirectoryName() + "'");
+        }
+
+        // setup_corda_db.sql：优先按注释块删除，否则逐行删除该节点数据库对应的语句
+        if (files.setupSql != null) {
+            String marker = NodeDefinition.sqlMarker(legalName);
+            int markerIndex = files.setupSql.indexOf(marker);
+            if (markerIndex >= 0) {
+                int next = files.setupSql.indexOf("\n-- 配置为节点", markerIndex + 1);
+                // 连同添加时写在注释前的空行一起删除
+                int from = markerIndex > 0 && files.setupSql.charAt(markerIndex - 1) == '\n' ? markerIndex - 1 : markerIndex;
+                files.setupSql = next < 0
+                    ? files.setupSql.substring(0, from)
+                    : files.setupSql.substring(0, from) + files.setupSql.substring(next);
+                log.add("已从 setup_corda_db.sql 中删除节点 '" + legalName + "' 的数据库配置");
+            } else if (node.getDbName() != null && node.getDbUser() != null) {
+                Set<String> statements = new HashSet<>();
+                for (String line : node.renderSqlBlock().split("\n")) {
+                    if (!line.isBlank() && !line.startsWith("--")) {
+                        statements.add(line.trim());
+                    }
+                }
+                StringBuilder sql = new StringBuilder();
+                for (String line : files.setupSql.split("\n", -1)) {
+                    if (!statements.remove(line.trim())) {
+                        sql.append(line).append('\n');
+                    }
+                }
+                files.setupSql = collapseBlankLines(sql.substring(0, sql.length() - 1));
+                log.add("已按数据库 " + node.getDbName() + " / 用户 " + node.getDbUser() + " 从 setup_corda_db.sql 中删除语句");
+            }
+        }
+
+        // clients/build.gradle：删除 webserver 任务
+        if (files.clientsGradle != null) {
+            String taskName = node.getWebserverTaskName();
+            Matcher task = Pattern.compile("(?m)^task\\s+" + taskName + "\\s*\\([^)]*\\)\\s*\\{").matcher(files.clientsGradle);
+            if (task.find()) {
+                int close = GradleNodeBlocks.matchingBrace(files.clientsGradle, task.end() - 1);
+                files.clientsGradle = collapseBlankLines(files.clientsGradle.substring(0, task.start())
+                    + files.clientsGradle.substring(close + 1));
+                log.add("已从 clients/build.gradle 中删除任务 " + taskName);
+            } else {
+                log.add("任务 " + taskName + " 未找到，无需删除");
+            }
+        }
+        return node;
+    }
+
+    private int nextServerPort(String clientsGradle) {
+        Set<Integer> used = new HashSet<>();
+        Matcher m = SERVER_PORT.matcher(clientsGradle);
+        while (m.find()) {
+            used.add(Integer.parseInt(m.group(1)));
+        }
+        int port = FIRST_SERVER_PORT;
+        while (used.contains(port)) {
+            port++;
+        }
+        return port;
+    }
+
+    private static List<NodeDefinition> definitions(GradleNodeBlocks blocks) {
+        List<NodeDefinition> nodes = new ArrayList<>();
+        for (GradleNodeBlocks.Block block : blocks.getNodes()) {
+            nodes.add(NodeDefinition.fromBlock(block));
+        }
+        return nodes;
+    }
+
+    private static String collapseBlankLines(String text) {
+        return text.replaceAll("(\\r?\\n){3,}", "\n\n");
+    }
+
+    private static int[] toArray(List<Integer> ports) {
+        return ports.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long elapsedMs(long begin) {
+        return (System.nanoTime() - begin) / 1_000_000;
+    }
+
+    /**
+     * 一次编辑涉及的三个项目文件：在内存中修改，commit 时原子写回
+     */
+    static class ProjectFiles {
+        private final Map<Path, String> originals = new LinkedHashMap<>();
+        private final Path buildGradlePath;
+        private final Path clientsGradlePath;
+        private final Path setupSqlPath;
+        String buildGradle;
+        String clientsGradle;
+        String setupSql;
+
+        private ProjectFiles(Path root) throws IOException {
+            buildGradlePath = root.resolve("build.gradle");
+            clientsGradlePath = root.resolve("clients/build.gradle");
+            setupSqlPath = root.resolve("setup_corda_db.sql");
+            if (!Files.isRegularFile(buildGradlePath)) {
+                throw new IllegalArgumentException("找不到 build.gradle 文件: " + buildGradlePath);
+            }
+            buildGradle = read(buildGradlePath);
+            clientsGradle = read(clientsGradlePath);
+            setupSql = read(setupSqlPath);
+        }
+
+        static ProjectFiles load(Path root) throws IOException {
+            return new ProjectFiles(root);
+        }
+
+        private String read(Path path) throws IOException {
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            originals.put(path, content);
+            return content;
+        }
+
+        /**
+         * 先把所有修改写入同目录的临时文件，再逐个原子替换；中途失败则把已替换的文件恢复为原内容
+         */
+        void commit(List<String> log) throws IOException {
+            Map<Path, String> changed = new LinkedHashMap<>();
+            put(changed, buildGradlePath, buildGradle);
+            put(changed, clientsGradlePath, clientsGradle);
+            put(changed, setupSqlPath, setupSql);
+
+            Map<Path, Path> staged = new LinkedHashMap<>();
+            try {
+                for (Map.Entry<Path, String> e : changed.entrySet()) {
+                    staged.put(e.getKey(), writeTemp(e.getKey(), e.getValue()));
+                }
+                List<Path> replaced = new ArrayList<>();
+                try {
+                    for (Map.Entry<Path, Path> e : staged.entrySet()) {
+                        Files.move(e.getValue(), e.getKey(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                        replaced.add(e.getKey());
+                    }
+                } catch (IOException e) {
+                    for (Path path : replaced) {
+                        try {
+                            Files.move(writeTemp(path, originals.get(path)), path,
+                                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                        } catch (IOException restoreError) {
+                            logger.error("回滚 {} 失败", path, restoreError);
+                        }
+                    }
+                    throw e;
+                }
+            } finally {
+                for (Path tmp : staged.values()) {
+                    Files.deleteIfExists(tmp);
+                }
+            }
+            for (Path path : changed.keySet()) {
+                originals.put(path, changed.get(path));
+            }
+            log.add("已原子写入 " + changed.size() + " 个文件");
+        }
+
+        private void put(Map<Path, String> changed, Path path, String content) {
+            if (content != null && !content.equals(originals.get(path))) {
+                changed.put(path, content);
+            }
+        }
+
+        private static Path writeTemp(Path target, String content) throws IOException {
+            Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+            Files.writeString(tmp, content, StandardCharsets.UTF_8);
+            return tmp;
+        }
+    }
+
+    /**
+     * 待添加的节点及是否自动分配端口/数据库
+     */
+    public static class AddNodeSpec {
+        private final NodeDefinition requested;
+        private final boolean autoPorts;
+        private final boolean autoDb;
+
+        public AddNodeSpec(NodeDefinition requested, boolean autoPorts, boolean autoDb) {
+            this.requested = requested;
+            this.autoPorts = autoPorts;
+            this.autoDb = autoDb;
+        }
+
+        public NodeDefinition getRequested() { return requested; }
+        public boolean isAutoPorts() { return autoPorts; }
+        public boolean isAutoDb() { return autoDb; }
+    }
+
+    private static class QueuedAdd {
+        private final long id;
+        private final List<AddNodeSpec> specs;
+        private final boolean deploy;
+        private final boolean incremental;
+        private final long queuedAt = System.currentTimeMillis();
+
+        QueuedAdd(long id, List<AddNodeSpec> specs, boolean deploy, boolean incremental) {
+            this.id = id;
+            this.specs = specs;
+            this.deploy = deploy;
+            this.incremental = incremental;
+        }
+
+        Map<String, Object> toMap() {
+            List<String> names = new ArrayList<>();
+            for (AddNodeSpec spec : specs) {
+                names.add(spec.getRequested().getLegalName());
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("id", id);
+            map.put("nodes", names);
+            map.put("deploy", deploy);
+            map.put("incremental", incremental);
+            map.put("queuedAt", queuedAt);
+            return map;
+        }
+    }
+
+    /**
+     * 添加/删除节点的结果
+     */
+    public static class ProvisionResult {
+        private final boolean success;
+        private final boolean queued;
+        private final String message;
+        private final List<NodeDefinition> nodes;
+        private final List<String> log;
+        private final CapacityPlannerService.CapacityReport capacity;
+        private final Long queueId;
+
+        private ProvisionResult(boolean success, boolean queued, String message, List<NodeDefinition> nodes,
+                                List<String> log, CapacityPlannerService.CapacityReport capacity, Long queueId) {
+            this.success = success;
+            this.queued = queued;
+            this.queueId = queueId;
+            this.message = message;
+            this.nodes = nodes;
+            this.log = log;
+            this.capacity = capacity;
+        }
+
+        static ProvisionResult ok(String message, List<NodeDefinition> nodes, List<String> log) {
+            return new ProvisionResult(true, false, message, nodes, log, null, null);
+        }
+
+        static ProvisionResult failed(String message) {
+            return new ProvisionResult(false, false, message, List.of(), List.of(message), null, null);
+        }
+
+        static ProvisionResult rejected(String message, CapacityPlannerService.CapacityReport capacity) {
+            return new ProvisionResult(false, false, message, List.of(), List.of(message), capacity, null);
+        }
+
+        // 已受理但尚未写入项目文件：success 为 false，queued 为 true
+        static ProvisionResult queued(long queueId, String message, CapacityPlannerService.CapacityReport capacity) {
+            return new ProvisionResult(false, true, message, List.of(), List.of(message), capacity, queueId);
+        }
+
+        public boolean isSuccess() { return success; }
+        public boolean isQueued() { return queued; }
+        public Long getQueueId() { return queueId; }
+        public String getMessage() { return message; }
+        public List<NodeDefinition> getNodes() { return nodes; }
+        public List<String> getLog() { return log; }
+        public CapacityPlannerService.CapacityReport getCapacity() { return capacity; }
+        public String getOutput() { return String.join("\n", log); }
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.demo.service;
+
+import com.example.demo.util.NodeConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 节点启动编排：先启动 Notary，再以并发上限并行启动其余节点，
+ * 只有 RPC 端口可连接且 webserver 的 /status 返回 2xx 后才认为节点就绪。
+ */
+@Service
+public class NodeStartupOrchestrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeStartupOrchestrator.class);
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Value("${corda.startup.max-parallel:4}")
+    private int maxParallel;
+
+    @Value("${corda.startup.ready-timeout-seconds:180}")
+    private long readyTimeoutSeconds;
+
+    @Value("${corda.startup.probe-interval-ms:1000}")
+    private long probeIntervalMs;
+
+    @Value("${corda.startup.start-webservers:true}")
+    private boolean startWebservers;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    /**
+     * 启动 build/nodes 下的全部节点
+     */
+    public StartupReport startAll() {
+        long begin = System.nanoTime();
+        List<File> nodeDirs = powerShellService.getNodeDirectories();
+        Map<Integer, PowerShellService.WebserverTask> webservers = webserversByRpcPort();
+
+        List<File> notaries = new ArrayList<>();
+        List<File> parties = new ArrayList<>();
+        Map<String, NodeConf> confs = new HashMap<>();
+        List<NodeReadiness> results = new ArrayList<>();
+        for (File dir : nodeDirs) {
+            try {
+                NodeConf conf = NodeConf.read(new File(dir, "node.conf"));
+                confs.put(dir.getName(), conf);
+                (conf.isNotary() ? notaries : parties).add(dir);
+            } catch (IOException e) {
+                results.add(NodeReadiness.failed(dir.getName(), "读取 node.conf 失败: " + e.getMessage()));
+            }
+        }
+
+        logger.info("开始启动网络：{} 个 Notary，{} 个节点，并发上限 {}", notaries.size(), parties.size(), maxParallel);
+
+        List<NodeReadiness> notaryResults = startInParallel(notaries, confs, webservers);
+        results.addAll(notaryResults);
+
+        boolean notariesReady = notaryResults.stream().allMatch(NodeReadiness::isReady);
+        if (notariesReady) {
+            results.addAll(startInParallel(parties, confs, webservers));
+        } else {
+            for (File dir : parties) {
+                results.add(NodeReadiness.failed(dir.getName(), "Notary 未就绪，跳过启动"));
+            }
+        }
+
+        long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        boolean success = !results.isEmpty() && results.stream().allMatch(NodeReadiness::isReady);
+        logger.info("网络启动完成，耗时 {} ms，全部就绪: {}", totalMs, success);
+        return new StartupReport(success, totalMs, results);
+    }
+
+    /**
+     * 启动单个节点并等待就绪
+     */
+    public NodeReadiness startNode(String nodeName) {
+        return withNodeConf(nodeName, conf -> startAndAwait(nodeName, conf, webserversByRpcPort().get(conf.getRpcPort())));
+    }
+
+    /**
+     * 等待已在启动中的节点就绪（不负责启动节点本身），供滚动重启等场景使用
+     */
+    public NodeReadiness awaitReady(String nodeName) {
+        return withNodeConf(nodeName, conf -> probeUntilReady(nodeName, conf,
+                webserversByRpcPort().get(conf.getRpcPort()), System.nanoTime()));
+    }
+
+    private NodeReadiness withNodeConf(String nodeName, Function<NodeConf, NodeReadiness> action) {
+        File nodeDir = powerShellService.getNodeDirectories().stream()
+                .filter(dir -> dir.getName().equals(nodeName))
+                .findFirst()
+                .orElse(null);
+        if (nodeDir == null) {
+            return NodeReadiness.failed(nodeName, "节点目录不存在或缺少 node.conf");
+        }
+        try {
+            return action.apply(NodeConf.read(new File(nodeDir, "node.conf")));
+        } catch (IOException e) {
+            return NodeReadiness.failed(nodeName, "读取 node.conf 失败: " + e.getMessage());
+        }
+    }
+
+    private List<NodeReadiness> startInParallel(List<File> dirs, Map<String, NodeConf> confs,
+                                                Map<Integer, PowerShellService.WebserverTask> webservers) {
+        List<NodeReadiness> results = new ArrayList<>();
+        if (dirs.isEmpty()) {
+            return results;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallel, dirs.size())));
+        try {
+            List<Future<NodeReadiness>> futures = new ArrayList<>();
+            for (File dir : dirs) {
+                NodeConf conf = confs.get(dir.getName());
+                futures.add(executor.submit(() ->
+                        startAndAwait(dir.getName(), conf, webservers.get(conf.getRpcPort()))));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(NodeReadiness.failed(dirs.get(i).getName(), "等待节点启动时被中断"));
+                } catch (Exception e) {
+                    results.add(NodeReadiness.failed(dirs.get(i).getName(), "启动节点时发生错误: " + e.getMessage()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private NodeReadiness startAndAwait(String nodeName, NodeConf conf, PowerShellService.WebserverTask webserver) {
+        long begin = System.nanoTime();
+        // 已在运行的节点直接探测就绪状态
+        Map<String, Object> status = powerShellService.getNodeStatus(nodeName);
+        if (!Boolean.TRUE.equals(status.get("running"))) {
+            PowerShellService.ProcessResult result = powerShellService.startNode(nodeName);
+            if (!result.isSuccess()) {
+                return NodeReadiness.failed(nodeName, result.getError());
+            }
+        }
+        return probeUntilReady(nodeName, conf, webserver, begin);
+    }
+
+    private NodeReadiness probeUntilReady(String nodeName, NodeConf conf,
+                                          PowerShellService.WebserverTask webserver, long begin) {
+        long deadline = begin + TimeUnit.SECONDS.toNanos(readyTimeoutSeconds);
+        Integer rpcPort = conf.getRpcPort();
+        String rpcHost = probeHost(conf.getRpcHost());
+        Long rpcReadyMs = null;
+        Long webReadyMs = null;
+        boolean webserverStarted = false;
+        // 不由本服务启动 webserver 时不等待 /status，RPC 就绪即可
+        boolean webRequired = startWebservers && webserver != null && !conf.isNotary();
+
+        try {
+            while (System.nanoTime() < deadline) {
+                if (!nodeProcessSupervisor.isRunning(nodeName)) {
+                    return NodeReadiness.failed(nodeName, "节点进程已退出，详见 logs/node-stdout.log");
+                }
+                if (rpcReadyMs == null && rpcPort != null && isPortOpen(rpcHost, rpcPort)) {
+                    rpcReadyMs = elapsedMs(begin);
+                    logger.info("节点 {} RPC 端口 {} 已可连接，耗时 {} ms", nodeName, rpcPort, rpcReadyMs);
+                }
+                if (rpcReadyMs != null) {
+                    if (!webRequired) {
+                        break;
+                    }
+                    // webserver 启动时就会连接 RPC，所以等 RPC 就绪后再拉起
+                    if (!webserverStarted) {
+                        powerShellService.startWebserver(nodeName, webserver);
+                        webserverStarted = true;
+                    }
+                    if (isStatusOk(webserver.getServerPort())) {
+                        webReadyMs = elapsedMs(begin);
+                        logger.info("节点 {} webserver 端口 {} 已就绪，耗时 {} ms", nodeName, webserver.getServerPort(), webReadyMs);
+                        break;
+                    }
+                }
+                Thread.sleep(probeIntervalMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return NodeReadiness.failed(nodeName, "等待节点就绪时被中断");
+        }
+
+        boolean ready = rpcReadyMs != null && (!webRequired || webReadyMs != null);
+        String message = ready ? "节点已就绪"
+                : rpcReadyMs == null ? "等待 RPC 端口超时" : "等待 webserver /status 超时";
+        return new NodeReadiness(nodeName, ready, ready ? elapsedMs(begin) : null, rpcReadyMs, webReadyMs,
+                rpcPort, webRequired ? webserver.getServerPort() : null, message);
+    }
+
+    private Map<Integer, PowerShellService.WebserverTask> webserversByRpcPort() {
+        Map<Integer, PowerShellService.WebserverTask> byPort = new HashMap<>();
+        for (PowerShellService.WebserverTask task : powerShellService.getWebserverTasks()) {
+            if (task.getRpcPort() != null && task.getServerPort() != null) {
+                byPort.put(task.getRpcPort(), task);
+            }
+        }
+        return byPort;
+    }
+
+    private String probeHost(String host) {
+        return host == null || host.isEmpty() || "0.0.0.0".equals(host) ? "localhost" : host;
+    }
+
+    private boolean isPortOpen(String host, int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isStatusOk(Integer port) {
+        if (port == null) {
+            return false;
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/status"))
+                    .timeout(Duration.ofSeconds(2))
+                    .GET()
+                    .build();
+            int code = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return code >= 200 && code < 300;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long elapsedMs(long begin) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+    }
+
+    public static class NodeReadiness {
+        private final String nodeName;
+        private final boolean ready;
+        private final Long timeToReadyMs;
+        private final Long rpcReadyMs;
+        private final Long webserverReadyMs;
+        private final Integer rpcPort;
+        private final Integer webserverPort;
+        private final String message;
+
+        public NodeReadiness(String nodeName, boolean ready, Long timeToReadyMs, Long rpcReadyMs,
+                             Long webserverReadyMs, Integer rpcPort, Integer webserverPort, String message) {
+            this.nodeName = nodeName;
+            this.ready = ready;
+            this.timeToReadyMs = timeToReadyMs;
+            this.rpcReadyMs = rpcReadyMs;
+            this.webserverReadyMs = webserverReadyMs;
+            this.rpcPort = rpcPort;
+            this.webserverPort = webserverPort;
+            this.message = message;
+        }
+
+        static NodeReadiness failed(String nodeName, String message) {
+            return new NodeReadiness(nodeName, false, null, null, null, null, null, message);
+        }
+
+        public String getNodeName() { return nodeName; }
+        public boolean isReady() { return ready; }
+        public Long getTimeToReadyMs() { return timeToReadyMs; }
+        public Long getRpcReadyMs() { return rpcReadyMs; }
+        public Long getWebserverReadyMs() { return webserverReadyMs; }
+        public Integer getRpcPort() { return rpcPort; }
+        public Integer getWebserverPort() { return webserverPort; }
+        public String getMessage() { return message; }
+    }
+
+    public static class StartupReport {
+        private final boolean success;
+        private final long totalMs;
+        private final List<NodeReadiness> nodes;
+
+        public StartupReport(boolean success, long totalMs, List<NodeReadiness> nodes) {
+            this.success = success;
+            this.totalMs = totalMs;
+            this.nodes = nodes;
+        }
+
+        public boolean isSuccess() { return success; }
+        public long getTotalMs() { return totalMs; }
+        public List<NodeReadiness> getNodes() { return nodes; }
+    }
+}
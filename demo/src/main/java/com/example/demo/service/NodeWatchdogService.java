@@ -0,0 +1,270 @@
+package com.example.demo.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 节点看门狗：在 NodeProcessSupervisor 上注册退出回调，进程意外退出后按指数退避自动重启；
+ * 时间窗口内重启次数达到上限时标记为崩溃循环并停止重启。事件写入 node_status_history。
+ */
+@Service
+public class NodeWatchdogService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NodeWatchdogService.class);
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private OperationLogService operationLogService;
+
+    @Autowired
+    private NodeLockManager nodeLockManager;
+
+    @Value("${corda.watchdog.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.watchdog.base-delay-seconds:2}")
+    private long baseDelaySeconds;
+
+    @Value("${corda.watchdog.max-delay-seconds:120}")
+    private long maxDelaySeconds;
+
+    // window-minutes 内重启达到 max-restarts 次即视为崩溃循环
+    @Value("${corda.watchdog.max-restarts:5}")
+    private int maxRestarts;
+
+    @Value("${corda.watchdog.window-minutes:10}")
+    private long windowMinutes;
+
+    // 运行超过该时间后退出视为新的故障，退避从头计算
+    @Value("${corda.watchdog.stable-seconds:120}")
+    private long stableSeconds;
+
+    private final Map<String, RestartState> states = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "node-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean closed;
+
+    @PostConstruct
+    public void register() {
+        nodeProcessSupervisor.addExitListener(this::onExit);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        closed = true;
+        scheduler.shutdownNow();
+    }
+
+    private void onExit(NodeProcessSupervisor.ManagedProcess process, boolean expected) {
+        if (expected || closed) {
+            return;
+        }
+        String name = process.getName();
+        Integer exitCode = process.exitCode();
+        Instant now = Instant.now();
+        long uptimeSeconds = Duration.between(process.getStartTime(), now).getSeconds();
+        logger.warn("进程 {} (PID: {}) 意外退出，退出码: {}，运行了 {} 秒", name, process.getPid(),
+            exitCode != null ? exitCode : "未知", uptimeSeconds);
+        handleFailure(process, exitCode, uptimeSeconds);
+    }
+
+    // 记录一次故障，并按退避时间安排重启；重启本身失败时也走这里
+    private void handleFailure(NodeProcessSupervisor.ManagedProcess process, Integer exitCode, long uptimeSeconds) {
+        String name = process.getName();
+        Instant now = Instant.now();
+        RestartState state = states.computeIfAbsent(name, k -> new RestartState());
+        Map<String, Object> checks = new LinkedHashMap<>();
+        checks.put("exitCode", exitCode);
+        checks.put("uptimeSeconds", uptimeSeconds);
+        long delayMs;
+        synchronized (state) {
+            if (uptimeSeconds >= stableSeconds) {
+                state.consecutiveFailures = 0;
+                state.crashLoop = false;
+            }
+            Instant windowStart = now.minus(Duration.ofMinutes(windowMinutes));
+            while (!state.restarts.isEmpty() && state.restarts.peekFirst().isBefore(windowStart)) {
+                state.restarts.removeFirst();
+            }
+            state.lastExit = now;
+            state.lastExitCode = exitCode;
+
+            if (!enabled || state.crashLoop) {
+                checks.put("event", state.crashLoop ? "CRASH_LOOP_EXIT" : "EXITED");
+                record(process, "ERROR", checks);
+                return;
+            }
+            if (state.restarts.size() >= maxRestarts) {
+                state.crashLoop = true;
+                checks.put("event", "CRASH_LOOP");
+                checks.put("restartsInWindow", state.restarts.size());
+                checks.put("windowMinutes", windowMinutes);
+                record(process, "ERROR", checks);
+                logger.error("进程 {} 在 {} 分钟内已重启 {} 次，判定为崩溃循环，停止自动重启", name, windowMinutes, state.restarts.size());
+                return;
+            }
+            state.consecutiveFailures++;
+            delayMs = Math.min(TimeUnit.SECONDS.toMillis(maxDelaySeconds),
+                TimeUnit.SECONDS.toMillis(baseDelaySeconds) << Math.min(20, state.consecutiveFailures - 1));
+            state.restarts.addLast(now);
+            state.nextRestartAt = now.plusMillis(delayMs);
+        }
+
+        checks.put("event", "CRASHED");
+        checks.put("attempt", state.consecutiveFailures);
+        checks.put("restartDelayMs", delayMs);
+        record(process, "ERROR", checks);
+        logger.info("{} ms 后第 {} 次重启 {}", delayMs, state.consecutiveFailures, name);
+        scheduler.schedule(() -> restart(process), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void restart(NodeProcessSupervisor.ManagedProcess previous) {
+        String name = previous.getName();
+        if (closed || nodeProcessSupervisor.isRunning(name)) {
+            return;
+        }
+        RestartState state = states.get(name);
+        Map<String, Object> checks = new LinkedHashMap<>();
+        checks.put("event", "RESTART");
+        checks.put("attempt", state != null ? state.consecutiveFailures : 0);
+        try {
+            // webserver 与所属节点共用同一把节点锁，避免与手动启停并发
+            String nodeName = name.startsWith(PowerShellService.webserverProcessName(""))
+                ? name.substring(PowerShellService.webserverProcessName("").length()) : name;
+            try (NodeLockManager.Lease lease = nodeLockManager.lockNode(nodeName, "watchdog-restart", true)) {
+                if (nodeProcessSupervisor.isRunning(name)) {
+                    // 等锁期间已被手动启动
+                    return;
+                }
+                PowerShellService.ProcessResult result;
+                if (name.startsWith(PowerShellService.webserverProcessName(""))) {
+                    // webserver 按原命令重启；接管来的进程没有完整命令行，无法重启
+                    if (previous.getProcess() == null) {
+                        logger.warn("{} 是接管的进程，缺少启动命令，跳过自动重启", name);
+                        return;
+                    }
+                    NodeProcessSupervisor.ManagedProcess managed = nodeProcessSupervisor.start(name, previous.getWorkDir(),
+                        previous.getPidFile(), previous.getCommand(), previous.getLogFile());
+                    result = new PowerShellService.ProcessResult(0, "webserver 已重启，PID: " + managed.getPid(), "", true);
+                } else {
+                    result = powerShellService.startNode(name);
+                }
+                checks.put("success", result.isSuccess());
+                checks.put("message", result.isSuccess() ? result.getOutput() : result.getError());
+                if (!result.isSuccess()) {
+                    logger.warn("自动重启 {} 失败: {}", name, result.getError());
+                    record(previous, "ERROR", checks);
+                    handleFailure(previous, null, 0);
+                    return;
+                }
+                if (state != null) {
+                    synchronized (state) {
+                        state.nextRestartAt = null;
+                    }
+                }
+                Map<String, Object> status = nodeProcessSupervisor.status(name);
+                // process_id 列是 VARCHAR
+                if (status.get("processId") != null) {
+                    status.put("processId", String.valueOf(status.get("processId")));
+                }
+                status.put("lastStartTime", Timestamp.from(Instant.now()));
+                status.put("checks", checks);
+                operationLogService.logNodeStatus(name, status);
+                logger.info("自动重启 {}: {}", name, result.isSuccess() ? result.getOutput() : result.getError());
+            }
+        } catch (NodeLockManager.LockTimeoutException e) {
+            // 节点锁被长时间部署等操作占用，并不是进程故障：不计入重启次数，稍后重试同一次重启
+            long delayMs = TimeUnit.SECONDS.toMillis(baseDelaySeconds);
+            if (state != null) {
+                synchronized (state) {
+                    state.nextRestartAt = Instant.now().plusMillis(delayMs);
+                }
+            }
+            logger.info("等待节点锁超时，{} ms 后重试重启 {}: {}", delayMs, name, e.getMessage());
+            scheduler.schedule(() -> restart(previous), delayMs, TimeUnit.MILLISECONDS);
+        } catch (IOException | RuntimeException e) {
+            logger.error("自动重启 {} 失败", name, e);
+            checks.put("success", false);
+            checks.put("message", e.getMessage());
+            record(previous, "ERROR", checks);
+            handleFailure(previous, null, 0);
+        }
+    }
+
+    private void record(NodeProcessSupervisor.ManagedProcess process, String status, Map<String, Object> checks) {
+        Map<String, Object> info = new LinkedHashMap<>();
+        info.put("status", status);
+        info.put("running", false);
+        info.put("processId", String.valueOf(process.getPid()));
+        info.put("lastStartTime", Timestamp.from(process.getStartTime()));
+        info.put("lastStopTime", Timestamp.from(Instant.now()));
+        info.put("checks", checks);
+        operationLogService.logNodeStatus(process.getName(), info);
+    }
+
+    /**
+     * 清除崩溃循环标记和退避计数（修复问题后手动调用）
+     */
+    public void reset(String name) {
+        states.remove(name);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("maxRestarts", maxRestarts);
+        status.put("windowMinutes", windowMinutes);
+        Map<String, Object> processes = new LinkedHashMap<>();
+        states.keySet().stream().sorted().forEach(name -> {
+            RestartState state = states.get(name);
+            synchronized (state) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("crashLoop", state.crashLoop);
+                item.put("consecutiveFailures", state.consecutiveFailures);
+                item.put("restartsInWindow", state.restarts.size());
+                item.put("lastExit", state.lastExit != null ? state.lastExit.toString() : null);
+                item.put("lastExitCode", state.lastExitCode);
+                item.put("nextRestartAt", state.nextRestartAt != null ? state.nextRestartAt.toString() : null);
+                item.put("running", nodeProcessSupervisor.isRunning(name));
+                processes.put(name, item);
+            }
+        });
+        status.put("processes", processes);
+        return status;
+    }
+
+    private static class RestartState {
+        private final Deque<Instant> restarts = new ArrayDeque<>();
+        private int consecutiveFailures;
+        private boolean crashLoop;
+        private Instant lastExit;
+        private Integer lastExitCode;
+        private Instant nextRestartAt;
+    }
+}
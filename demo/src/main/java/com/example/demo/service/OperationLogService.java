@@ -8,6 +8,8 @@ import org.springframework.stereotype.Service;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -122,6 +124,37 @@ public class OperationLogService {
         }
     }
     
+    /**
+     * 删除节点配置
+     */
+    public void deleteNodeConfiguration(String nodeName) {
+        try {
+            jdbcTemplate.update("DELETE FROM node_configurations WHERE node_name = ?", nodeName);
+        } catch (Exception e) {
+            logger.error("删除节点配置失败", e);
+        }
+    }
+    
+    /**
+     * 查询所有已保存节点配置占用的端口
+     */
+    public List<Integer> getConfiguredPorts() {
+        List<Integer> ports = new ArrayList<>();
+        try {
+            jdbcTemplate.query("SELECT p2p_port, rpc_port, admin_port FROM node_configurations", rs -> {
+                for (String column : new String[] {"p2p_port", "rpc_port", "admin_port"}) {
+                    int port = rs.getInt(column);
+                    if (!rs.wasNull()) {
+                        ports.add(port);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            logger.error("查询节点配置端口失败", e);
+        }
+        return ports;
+    }
+    
     private String getClientIpAddress(HttpServletRequest request) {
         if (request == null) return null;
         
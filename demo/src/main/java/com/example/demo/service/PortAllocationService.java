@@ -0,0 +1,305 @@
+package com.example.demo.service;
+
+import com.example.demo.util.NodeDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 节点端口分配：整个端口空间用一张位图表示（每个端口 1 bit），分配和预留都通过 CAS 置位完成，
+ * 并发添加节点时不会拿到同一个端口。位图首次使用时从 build.gradle、node_configurations 表
+ * 和一次本机端口扫描中初始化，之后的分配不再逐个探测端口。
+ */
+@Service
+public class PortAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortAllocationService.class);
+
+    private static final int PORT_COUNT = 65536;
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Autowired
+    private OperationLogService operationLogService;
+
+    @Value("${corda.ports.p2p-range:10000-10999}")
+    private String p2pRange;
+
+    @Value("${corda.ports.rpc-range:10000-10999}")
+    private String rpcRange;
+
+    @Value("${corda.ports.admin-range:10040-10999}")
+    private String adminRange;
+
+    // 三种端口共用一张位图，范围重叠时也不会互相冲突
+    private final AtomicLongArray bitmap = new AtomicLongArray(PORT_COUNT / 64);
+    private final Map<PortType, AtomicInteger> cursors = new HashMap<>();
+    private volatile boolean seeded;
+
+    public enum PortType { P2P, RPC, ADMIN }
+
+    public PortAllocationService() {
+        for (PortType type : PortType.values()) {
+            cursors.put(type, new AtomicInteger(-1));
+        }
+    }
+
+    /**
+     * 为一个节点分配 P2P、RPC、Admin 三个端口；中途失败时释放已分配的端口
+     */
+    public PortReservation allocate() {
+        ensureSeeded();
+        int p2p = allocate(PortType.P2P);
+        int rpc;
+        try {
+            rpc = allocate(PortType.RPC);
+        } catch (IllegalArgumentException e) {
+            release(p2p);
+            throw e;
+        }
+        int admin;
+        try {
+            admin = allocate(PortType.ADMIN);
+        } catch (IllegalArgumentException e) {
+            release(p2p, rpc);
+            throw e;
+        }
+        return new PortReservation(p2p, rpc, admin);
+    }
+
+    /**
+     * 预留调用方指定的端口；任一端口已被占用则全部不预留
+     */
+    public PortReservation reserve(int p2p, int rpc, int admin) {
+        ensureSeeded();
+        int[] ports = { p2p, rpc, admin };
+        for (int i = 0; i < ports.length; i++) {
+            if (ports[i] < 1 || ports[i] >= PORT_COUNT) {
+                release(Arrays.copyOf(ports, i));
+                throw new IllegalArgumentException("端口 " + ports[i] + " 超出范围");
+            }
+            if (!trySet(ports[i])) {
+                release(Arrays.copyOf(ports, i));
+                throw new IllegalArgumentException("端口 " + ports[i] + " 已被占用或已分配给其他节点");
+            }
+        }
+        return new PortReservation(p2p, rpc, admin);
+    }
+
+    /**
+     * 释放端口（删除节点或添加失败时）
+     */
+    public void release(int... ports) {
+        for (int port : ports) {
+            if (port <= 0 || port >= PORT_COUNT) {
+                continue;
+            }
+            int word = port >>> 6;
+            long mask = 1L << (port & 63);
+            long current;
+            do {
+                current = bitmap.get(word);
+            } while ((current & mask) != 0 && !bitmap.compareAndSet(word, current, current & ~mask));
+        }
+    }
+
+    /**
+     * 把节点的端口写入 node_configurations，作为下次启动时的预留记录
+     */
+    public void persist(NodeDefinition node, boolean autoPorts, boolean autoDb) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("p2pPort", node.getP2pPort());
+        config.put("rpcPort", node.getRpcPort());
+        config.put("adminPort", node.getAdminPort());
+        config.put("dbName", node.getDbName());
+        config.put("dbUser", node.getDbUser());
+        config.put("autoPorts", autoPorts);
+        config.put("autoDb", autoDb);
+        operationLogService.saveNodeConfiguration(node.getLegalName(), config);
+    }
+
+    public void forget(NodeDefinition node) {
+        release(portsOf(node));
+        operationLogService.deleteNodeConfiguration(node.getLegalName());
+    }
+
+    public boolean isAllocated(int port) {
+        ensureSeeded();
+        return isAllocatedRaw(port);
+    }
+
+    /**
+     * 各端口范围的使用情况
+     */
+    public Map<String, Object> getUsage() {
+        ensureSeeded();
+        Map<String, Object> usage = new LinkedHashMap<>();
+        for (PortType type : PortType.values()) {
+            int[] range = range(type);
+            int used = 0;
+            for (int port = range[0]; port <= range[1]; port++) {
+                if (isAllocatedRaw(port)) {
+                    used++;
+                }
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("from", range[0]);
+            item.put("to", range[1]);
+            item.put("used", used);
+            item.put("free", range[1] - range[0] + 1 - used);
+            usage.put(type.name().toLowerCase(), item);
+        }
+        return usage;
+    }
+
+    // 从游标处开始找空位并 CAS 置位；游标记录上次分配的位置，正常情况下一次就能命中
+    private int allocate(PortType type) {
+        int[] range = range(type);
+        int size = range[1] - range[0] + 1;
+        AtomicInteger cursor = cursors.get(type);
+        int start = Math.max(cursor.get() + 1, range[0]);
+        for (int i = 0; i < size; i++) {
+            int port = range[0] + Math.floorMod(start - range[0] + i, size);
+            int word = port >>> 6;
+            long current = bitmap.get(word);
+            // 整个 64 位字已满时直接跳到下一个字，但不越过范围末尾，之后从 range[0] 继续
+            if (current == -1L) {
+                i += Math.min(63 - (port & 63), range[1] - port);
+                continue;
+            }
+            if (trySet(port)) {
+                cursor.set(port);
+                return port;
+            }
+        }
+        throw new IllegalArgumentException(type + " 端口范围 " + range[0] + "-" + range[1] + " 已无可用端口");
+    }
+
+    private boolean trySet(int port) {
+        int word = port >>> 6;
+        long mask = 1L << (port & 63);
+        while (true) {
+            long current = bitmap.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (bitmap.compareAndSet(word, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private void ensureSeeded() {
+        if (seeded) {
+            return;
+        }
+        synchronized (this) {
+            if (seeded) {
+                return;
+            }
+            long begin = System.nanoTime();
+            int configured = 0;
+            for (int port : configuredPorts()) {
+                trySet(port);
+                configured++;
+            }
+            for (int port : operationLogService.getConfiguredPorts()) {
+                trySet(port);
+                configured++;
+            }
+            // 一次性扫描各端口范围，把本机已被其他进程占用的端口标记掉
+            int busy = 0;
+            for (PortType type : PortType.values()) {
+                int[] range = range(type);
+                for (int port = range[0]; port <= range[1]; port++) {
+                    if (!isAllocatedRaw(port) && isPortInUse(port)) {
+                        trySet(port);
+                        busy++;
+                    }
+                }
+            }
+            seeded = true;
+            logger.info("端口位图初始化完成: 已配置端口 {} 个，本机占用端口 {} 个，耗时 {} ms",
+                configured, busy, (System.nanoTime() - begin) / 1_000_000);
+        }
+    }
+
+    private List<Integer> configuredPorts() {
+        List<Integer> ports = new ArrayList<>();
+        for (NodeDefinition node : powerShellService.getProjectModel().getNodes()) {
+            for (int port : portsOf(node)) {
+                ports.add(port);
+            }
+        }
+        return ports;
+    }
+
+    private boolean isAllocatedRaw(int port) {
+        return (bitmap.get(port >>> 6) & (1L << (port & 63))) != 0;
+    }
+
+    private boolean isPortInUse(int port) {
+        try (ServerSocket socket = new ServerSocket()) {
+            socket.setReuseAddress(false);
+            socket.bind(new InetSocketAddress(port));
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private int[] range(PortType type) {
+        String spec = switch (type) {
+            case P2P -> p2pRange;
+            case RPC -> rpcRange;
+            case ADMIN -> adminRange;
+        };
+        String[] parts = spec.trim().split("\\s*-\\s*");
+        int from = Integer.parseInt(parts[0]);
+        int to = parts.length > 1 ? Integer.parseInt(parts[1]) : from;
+        return new int[] { Math.max(1, from), Math.min(PORT_COUNT - 1, to) };
+    }
+
+    private static int[] portsOf(NodeDefinition node) {
+        List<Integer> ports = new ArrayList<>();
+        if (node.getP2pPort() != null) ports.add(node.getP2pPort());
+        if (node.getRpcPort() != null) ports.add(node.getRpcPort());
+        if (node.getAdminPort() != null) ports.add(node.getAdminPort());
+        return ports.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 一个节点预留的三个端口
+     */
+    public static class PortReservation {
+        private final int p2pPort;
+        private final int rpcPort;
+        private final int adminPort;
+
+        public PortReservation(int p2pPort, int rpcPort, int adminPort) {
+            this.p2pPort = p2pPort;
+            this.rpcPort = rpcPort;
+            this.adminPort = adminPort;
+        }
+
+        public int getP2pPort() { return p2pPort; }
+        public int getRpcPort() { return rpcPort; }
+        public int getAdminPort() { return adminPort; }
+        public int[] toArray() { return new int[] { p2pPort, rpcPort, adminPort }; }
+    }
+}
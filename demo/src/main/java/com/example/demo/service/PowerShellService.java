@@ -1,7 +1,12 @@
 package com.example.demo.service;
 
+import com.example.demo.util.CordaProjectModel;
+import com.example.demo.util.CordaProjectWatcher;
+import com.example.demo.util.GradleNodeBlocks;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +17,8 @@ import java.nio.file.Files;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,11 +27,35 @@ public class PowerShellService {
     
     private static final Logger logger = LoggerFactory.getLogger(PowerShellService.class);
     
+    private static final Pattern WEBSERVER_TASK_PATTERN =
+        Pattern.compile("(?s)task\\s+(run\\w+Server)\\s*\\(type:\\s*JavaExec[^)]*\\)\\s*\\{.*?\\n\\s*args\\s+([^\\n]+)");
+    private static final Pattern QUOTED_ARG_PATTERN = Pattern.compile("'([^']*)'");
+    
     @Value("${script.add-node-path:./add_node.ps1}")
     private String scriptPath;
     
     @Value("${corda.project.root:./../scripts}")
     private String cordaProjectRoot;
+
+    // 与 NodeProvisioningService 一致：只有脚本模式才需要 add_node.ps1
+    @Value("${corda.provisioning.use-script:false}")
+    private boolean useScript;
+
+    // false 时回退为每次 fork gradlew
+    @Value("${corda.gradle.use-tooling-api:true}")
+    private boolean useToolingApi;
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private GradleBuildService gradleBuildService;
+
+    @Autowired
+    private JvmSizingService jvmSizingService;
+
+    // 首次使用时创建，之后由文件监听保持最新
+    private volatile CordaProjectWatcher projectWatcher;
     
     // 判断操作系统
     private boolean isWindows() {
@@ -41,14 +72,14 @@ public class PowerShellService {
         try {
             // 获取当前工作目录
             String currentDir = System.getProperty("user.dir");
-            logger.info("当前工作目录: {}", currentDir);
+            logger.debug("当前工作目录: {}", currentDir);
             
             // 如果是相对路径，转换为绝对路径
             File baseDir = new File(currentDir);
             File projectRoot = resolveRelativePath(baseDir, cordaProjectRoot);
             
-            logger.info("解析后的Corda项目路径: {}", projectRoot.getAbsolutePath());
-            logger.info("路径是否存在: {}", projectRoot.exists());
+            logger.debug("解析后的Corda项目路径: {}", projectRoot.getAbsolutePath());
+            logger.debug("路径是否存在: {}", projectRoot.exists());
             
             return projectRoot.getAbsolutePath();
         } catch (Exception e) {
@@ -107,10 +138,22 @@ public class PowerShellService {
     
     // 在项目根执行 gradlew clean deployNodes
     public ProcessResult executeGradleDeploy() {
+        return executeGradleDeploy(false);
+    }
+
+    // skipDbSetup 为 true 时数据库已由管理器创建，跳过 setupCordaDb 的 psql
+    public ProcessResult executeGradleDeploy(boolean skipDbSetup) {
+        return skipDbSetup
+            ? executeGradleTasks(List.of("clean", "deployNodes", "-PskipDbSetup=true"))
+            : executeGradleTasks(List.of("clean", "deployNodes"));
+    }
+
+    // 在项目根执行任意 Gradle 任务/参数
+    public ProcessResult executeGradleTasks(List<String> tasks) {
         String projectRoot = getProjectRootPath();
         File projectRootDir = new File(projectRoot);
         
-        logger.info("执行Gradle部署，项目目录: {}", projectRootDir.getAbsolutePath());
+        logger.info("执行Gradle任务，项目目录: {}", projectRootDir.getAbsolutePath());
         logger.info("目录是否存在: {}", projectRootDir.exists());
         
         if (!projectRootDir.exists()) {
@@ -118,17 +161,35 @@ public class PowerShellService {
             return new ProcessResult(-1, "", "Corda 项目根目录不存在: " + projectRoot, false);
         }
 
+        return gradleBuildService.runExclusive(tasks, () -> {
+            if (useToolingApi) {
+                try {
+                    return gradleBuildService.run(projectRootDir, tasks);
+                } catch (GradleBuildService.GradleUnavailableException e) {
+                    logger.warn("{}，回退为 fork gradlew", e.getMessage());
+                }
+            }
+            return executeGradlewProcess(projectRootDir, tasks);
+        });
+    }
+
+    // fork gradlew 执行任务（Tooling API 不可用时的回退路径）
+    private ProcessResult executeGradlewProcess(File projectRootDir, List<String> tasks) {
         try {
-            logger.info("在 {} 执行: {} clean deployNodes", 
+            logger.info("在 {} 执行: {} {}", 
                 projectRootDir.getAbsolutePath(), 
-                isWindows() ? "gradlew.bat" : "./gradlew");
+                isWindows() ? "gradlew.bat" : "./gradlew",
+                String.join(" ", tasks));
 
-            ProcessBuilder pb = new ProcessBuilder();
+            List<String> command = new ArrayList<>();
             if (isWindows()) {
-                pb.command("cmd.exe", "/c", "gradlew.bat", "clean", "deployNodes");
+                command.addAll(List.of("cmd.exe", "/c", "gradlew.bat"));
             } else {
-                pb.command("./gradlew", "clean", "deployNodes");
+                command.add("./gradlew");
             }
+            command.addAll(tasks);
+
+            ProcessBuilder pb = new ProcessBuilder(command);
             pb.directory(projectRootDir);
             pb.redirectErrorStream(true);
 
@@ -158,35 +219,62 @@ public class PowerShellService {
         }
     }
 
+    // Corda 项目根目录（绝对路径）
+    public File getProjectRootDirectory() {
+        return new File(getProjectRootPath());
+    }
+
     public List<String> getNodeNames() {
-        List<String> nodes = new ArrayList<>();
-        String projectRoot = getProjectRootPath();
-        File projectRootDir = new File(projectRoot);
-        File buildGradle = new File(projectRootDir, "build.gradle");
-        
-        logger.info("查找节点名称，build.gradle路径: {}", buildGradle.getAbsolutePath());
-        logger.info("build.gradle是否存在: {}", buildGradle.exists());
-        
-        if (!buildGradle.exists()) {
-            logger.warn("未找到 build.gradle 文件: {}", buildGradle.getAbsolutePath());
-            return nodes;
+        return getProjectModel().getNodeNames();
+    }
+
+    /**
+     * 节点目录名（build/nodes 下的目录名，也是进程注册表和节点锁使用的名称）：
+     * 项目中定义的节点加上已部署的节点目录
+     */
+    public List<String> getNodeDirectoryNames() {
+        TreeSet<String> names = new TreeSet<>();
+        for (String legalName : getNodeNames()) {
+            names.add(GradleNodeBlocks.directoryName(legalName));
         }
-        
-        try {
-            String content = Files.readString(buildGradle.toPath(), StandardCharsets.UTF_8);
-            Pattern p = Pattern.compile("name\\s+\"([^\"]+)\"");
-            Matcher m = p.matcher(content);
-            while (m.find()) {
-                String nodeName = m.group(1);
-                logger.info("找到节点: {}", nodeName);
-                nodes.add(nodeName);
+        for (File dir : getNodeDirectories()) {
+            names.add(dir.getName());
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * 缓存的项目模型；项目文件变化时由 WatchService 触发重新解析
+     */
+    public CordaProjectModel getProjectModel() {
+        CordaProjectWatcher watcher = projectWatcher;
+        if (watcher == null) {
+            synchronized (this) {
+                watcher = projectWatcher;
+                if (watcher == null) {
+                    String projectRoot = getProjectRootPath();
+                    watcher = new CordaProjectWatcher(Paths.get(projectRoot), Paths.get(getScriptAbsolutePath()));
+                    projectWatcher = watcher;
+                    logger.info("Corda 项目路径: {}，是否存在: {}", projectRoot, new File(projectRoot).exists());
+                }
             }
-        } catch (IOException e) {
-            logger.error("读取 build.gradle 时出错", e);
         }
-        return nodes;
+        return watcher.current();
     }
-    
+
+    // 本进程修改了项目文件后立即刷新，不等待文件事件
+    public CordaProjectModel refreshProjectModel() {
+        getProjectModel();
+        return projectWatcher.refresh();
+    }
+
+    @PreDestroy
+    public void closeProjectWatcher() {
+        if (projectWatcher != null) {
+            projectWatcher.close();
+        }
+    }
+
     public ProcessResult executePowerShellScript(String arguments) {
         try {
             // 使用配置的 Corda 项目根目录
@@ -297,53 +385,31 @@ public class PowerShellService {
     
     // 验证配置
     public boolean validateCordaProject() {
-        String projectRoot = getProjectRootPath();
-        File projectRootDir = new File(projectRoot);
-        
-        logger.info("验证Corda项目，路径: {}", projectRoot);
-        logger.info("目录是否存在: {}", projectRootDir.exists());
-        
-        if (!projectRootDir.exists()) {
-            logger.error("Corda 项目根目录不存在: {}", projectRoot);
+        CordaProjectModel model = getProjectModel();
+        if (!model.isRootExists()) {
+            logger.error("Corda 项目根目录不存在: {}", model.getProjectRoot());
             return false;
         }
-        
-        File buildGradle = new File(projectRootDir, "build.gradle");
-        logger.info("build.gradle路径: {}", buildGradle.getAbsolutePath());
-        logger.info("build.gradle是否存在: {}", buildGradle.exists());
-        
-        if (!buildGradle.exists()) {
-            logger.error("在 Corda 项目根目录中找不到 build.gradle 文件: {}", projectRoot);
+        if (!model.isBuildGradleExists()) {
+            logger.error("在 Corda 项目根目录中找不到 build.gradle 文件: {}", model.getProjectRoot());
             return false;
         }
-        
-        String scriptPath = getScriptAbsolutePath();
-        File scriptFile = new File(scriptPath);
-        logger.info("脚本路径: {}", scriptPath);
-        logger.info("脚本是否存在: {}", scriptFile.exists());
-        
-        if (!scriptFile.exists()) {
-            logger.error("PowerShell 脚本不存在: {}", scriptFile.getAbsolutePath());
+        if (useScript && !model.isScriptExists()) {
+            logger.error("PowerShell 脚本不存在: {}", model.getScriptPath());
             return false;
         }
-        
-        logger.info("Corda 项目验证成功: {}", projectRoot);
         return true;
     }
     
     // 获取 Corda 项目信息
     public CordaProjectInfo getCordaProjectInfo() {
-        String projectRoot = getProjectRootPath();
-        File projectRootDir = new File(projectRoot);
-        File buildGradle = new File(projectRootDir, "build.gradle");
-        File scriptFile = new File(getScriptAbsolutePath());
-        
+        CordaProjectModel model = getProjectModel();
         return new CordaProjectInfo(
-            projectRoot,
-            projectRootDir.exists(),
-            buildGradle.exists(),
-            scriptFile.exists(),
-            scriptFile.getAbsolutePath()
+            model.getProjectRoot().toString(),
+            model.isRootExists(),
+            model.isBuildGradleExists(),
+            model.isScriptExists(),
+            model.getScriptPath().toString()
         );
     }
     
@@ -405,7 +471,7 @@ public class PowerShellService {
         }
     }
 
-    // 启动指定节点 - Ubuntu 版本
+    // 启动指定节点：直接启动节点 JVM 并交给 NodeProcessSupervisor 跟踪
     public ProcessResult startNode(String nodeName) {
         String projectRoot = getProjectRootPath();
         File projectRootDir = new File(projectRoot);
@@ -421,49 +487,77 @@ public class PowerShellService {
             return new ProcessResult(-1, "", "节点目录不存在: " + nodeDir.getAbsolutePath(), false);
         }
 
-        // Ubuntu 下使用 bash 脚本启动节点
-        File startScript = new File(nodeDir, "startNode");
-        if (!startScript.exists()) {
-            startScript = new File(nodeDir, "startNode.bat");
+        if (nodeProcessSupervisor.adopt(nodeName, nodeDir).map(NodeProcessSupervisor.ManagedProcess::isAlive).orElse(false)) {
+            long pid = nodeProcessSupervisor.get(nodeName).get().getPid();
+            logger.warn("节点 {} 已在运行，PID: {}", nodeName, pid);
+            return new ProcessResult(-1, "", "节点已在运行，PID: " + pid, false);
+        }
+
+        List<String> command = buildNodeCommand(nodeDir);
+        if (command == null) {
+            logger.error("节点目录中没有 corda.jar 或 startNode 脚本: {}", nodeDir.getAbsolutePath());
+            return new ProcessResult(-1, "", "节点目录中没有 corda.jar 或 startNode 脚本: " + nodeDir.getAbsolutePath(), false);
         }
         
         try {
-            logger.info("启动节点 {} 使用脚本: {}", nodeName, startScript.getAbsolutePath());
+            File logFile = new File(nodeDir, "logs/node-stdout.log");
+            NodeProcessSupervisor.ManagedProcess managed =
+                nodeProcessSupervisor.start(nodeName, nodeDir, command, logFile);
             
-            ProcessBuilder pb = new ProcessBuilder();
-            if (isWindows()) {
-                pb.command("cmd.exe", "/c", "startNode.bat");
-            } else {
-                pb.command("bash", startScript.getAbsolutePath());
-            }
-            pb.directory(nodeDir);
-            pb.redirectErrorStream(true);
-            
-            Process proc = pb.start();
-            
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                    logger.info("[node-{}] {}", nodeName, line);
-                }
-            }
-            
-            // 等待一段时间
-            boolean finished = proc.waitFor(5, TimeUnit.SECONDS);
-            int exitCode = finished ? proc.exitValue() : 0;
-            
-            logger.info("节点 {} 启动完成，退出码: {}", nodeName, exitCode);
-            return new ProcessResult(exitCode, output.toString(), "", finished);
-        } catch (IOException | InterruptedException e) {
+            logger.info("节点 {} 已启动，PID: {}", nodeName, managed.getPid());
+            return new ProcessResult(0, "节点已启动，PID: " + managed.getPid() + "，输出: " + logFile.getAbsolutePath(), "", true);
+        } catch (IOException | IllegalStateException e) {
             logger.error("启动节点失败", e);
-            Thread.currentThread().interrupt();
             return new ProcessResult(-1, "", "启动节点时发生错误: " + e.getMessage(), false);
         }
     }
+
+    // 优先直接运行 corda.jar，这样登记的 PID 就是节点 JVM 本身
+    private List<String> buildNodeCommand(File nodeDir) {
+        List<String> command = new ArrayList<>();
+        JvmSizingService.JvmPlan plan = currentJvmPlan();
+        if (plan != null) {
+            // startNode 脚本等其他启动方式从 node.conf 读取同样的参数
+            try {
+                jvmSizingService.applyToNodeConf(nodeDir, plan.getNodeJvmArgs());
+            } catch (IOException e) {
+                logger.warn("写入 {} 的 node.conf jvmArgs 失败: {}", nodeDir.getName(), e.getMessage());
+            }
+        }
+        if (new File(nodeDir, "corda.jar").exists()) {
+            command.add(Paths.get(System.getProperty("java.home"), "bin", isWindows() ? "java.exe" : "java").toString());
+            if (plan != null) {
+                command.addAll(plan.getNodeJvmArgs());
+            }
+            command.add("-jar");
+            command.add("corda.jar");
+            return command;
+        }
+        if (isWindows() && new File(nodeDir, "startNode.bat").exists()) {
+            command.add("cmd.exe");
+            command.add("/c");
+            command.add("startNode.bat");
+            return command;
+        }
+        File startScript = new File(nodeDir, "startNode");
+        if (startScript.exists()) {
+            command.add("bash");
+            command.add(startScript.getAbsolutePath());
+            return command;
+        }
+        return null;
+    }
     
-    // 停止指定节点 - Ubuntu 版本
+    // 按 build.gradle 中的节点数（或已部署的节点目录数）计算 JVM 参数；关闭时返回 null
+    private JvmSizingService.JvmPlan currentJvmPlan() {
+        if (!jvmSizingService.isEnabled()) {
+            return null;
+        }
+        int nodeCount = Math.max(getProjectModel().getNodes().size(), getNodeDirectories().size());
+        return jvmSizingService.plan(nodeCount);
+    }
+
+    // 停止指定节点：按登记的 PID 发送 SIGTERM，超时后 SIGKILL
     public ProcessResult stopNode(String nodeName) {
         String projectRoot = getProjectRootPath();
         File projectRootDir = new File(projectRoot);
@@ -479,69 +573,150 @@ public class PowerShellService {
             return new ProcessResult(-1, "", "节点目录不存在: " + nodeDir.getAbsolutePath(), false);
         }
 
-        try {
+        if (nodeProcessSupervisor.adopt(nodeName, nodeDir).isEmpty()) {
+            logger.info("节点 {} 未在运行", nodeName);
+            return new ProcessResult(0, "节点未在运行", "", true);
+        }
+
+        NodeProcessSupervisor.StopResult stopResult = nodeProcessSupervisor.stop(nodeName);
+        logger.info("停止节点 {} 完成: {}", nodeName, stopResult.getMessage());
+        if (stopResult.isStopped()) {
+            return new ProcessResult(0, stopResult.getMessage(), "", true);
+        }
+        return new ProcessResult(-1, "", stopResult.getMessage(), false);
+    }
+
+    // 启动节点对应的 webserver（clients 模块的 runXxxServer 任务），输出写入 logs/<节点>.log
+    public ProcessResult startWebserver(String nodeName, WebserverTask task) {
+        File projectRootDir = new File(getProjectRootPath());
+        String processName = webserverProcessName(nodeName);
+        File pidFile = webserverPidFile(projectRootDir, nodeName);
+        if (nodeProcessSupervisor.adopt(processName, projectRootDir, pidFile).map(NodeProcessSupervisor.ManagedProcess::isAlive).orElse(false)) {
+            return new ProcessResult(0, "webserver 已在运行", "", true);
+        }
+
+        List<String> command = new ArrayList<>();
+        File bootJar = findClientsBootJar(projectRootDir);
+        JvmSizingService.JvmPlan plan = currentJvmPlan();
+        if (bootJar != null) {
+            // 直接运行 bootJar，避免每次都经过 Gradle
+            command.add(Paths.get(System.getProperty("java.home"), "bin", isWindows() ? "java.exe" : "java").toString());
+            if (plan != null) {
+                command.addAll(plan.getWebserverJvmArgs());
+            }
+            command.add("-jar");
+            command.add(bootJar.getAbsolutePath());
+            command.addAll(task.getArgs());
+        } else {
             if (isWindows()) {
-                // Windows 版本
-                String nodePathPattern = nodeDir.getAbsolutePath().replace("\\", "\\\\");
-                String psCmd = "Get-CimInstance Win32_Process | Where-Object { $_.CommandLine -and $_.CommandLine -match '" +
-                                nodePathPattern +
-                                "' } | Select-Object -ExpandProperty ProcessId | ForEach-Object { Stop-Process -Id $_ -Force -ErrorAction SilentlyContinue; Write-Output (\"Killed process $_\") }";
-                ProcessBuilder pb = new ProcessBuilder();
-                pb.command("powershell.exe", "-NoProfile", "-ExecutionPolicy", "Bypass", "-Command", psCmd);
-                pb.directory(projectRootDir);
-                pb.redirectErrorStream(true);
-                
-                Process proc = pb.start();
-                StringBuilder output = new StringBuilder();
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                        logger.info("[stop-node] {}", line);
-                    }
-                }
-                
-                boolean finished = proc.waitFor(2, TimeUnit.MINUTES);
-                int exitCode = finished ? proc.exitValue() : -1;
-                
-                if (exitCode == 0) {
-                    logger.info("停止节点 {} 操作完成，exitCode={}", nodeName, exitCode);
-                    return new ProcessResult(0, output.toString(), "", true);
-                } else {
-                    logger.warn("停止节点 {} 操作返回非 0 退出码: {}", nodeName, exitCode);
-                    return new ProcessResult(exitCode, output.toString(), "停止节点时 exitCode != 0", false);
-                }
+                command.addAll(List.of("cmd.exe", "/c", "gradlew.bat", ":clients:" + task.getTaskName()));
             } else {
-                // Ubuntu 版本 - 使用 pkill 命令
-                String nodePath = nodeDir.getAbsolutePath();
-                String[] cmd = {"bash", "-c", 
-                    "ps aux | grep -i corda | grep \"" + nodePath + "\" | grep -v grep | awk '{print $2}' | xargs kill -9"};
-                
-                ProcessBuilder pb = new ProcessBuilder(cmd);
-                pb.directory(projectRootDir);
-                pb.redirectErrorStream(true);
-                
-                Process proc = pb.start();
-                StringBuilder output = new StringBuilder();
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(proc.getInputStream(), StandardCharsets.UTF_8))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                        logger.info("[stop-node] {}", line);
-                    }
+                command.addAll(List.of("./gradlew", ":clients:" + task.getTaskName()));
+            }
+            // clients/build.gradle 把该属性加到所有 runXxxServer 任务的 jvmArgs
+            if (plan != null && !plan.getWebserverJvmArgs().isEmpty()) {
+                command.add("-PwebserverJvmArgs=" + String.join(" ", plan.getWebserverJvmArgs()));
+            }
+        }
+
+        try {
+            File logFile = new File(projectRootDir, "logs/" + nodeName + ".log");
+            NodeProcessSupervisor.ManagedProcess managed =
+                nodeProcessSupervisor.start(processName, projectRootDir, pidFile, command, logFile);
+            logger.info("节点 {} 的 webserver 已启动，PID: {}，端口: {}", nodeName, managed.getPid(), task.getServerPort());
+            return new ProcessResult(0, "webserver 已启动，PID: " + managed.getPid(), "", true);
+        } catch (IOException | IllegalStateException e) {
+            logger.error("启动 webserver 失败", e);
+            return new ProcessResult(-1, "", "启动 webserver 时发生错误: " + e.getMessage(), false);
+        }
+    }
+
+    // 停止节点对应的 webserver
+    public ProcessResult stopWebserver(String nodeName) {
+        String processName = webserverProcessName(nodeName);
+        File projectRootDir = new File(getProjectRootPath());
+        nodeProcessSupervisor.adopt(processName, projectRootDir, webserverPidFile(projectRootDir, nodeName));
+        if (!nodeProcessSupervisor.isRunning(processName)) {
+            return new ProcessResult(0, "webserver 未在运行", "", true);
+        }
+        NodeProcessSupervisor.StopResult stopResult = nodeProcessSupervisor.stop(processName);
+        if (stopResult.isStopped()) {
+            return new ProcessResult(0, stopResult.getMessage(), "", true);
+        }
+        return new ProcessResult(-1, "", stopResult.getMessage(), false);
+    }
+
+    public static String webserverProcessName(String nodeName) {
+        return "webserver-" + nodeName;
+    }
+
+    // 所有 webserver 都在项目根目录运行，PID 文件按节点分开存放，避免互相覆盖
+    private static File webserverPidFile(File projectRootDir, String nodeName) {
+        return new File(projectRootDir, "logs/" + nodeName + ".webserver.pid");
+    }
+
+    private File findClientsBootJar(File projectRootDir) {
+        File[] jars = new File(projectRootDir, "clients/build/libs").listFiles(
+            (dir, name) -> name.endsWith(".jar") && !name.endsWith("-plain.jar"));
+        return jars != null && jars.length == 1 ? jars[0] : null;
+    }
+
+    // 解析 clients/build.gradle 中的 runXxxServer 任务
+    public List<WebserverTask> getWebserverTasks() {
+        List<WebserverTask> tasks = new ArrayList<>();
+        File clientsBuild = new File(getProjectRootPath(), "clients/build.gradle");
+        if (!clientsBuild.exists()) {
+            return tasks;
+        }
+        try {
+            String content = Files.readString(clientsBuild.toPath(), StandardCharsets.UTF_8);
+            Matcher m = WEBSERVER_TASK_PATTERN.matcher(content);
+            while (m.find()) {
+                List<String> args = new ArrayList<>();
+                Matcher argMatcher = QUOTED_ARG_PATTERN.matcher(m.group(2));
+                while (argMatcher.find()) {
+                    args.add(argMatcher.group(1));
                 }
-                
-                boolean finished = proc.waitFor(30, TimeUnit.SECONDS);
-                int exitCode = finished ? proc.exitValue() : 0;
-                
-                logger.info("停止节点 {} 完成，退出码: {}", nodeName, exitCode);
-                return new ProcessResult(exitCode, output.toString(), "", true);
+                tasks.add(new WebserverTask(m.group(1), args));
             }
-        } catch (IOException | InterruptedException e) {
-            logger.error("停止节点失败", e);
-            Thread.currentThread().interrupt();
-            return new ProcessResult(-1, "", "停止节点时发生错误: " + e.getMessage(), false);
+        } catch (IOException e) {
+            logger.error("读取 clients/build.gradle 时出错", e);
         }
+        return tasks;
+    }
+
+    // build/nodes 下包含 node.conf 的节点目录
+    public List<File> getNodeDirectories() {
+        List<File> dirs = new ArrayList<>();
+        File[] children = new File(getProjectRootPath(), "build/nodes").listFiles(
+            f -> f.isDirectory() && new File(f, "node.conf").exists());
+        if (children != null) {
+            for (File child : children) {
+                dirs.add(child);
+            }
+        }
+        dirs.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return dirs;
+    }
+
+    // 查询节点进程状态，只读取进程注册表
+    public Map<String, Object> getNodeStatus(String nodeName) {
+        if (!nodeProcessSupervisor.isRunning(nodeName)) {
+            File nodeDir = new File(getProjectRootPath(), "build/nodes/" + nodeName);
+            if (nodeDir.exists()) {
+                nodeProcessSupervisor.adopt(nodeName, nodeDir);
+            }
+        }
+        String webserverName = webserverProcessName(nodeName);
+        if (!nodeProcessSupervisor.isRunning(webserverName)) {
+            File projectRootDir = new File(getProjectRootPath());
+            nodeProcessSupervisor.adopt(webserverName, projectRootDir, webserverPidFile(projectRootDir, nodeName));
+        }
+        return nodeProcessSupervisor.status(nodeName);
+    }
+
+    public Map<String, Map<String, Object>> getAllNodeStatus() {
+        return nodeProcessSupervisor.statusAll();
     }
 
     // 内部类保持不变
@@ -564,6 +739,34 @@ public class PowerShellService {
         public boolean isSuccess() { return success; }
     }
     
+    public static class WebserverTask {
+        private final String taskName;
+        private final List<String> args;
+        
+        public WebserverTask(String taskName, List<String> args) {
+            this.taskName = taskName;
+            this.args = args;
+        }
+        
+        public String getTaskName() { return taskName; }
+        public List<String> getArgs() { return args; }
+        public Integer getServerPort() { return intArg("--server.port="); }
+        public Integer getRpcPort() { return intArg("--config.rpc.port="); }
+        
+        private Integer intArg(String prefix) {
+            for (String arg : args) {
+                if (arg.startsWith(prefix)) {
+                    try {
+                        return Integer.parseInt(arg.substring(prefix.length()));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+    
     public static class CordaProjectInfo {
         private final String projectRoot;
         private final boolean rootExists;
@@ -0,0 +1,268 @@
+package com.example.demo.service;
+
+import com.example.demo.util.ProcFs;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时读取每个受管节点和 webserver 进程的 /proc/[pid]/stat、statm、io，
+ * 用相邻两次的 CPU tick 差值计算 CPU 使用率，样本保存在基本类型数组实现的环形缓冲区中，
+ * 并按配置的频率写入 node_status_history 的 cpu_usage / memory_usage / process_id。
+ */
+@Service
+public class ProcessResourceSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessResourceSampler.class);
+
+    @Autowired
+    private NodeProcessSupervisor nodeProcessSupervisor;
+
+    @Autowired
+    private OperationLogService operationLogService;
+
+    @Autowired
+    private NodeLogScanner nodeLogScanner;
+
+    @Autowired
+    private DirectorySizeService directorySizeService;
+
+    @Value("${corda.sampler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${corda.sampler.interval-seconds:5}")
+    private long intervalSeconds;
+
+    // 每个进程保留的样本数（默认 5 秒一次，共 30 分钟）
+    @Value("${corda.sampler.ring-size:360}")
+    private int ringSize;
+
+    // 每采样多少次写一次 node_status_history，0 表示不写
+    @Value("${corda.sampler.persist-every:12}")
+    private int persistEvery;
+
+    private final Map<String, SampleRing> rings = new ConcurrentHashMap<>();
+    private final int cpuCount = Runtime.getRuntime().availableProcessors();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "process-resource-sampler");
+        t.setDaemon(true);
+        return t;
+    });
+    private long round;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !ProcFs.isAvailable()) {
+            logger.info("进程资源采样未启用（enabled={}，/proc 可用={}）", enabled, ProcFs.isAvailable());
+            return;
+        }
+        scheduler.scheduleAtFixedRate(this::sampleQuietly, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void sampleQuietly() {
+        try {
+            sampleAll();
+        } catch (RuntimeException e) {
+            logger.warn("采样进程资源失败: {}", e.getMessage());
+        }
+    }
+
+    void sampleAll() {
+        round++;
+        boolean persist = persistEvery > 0 && round % persistEvery == 0;
+        Set<String> alive = new HashSet<>();
+        for (String name : nodeProcessSupervisor.getRegisteredNames()) {
+            NodeProcessSupervisor.ManagedProcess managed = nodeProcessSupervisor.get(name).orElse(null);
+            if (managed == null || !managed.isAlive()) {
+                continue;
+            }
+            ProcFs.ProcessSample sample = ProcFs.readTreeSample(managed.getHandle());
+            if (sample == null) {
+                continue;
+            }
+            alive.add(name);
+            SampleRing ring = rings.computeIfAbsent(name, k -> new SampleRing(ringSize));
+            // PID 变化（进程被重启）时重新计算差值
+            ring.add(managed.getPid(), System.nanoTime(), System.currentTimeMillis(), sample, cpuCount);
+            if (persist) {
+                persist(name, managed, ring);
+            }
+        }
+        rings.keySet().removeIf(name -> !alive.contains(name) && !nodeProcessSupervisor.get(name).isPresent());
+    }
+
+    private void persist(String name, NodeProcessSupervisor.ManagedProcess managed, SampleRing ring) {
+        Map<String, Object> latest = ring.latest();
+        if (latest == null) {
+            return;
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("status", "RUNNING");
+        status.put("running", true);
+        status.put("processId", String.valueOf(managed.getPid()));
+        // cpu_usage 列为 DECIMAL(5,2)，按整机百分比记录
+        double cpu = Math.min(999.99, ((Number) latest.get("cpuPercent")).doubleValue());
+        status.put("cpuUsage", BigDecimal.valueOf(cpu).setScale(2, RoundingMode.HALF_UP));
+        status.put("memoryUsage", latest.get("rssBytes"));
+        status.put("lastStartTime", Timestamp.from(managed.getStartTime()));
+        status.put("logErrorsCount", nodeLogScanner.getErrorCount(name));
+        status.put("directorySize", directorySizeService.getSize(name));
+        Map<String, Object> checks = new LinkedHashMap<>();
+        checks.put("source", "proc-sampler");
+        checks.put("threads", latest.get("threads"));
+        checks.put("readBytesPerSec", latest.get("readBytesPerSec"));
+        checks.put("writeBytesPerSec", latest.get("writeBytesPerSec"));
+        checks.put("avgCpuPercent", ring.averageCpu(persistEvery));
+        status.put("checks", checks);
+        operationLogService.logNodeStatus(name, status);
+    }
+
+    /**
+     * 所有受管进程的最新样本
+     */
+    public Map<String, Object> getLatest() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        rings.keySet().stream().sorted().forEach(name -> {
+            Map<String, Object> latest = rings.get(name).latest();
+            if (latest != null) {
+                result.put(name, latest);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 某个进程最近 limit 个样本，按时间先后排列
+     */
+    public List<Map<String, Object>> getSamples(String name, int limit) {
+        SampleRing ring = rings.get(name);
+        return ring != null ? ring.snapshot(limit) : List.of();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 固定容量的环形缓冲区；每列一个基本类型数组，写满后覆盖最旧的样本
+     */
+    static class SampleRing {
+        private final long[] timestamps;
+        private final float[] cpuPercent;
+        private final long[] rssBytes;
+        private final float[] readBytesPerSec;
+        private final float[] writeBytesPerSec;
+        private final int[] threads;
+        private int next;
+        private int size;
+
+        private long lastPid = -1;
+        private long lastNanos;
+        private long lastTicks;
+        private long lastRead;
+        private long lastWrite;
+
+        SampleRing(int capacity) {
+            int n = Math.max(2, capacity);
+            timestamps = new long[n];
+            cpuPercent = new float[n];
+            rssBytes = new long[n];
+            readBytesPerSec = new float[n];
+            writeBytesPerSec = new float[n];
+            threads = new int[n];
+        }
+
+        synchronized void add(long pid, long nanos, long wallMillis, ProcFs.ProcessSample sample, int cpuCount) {
+            if (pid != lastPid) {
+                // 第一次见到该进程，只记录基线
+                lastPid = pid;
+                lastNanos = nanos;
+                lastTicks = sample.getCpuTicks();
+                lastRead = sample.getReadBytes();
+                lastWrite = sample.getWriteBytes();
+                return;
+            }
+            double seconds = (nanos - lastNanos) / 1e9;
+            if (seconds <= 0) {
+                return;
+            }
+            long ticks = Math.max(0, sample.getCpuTicks() - lastTicks);
+            timestamps[next] = wallMillis;
+            cpuPercent[next] = (float) (ticks / (double) ProcFs.CLOCK_TICKS_PER_SECOND / seconds / cpuCount * 100);
+            rssBytes[next] = sample.getRssBytes();
+            readBytesPerSec[next] = rate(sample.getReadBytes(), lastRead, seconds);
+            writeBytesPerSec[next] = rate(sample.getWriteBytes(), lastWrite, seconds);
+            threads[next] = sample.getThreads();
+            next = (next + 1) % timestamps.length;
+            size = Math.min(size + 1, timestamps.length);
+
+            lastNanos = nanos;
+            lastTicks = sample.getCpuTicks();
+            lastRead = sample.getReadBytes();
+            lastWrite = sample.getWriteBytes();
+        }
+
+        private static float rate(long current, long previous, double seconds) {
+            return current >= 0 && previous >= 0 ? (float) (Math.max(0, current - previous) / seconds) : -1f;
+        }
+
+        synchronized Map<String, Object> latest() {
+            return size == 0 ? null : toMap((next - 1 + timestamps.length) % timestamps.length);
+        }
+
+        synchronized double averageCpu(int count) {
+            int n = Math.min(Math.max(1, count), size);
+            if (n == 0) {
+                return 0;
+            }
+            double sum = 0;
+            for (int i = 1; i <= n; i++) {
+                sum += cpuPercent[(next - i + timestamps.length) % timestamps.length];
+            }
+            return Math.round(sum / n * 100) / 100.0;
+        }
+
+        synchronized List<Map<String, Object>> snapshot(int limit) {
+            int n = Math.min(limit <= 0 ? size : limit, size);
+            List<Map<String, Object>> samples = new ArrayList<>(n);
+            for (int i = n; i >= 1; i--) {
+                samples.add(toMap((next - i + timestamps.length) % timestamps.length));
+            }
+            return samples;
+        }
+
+        private Map<String, Object> toMap(int index) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("timestamp", timestamps[index]);
+            map.put("cpuPercent", Math.round(cpuPercent[index] * 100) / 100.0);
+            map.put("rssBytes", rssBytes[index]);
+            map.put("readBytesPerSec", (long) readBytesPerSec[index]);
+            map.put("writeBytesPerSec", (long) writeBytesPerSec[index]);
+            map.put("threads", threads[index]);
+            return map;
+        }
+    }
+}
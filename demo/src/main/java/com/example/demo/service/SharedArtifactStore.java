@@ -0,0 +1,295 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * 节点目录共享的 jar 存储：corda.jar、cordapps 和 drivers 中的文件按 SHA-256 只在
+ * build/nodes/.shared/objects 中保存一份，各节点目录中的同名文件换成指向它的硬链接
+ * （文件系统不支持时退化为符号链接）。manifest.properties 记录每个链接对应的摘要，用于校验。
+ */
+@Service
+public class SharedArtifactStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedArtifactStore.class);
+
+    public static final String SHARED_DIR = ".shared";
+    private static final String OBJECTS_DIR = "objects";
+    private static final String MANIFEST_FILE = "manifest.properties";
+    private static final List<String> SHARED_ENTRIES = List.of("corda.jar", "cordapps", "drivers");
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Value("${corda.deploy.shared-artifacts:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 把所有节点目录中的共享文件换成存储中的链接，并清理不再被引用的对象
+     */
+    public synchronized Map<String, Object> deduplicate(File nodesDir) throws IOException {
+        long begin = System.currentTimeMillis();
+        Path shared = nodesDir.toPath().resolve(SHARED_DIR);
+        Path objects = shared.resolve(OBJECTS_DIR);
+        Files.createDirectories(objects);
+
+        Properties previous = loadManifest(shared);
+        Properties manifest = new Properties();
+        int hardlinks = 0;
+        int symlinks = 0;
+        int copies = 0;
+        long logicalBytes = 0;
+        for (File nodeDir : powerShellService.getNodeDirectories()) {
+            for (Path file : sharedFiles(nodeDir.toPath())) {
+                String key = relative(nodesDir, file);
+                // 上次整理后仍指向同一对象的文件无需重新计算摘要
+                String hash = linkedHash(previous.getProperty(key), file, objects);
+                if (hash == null) {
+                    hash = sha256(file);
+                }
+                long size = Files.size(file);
+                Path object = objects.resolve(hash.substring(0, 2)).resolve(hash);
+                String mode = link(file, object);
+                switch (mode) {
+                    case "hardlink" -> hardlinks++;
+                    case "symlink" -> symlinks++;
+                    default -> copies++;
+                }
+                logicalBytes += size;
+                manifest.setProperty(key, hash + ":" + size + ":" + mode);
+            }
+        }
+
+        Set<String> referenced = new HashSet<>();
+        for (String key : manifest.stringPropertyNames()) {
+            referenced.add(manifest.getProperty(key).split(":")[0]);
+        }
+        int removed = removeUnreferenced(objects, referenced);
+        long storedBytes = storedBytes(objects);
+        saveManifest(shared, manifest);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("success", true);
+        report.put("files", manifest.size());
+        report.put("objects", referenced.size());
+        report.put("hardlinks", hardlinks);
+        report.put("symlinks", symlinks);
+        report.put("copies", copies);
+        report.put("removedObjects", removed);
+        report.put("logicalBytes", logicalBytes);
+        report.put("storedBytes", storedBytes);
+        report.put("totalMs", System.currentTimeMillis() - begin);
+        logger.info("共享 jar 存储整理完成: {} 个文件，{} 个对象，逻辑大小 {} 字节，实际占用 {} 字节",
+            manifest.size(), referenced.size(), logicalBytes, storedBytes);
+        return report;
+    }
+
+    /**
+     * 按 manifest 校验：每个节点文件仍指向存储中的对象，对象内容与文件名中的摘要一致
+     */
+    public synchronized Map<String, Object> verify(File nodesDir) throws IOException {
+        Path shared = nodesDir.toPath().resolve(SHARED_DIR);
+        Path objects = shared.resolve(OBJECTS_DIR);
+        Properties manifest = loadManifest(shared);
+        List<String> problems = new ArrayList<>();
+        Set<String> checkedObjects = new HashSet<>();
+
+        for (String key : new TreeSet<>(manifest.stringPropertyNames())) {
+            String hash = manifest.getProperty(key).split(":")[0];
+            Path file = nodesDir.toPath().resolve(key);
+            Path object = objects.resolve(hash.substring(0, 2)).resolve(hash);
+            if (!Files.exists(object)) {
+                problems.add(key + ": 存储对象 " + hash + " 不存在");
+                continue;
+            }
+            if (checkedObjects.add(hash) && !hash.equals(sha256(object))) {
+                problems.add(key + ": 存储对象 " + hash + " 内容已被修改");
+            }
+            if (!Files.exists(file)) {
+                problems.add(key + ": 文件不存在");
+            } else if (!Files.isSameFile(file, object) && !hash.equals(sha256(file))) {
+                problems.add(key + ": 内容与 manifest 不一致");
+            }
+        }
+        // 部署后新增、尚未整理的文件
+        for (File nodeDir : powerShellService.getNodeDirectories()) {
+            for (Path file : sharedFiles(nodeDir.toPath())) {
+                if (!manifest.containsKey(relative(nodesDir, file))) {
+                    problems.add(relative(nodesDir, file) + ": 不在 manifest 中");
+                }
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("success", problems.isEmpty());
+        report.put("files", manifest.size());
+        report.put("objects", checkedObjects.size());
+        report.put("problems", problems);
+        return report;
+    }
+
+    private String linkedHash(String entry, Path file, Path objects) throws IOException {
+        if (entry == null) {
+            return null;
+        }
+        String hash = entry.split(":")[0];
+        Path object = objects.resolve(hash.substring(0, 2)).resolve(hash);
+        return Files.exists(object) && Files.isSameFile(file, object) ? hash : null;
+    }
+
+    // 硬链接优先；跨设备或文件系统不支持时改用相对符号链接；都不行则保留原文件
+    private String link(Path file, Path object) throws IOException {
+        if (Files.isSymbolicLink(file)) {
+            Path target = file.getParent().resolve(Files.readSymbolicLink(file)).normalize();
+            if (target.equals(object.normalize())) {
+                return "symlink";
+            }
+        }
+        if (Files.exists(object) && Files.isSameFile(file, object)) {
+            return "hardlink";
+        }
+        if (!Files.exists(object)) {
+            Files.createDirectories(object.getParent());
+            try {
+                if (Files.isSymbolicLink(file)) {
+                    // 指向旧对象的符号链接不能直接硬链接，否则存储中只是一个链接
+                    Files.copy(file, object);
+                } else {
+                    Files.createLink(object, file);
+                }
+            } catch (FileAlreadyExistsException e) {
+                // 并发整理时另一个节点的同一文件先入库
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(file, object, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (Files.isSameFile(file, object)) {
+                return "hardlink";
+            }
+        }
+
+        // 先在同一目录建好链接，再原子替换原文件
+        Path temp = file.resolveSibling(file.getFileName() + ".link");
+        Files.deleteIfExists(temp);
+        try {
+            Files.createLink(temp, object);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return "hardlink";
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.deleteIfExists(temp);
+        }
+        try {
+            Files.createSymbolicLink(temp, file.getParent().relativize(object));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return "symlink";
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.deleteIfExists(temp);
+            logger.debug("无法为 {} 建立链接，保留原文件: {}", file, e.getMessage());
+            return "copy";
+        }
+    }
+
+    private List<Path> sharedFiles(Path nodeDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String entry : SHARED_ENTRIES) {
+            Path path = nodeDir.resolve(entry);
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else if (Files.isRegularFile(path)) {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+
+    private int removeUnreferenced(Path objects, Set<String> referenced) throws IOException {
+        int removed = 0;
+        List<Path> stored;
+        try (Stream<Path> walk = Files.walk(objects)) {
+            stored = walk.filter(Files::isRegularFile).toList();
+        }
+        for (Path object : stored) {
+            if (!referenced.contains(object.getFileName().toString())) {
+                Files.delete(object);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private long storedBytes(Path objects) throws IOException {
+        try (Stream<Path> walk = Files.walk(objects)) {
+            return walk.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private Properties loadManifest(Path shared) throws IOException {
+        Properties props = new Properties();
+        Path file = shared.resolve(MANIFEST_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                props.load(in);
+            }
+        }
+        return props;
+    }
+
+    private void saveManifest(Path shared, Properties manifest) throws IOException {
+        Path temp = shared.resolve(MANIFEST_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            manifest.store(out, "node file -> sha256:size:link mode");
+        }
+        Files.move(temp, shared.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String relative(File nodesDir, Path file) {
+        return nodesDir.toPath().relativize(file).toString().replace('\\', '/');
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[65536];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,375 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 节点数据库模板：用一个已部署节点的 corda.jar 对模板库执行一次全部 Liquibase 迁移，
+ * 之后新节点的数据库通过 CREATE DATABASE ... TEMPLATE 直接复制，不必每个节点各自迁移一遍。
+ * 模板库的注释中记录 changelog 指纹，changelog 或 Corda 版本变化后自动重建。
+ */
+@Service
+public class TemplateDatabaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateDatabaseService.class);
+
+    private static final String COMMENT_PREFIX = "corda-template:";
+    private static final String WORK_DIR = "build/db-template";
+    private static final List<String> CHANGELOG_DIRS = List.of(
+        "workflows/src/main/resources/migration",
+        "contracts/src/main/resources/migration"
+    );
+
+    @Autowired
+    private PowerShellService powerShellService;
+
+    @Value("${corda.db.admin-url:jdbc:postgresql://localhost:5432/postgres}")
+    private String adminUrl;
+
+    @Value("${corda.db.admin-user:postgres}")
+    private String adminUser;
+
+    @Value("${corda.db.admin-password:890415}")
+    private String adminPassword;
+
+    @Value("${corda.db.template.enabled:false}")
+    private boolean enabled;
+
+    @Value("${corda.db.template.name:corda_node_template}")
+    private String templateName;
+
+    // 迁移以该角色执行；复制出的库由 NodeDatabaseProvisioner.changeOwner 逐个 ALTER … OWNER 把 schema、表和序列转给节点用户
+    @Value("${corda.db.template.owner:corda_template_owner}")
+    private String templateOwner;
+
+    @Value("${corda.db.template.owner-password:123456}")
+    private String templateOwnerPassword;
+
+    @Value("${corda.db.template.migration-timeout-minutes:10}")
+    private long migrationTimeoutMinutes;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    public String getTemplateOwner() {
+        return templateOwner;
+    }
+
+    /**
+     * 模板库与当前 changelog 一致时直接返回；否则重建。无法重建（例如还没有部署过节点）时返回 ready=false，
+     * 调用方退回到创建空库、由节点启动时自行迁移。
+     */
+    public synchronized Map<String, Object> ensureTemplate() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("template", templateName);
+        long begin = System.nanoTime();
+        try {
+            String fingerprint = fingerprint();
+            status.put("fingerprint", fingerprint);
+            try (Connection admin = openAdmin()) {
+                if ((COMMENT_PREFIX + fingerprint).equals(currentComment(admin))) {
+                    status.put("ready", true);
+                    status.put("rebuilt", false);
+                    return status;
+                }
+            }
+            rebuild(fingerprint, status);
+        } catch (Exception e) {
+            logger.error("准备模板数据库 {} 失败: {}", templateName, e.getMessage());
+            status.put("ready", false);
+            status.put("message", e.getMessage());
+        }
+        status.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return status;
+    }
+
+    /**
+     * 强制重建模板库（changelog 未变化时也重新迁移）
+     */
+    public synchronized Map<String, Object> rebuild() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("template", templateName);
+        long begin = System.nanoTime();
+        try {
+            String fingerprint = fingerprint();
+            status.put("fingerprint", fingerprint);
+            rebuild(fingerprint, status);
+        } catch (Exception e) {
+            logger.error("重建模板数据库 {} 失败: {}", templateName, e.getMessage());
+            status.put("ready", false);
+            status.put("message", e.getMessage());
+        }
+        status.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+        return status;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("template", templateName);
+        try {
+            String fingerprint = fingerprint();
+            status.put("fingerprint", fingerprint);
+            try (Connection admin = openAdmin()) {
+                String comment = currentComment(admin);
+                status.put("exists", comment != null || databaseExists(admin, templateName));
+                status.put("ready", (COMMENT_PREFIX + fingerprint).equals(comment));
+                status.put("builtFingerprint", comment != null && comment.startsWith(COMMENT_PREFIX)
+                    ? comment.substring(COMMENT_PREFIX.length()) : null);
+            }
+        } catch (Exception e) {
+            status.put("ready", false);
+            status.put("message", e.getMessage());
+        }
+        return status;
+    }
+
+    private void rebuild(String fingerprint, Map<String, Object> status) throws IOException, SQLException, InterruptedException {
+        Path projectRoot = powerShellService.getProjectModel().getProjectRoot();
+        Path sourceNode = findDeployedNode(projectRoot);
+        if (sourceNode == null) {
+            status.put("ready", false);
+            status.put("rebuilt", false);
+            status.put("message", "build/nodes 下没有已部署的节点，暂无法迁移模板库");
+            return;
+        }
+
+        logger.info("开始重建模板数据库 {}（指纹 {}），使用节点目录 {}", templateName, fingerprint, sourceNode);
+        try (Connection admin = openAdmin()) {
+            if (!databaseExists(admin, "pg_roles", "rolname", templateOwner)) {
+                execute(admin, "CREATE ROLE \"" + templateOwner + "\" WITH LOGIN PASSWORD '"
+                    + templateOwnerPassword.replace("'", "''") + "'");
+            }
+            if (databaseExists(admin, templateName)) {
+                // 模板库不能直接删除，且不能有其他连接
+                execute(admin, "ALTER DATABASE \"" + templateName + "\" WITH IS_TEMPLATE false ALLOW_CONNECTIONS true");
+                terminateConnections(admin, templateName);
+                execute(admin, "DROP DATABASE \"" + templateName + "\"");
+            }
+            // 模板库本身归管理员所有，模板角色只拥有库内的 public schema 和迁移创建的对象
+            execute(admin, "CREATE DATABASE \"" + templateName + "\"");
+        }
+        try (Connection template = DriverManager.getConnection(databaseUrl(templateName), adminUser, adminPassword)) {
+            execute(template, "ALTER SCHEMA public OWNER TO \"" + templateOwner + "\"");
+        }
+
+        runMigration(projectRoot, sourceNode);
+
+        try (Connection admin = openAdmin()) {
+            terminateConnections(admin, templateName);
+            // 迁移成功后才写入指纹，中途失败的模板下次会重建
+            execute(admin, "COMMENT ON DATABASE \"" + templateName + "\" IS '" + COMMENT_PREFIX + fingerprint + "'");
+            execute(admin, "ALTER DATABASE \"" + templateName + "\" WITH IS_TEMPLATE true ALLOW_CONNECTIONS false");
+        }
+        status.put("ready", true);
+        status.put("rebuilt", true);
+        status.put("sourceNode", sourceNode.getFileName().toString());
+        logger.info("模板数据库 {} 重建完成", templateName);
+    }
+
+    // 在独立目录中以节点的 corda.jar 执行 run-migration-scripts，数据源指向模板库
+    private void runMigration(Path projectRoot, Path sourceNode) throws IOException, InterruptedException {
+        Path workDir = projectRoot.resolve(WORK_DIR);
+        deleteRecursively(workDir);
+        Files.createDirectories(workDir);
+        for (String dir : List.of("cordapps", "drivers", "certificates")) {
+            copyRecursively(sourceNode.resolve(dir), workDir.resolve(dir));
+        }
+        // HOCON 中后出现的键覆盖前面的值
+        String nodeConf = Files.readString(sourceNode.resolve("node.conf"), StandardCharsets.UTF_8)
+            + "\ndataSourceProperties {\n"
+            + "    \"dataSource.url\" = \"" + databaseUrl(templateName) + "\"\n"
+            + "    \"dataSource.user\" = \"" + templateOwner + "\"\n"
+            + "    \"dataSource.password\" = \"" + templateOwnerPassword + "\"\n"
+            + "}\n";
+        Files.writeString(workDir.resolve("node.conf"), nodeConf, StandardCharsets.UTF_8);
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", isWindows() ? "java.exe" : "java").toString());
+        command.add("-jar");
+        command.add(sourceNode.resolve("corda.jar").toString());
+        command.add("run-migration-scripts");
+        command.add("--core-schemas");
+        command.add("--app-schemas");
+        command.add("--base-directory");
+        command.add(workDir.toString());
+
+        File logFile = workDir.resolve("migration.log").toFile();
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workDir.toFile());
+        pb.redirectErrorStream(true);
+        pb.redirectOutput(logFile);
+        Process process = pb.start();
+        if (!process.waitFor(migrationTimeoutMinutes, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IOException("模板库迁移超时（" + migrationTimeoutMinutes + " 分钟），日志: " + logFile);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("模板库迁移失败，退出码 " + process.exitValue() + "，日志: " + logFile);
+        }
+    }
+
+    private Path findDeployedNode(Path projectRoot) throws IOException {
+        Path nodesDir = projectRoot.resolve("build/nodes");
+        if (!Files.isDirectory(nodesDir)) {
+            return null;
+        }
+        try (Stream<Path> dirs = Files.list(nodesDir)) {
+            return dirs.filter(dir -> Files.isRegularFile(dir.resolve("corda.jar")) && Files.isRegularFile(dir.resolve("node.conf")))
+                .sorted()
+                .findFirst()
+                .orElse(null);
+        }
+    }
+
+    /**
+     * changelog 文件内容和 Corda 版本的摘要；任一变化都会使模板失效
+     */
+    String fingerprint() throws IOException {
+        Path projectRoot = powerShellService.getProjectModel().getProjectRoot();
+        List<Path> files = new ArrayList<>();
+        for (String dir : CHANGELOG_DIRS) {
+            Path path = projectRoot.resolve(dir);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).forEach(files::add);
+                }
+            }
+        }
+        Path constants = projectRoot.resolve("../corda_setting/constants.properties").normalize();
+        if (Files.isRegularFile(constants)) {
+            files.add(constants);
+        }
+        files.sort(Comparator.comparing(p -> projectRoot.relativize(p).toString().replace('\\', '/')));
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Path file : files) {
+                digest.update(projectRoot.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    private Connection openAdmin() throws SQLException {
+        return DriverManager.getConnection(adminUrl, adminUser, adminPassword);
+    }
+
+    // 把管理员连接串中的数据库名替换为指定数据库
+    private String databaseUrl(String database) {
+        int query = adminUrl.indexOf('?');
+        String base = query >= 0 ? adminUrl.substring(0, query) : adminUrl;
+        String params = query >= 0 ? adminUrl.substring(query) : "";
+        return base.substring(0, base.lastIndexOf('/') + 1) + database + params;
+    }
+
+    private String currentComment(Connection admin) throws SQLException {
+        try (PreparedStatement ps = admin.prepareStatement(
+                "SELECT shobj_description(oid, 'pg_database') FROM pg_database WHERE datname = ?")) {
+            ps.setString(1, templateName);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static boolean databaseExists(Connection admin, String database) throws SQLException {
+        return databaseExists(admin, "pg_database", "datname", database);
+    }
+
+    private static boolean databaseExists(Connection admin, String table, String column, String value) throws SQLException {
+        try (PreparedStatement ps = admin.prepareStatement("SELECT 1 FROM " + table + " WHERE " + column + " = ?")) {
+            ps.setString(1, value);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static void terminateConnections(Connection admin, String database) throws SQLException {
+        try (PreparedStatement ps = admin.prepareStatement(
+                "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE datname = ? AND pid <> pg_backend_pid()")) {
+            ps.setString(1, database);
+            ps.executeQuery().close();
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void copyRecursively(Path source, Path target) throws IOException {
+        if (!Files.isDirectory(source)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(source)) {
+            walk.forEach(path -> {
+                try {
+                    Path dest = target.resolve(source.relativize(path).toString());
+                    if (Files.isDirectory(path)) {
+                        Files.createDirectories(dest);
+                    } else {
+                        Files.copy(path, dest);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Corda 项目的一次解析结果（不可变）：关键文件是否存在、build.gradle 中定义的节点及其端口和数据库配置。
+ */
+public class CordaProjectModel {
+
+    private final long version;
+    private final Path projectRoot;
+    private final Path scriptPath;
+    private final boolean rootExists;
+    private final boolean buildGradleExists;
+    private final boolean scriptExists;
+    private final boolean setupSqlExists;
+    private final boolean runnodesExists;
+    private final List<NodeDefinition> nodes;
+    private final String fingerprint;
+    private final long loadedAt;
+
+    private CordaProjectModel(long version, Path projectRoot, Path scriptPath, boolean rootExists, boolean buildGradleExists,
+                              boolean scriptExists, boolean setupSqlExists, boolean runnodesExists,
+                              List<NodeDefinition> nodes, String fingerprint) {
+        this.version = version;
+        this.projectRoot = projectRoot;
+        this.scriptPath = scriptPath;
+        this.rootExists = rootExists;
+        this.buildGradleExists = buildGradleExists;
+        this.scriptExists = scriptExists;
+        this.setupSqlExists = setupSqlExists;
+        this.runnodesExists = runnodesExists;
+        this.nodes = nodes;
+        this.fingerprint = fingerprint;
+        this.loadedAt = System.currentTimeMillis();
+    }
+
+    public static CordaProjectModel load(Path projectRoot, Path scriptPath, long version) {
+        boolean rootExists = Files.isDirectory(projectRoot);
+        Path buildGradle = projectRoot.resolve("build.gradle");
+        boolean buildGradleExists = Files.isRegularFile(buildGradle);
+        boolean scriptExists = Files.isRegularFile(scriptPath);
+        boolean setupSqlExists = Files.isRegularFile(projectRoot.resolve("setup_corda_db.sql"));
+        Path nodesDir = projectRoot.resolve("build/nodes");
+        boolean runnodesExists = Files.exists(nodesDir.resolve("runnodes")) || Files.exists(nodesDir.resolve("runnodes.bat"));
+
+        List<NodeDefinition> nodes = new ArrayList<>();
+        String content = "";
+        if (buildGradleExists) {
+            try {
+                content = Files.readString(buildGradle, StandardCharsets.UTF_8);
+                for (GradleNodeBlocks.Block block : GradleNodeBlocks.parse(content).getNodes()) {
+                    nodes.add(NodeDefinition.fromBlock(block));
+                }
+            } catch (IOException e) {
+                buildGradleExists = false;
+            } catch (IllegalArgumentException e) {
+                // deployNodes 块不完整（例如正在编辑），暂按没有节点处理
+                nodes.clear();
+            }
+        }
+        String fingerprint = rootExists + "|" + buildGradleExists + "|" + scriptExists + "|" + setupSqlExists + "|"
+            + runnodesExists + "|" + content.length() + "|" + content.hashCode();
+        return new CordaProjectModel(version, projectRoot, scriptPath, rootExists, buildGradleExists, scriptExists,
+            setupSqlExists, runnodesExists, Collections.unmodifiableList(nodes), fingerprint);
+    }
+
+    // 内容相同则沿用原版本号
+    public boolean sameContent(CordaProjectModel other) {
+        return other != null && fingerprint.equals(other.fingerprint);
+    }
+
+    public CordaProjectModel withVersion(long newVersion) {
+        return new CordaProjectModel(newVersion, projectRoot, scriptPath, rootExists, buildGradleExists, scriptExists,
+            setupSqlExists, runnodesExists, nodes, fingerprint);
+    }
+
+    public boolean isValid() {
+        return rootExists && buildGradleExists && scriptExists;
+    }
+
+    public List<String> getNodeNames() {
+        List<String> names = new ArrayList<>(nodes.size());
+        for (NodeDefinition node : nodes) {
+            names.add(node.getLegalName());
+        }
+        return names;
+    }
+
+    public NodeDefinition findNode(String legalName) {
+        for (NodeDefinition node : nodes) {
+            if (node.getLegalName().equals(legalName)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    public long getVersion() { return version; }
+    public Path getProjectRoot() { return projectRoot; }
+    public Path getScriptPath() { return scriptPath; }
+    public boolean isRootExists() { return rootExists; }
+    public boolean isBuildGradleExists() { return buildGradleExists; }
+    public boolean isScriptExists() { return scriptExists; }
+    public boolean isSetupSqlExists() { return setupSqlExists; }
+    public boolean isRunnodesExists() { return runnodesExists; }
+    public List<NodeDefinition> getNodes() { return nodes; }
+    public long getLoadedAt() { return loadedAt; }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在内存中保存 CordaProjectModel，并用 WatchService 监听项目目录，文件变化后重新解析。
+ * 读取模型不做任何文件 IO；无法监听时（例如项目目录还不存在）退化为每次读取都重新解析。
+ */
+public class CordaProjectWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CordaProjectWatcher.class);
+
+    // 同一次保存往往产生多个事件，合并后只解析一次
+    private static final long DEBOUNCE_MS = 100;
+
+    private final Path projectRoot;
+    private final Path scriptPath;
+    private final Set<Path> registered = new HashSet<>();
+    private volatile CordaProjectModel model;
+    private volatile boolean watching;
+    private volatile boolean closed;
+    private WatchService watchService;
+
+    public CordaProjectWatcher(Path projectRoot, Path scriptPath) {
+        this.projectRoot = projectRoot.toAbsolutePath().normalize();
+        this.scriptPath = scriptPath.toAbsolutePath().normalize();
+        this.model = CordaProjectModel.load(this.projectRoot, this.scriptPath, 1);
+        start();
+    }
+
+    public CordaProjectModel current() {
+        return watching ? model : refresh();
+    }
+
+    /**
+     * 立即重新解析；内容有变化时版本号加一
+     */
+    public synchronized CordaProjectModel refresh() {
+        CordaProjectModel previous = model;
+        CordaProjectModel next = CordaProjectModel.load(projectRoot, scriptPath, previous.getVersion());
+        if (!next.sameContent(previous)) {
+            next = next.withVersion(previous.getVersion() + 1);
+            logger.info("Corda 项目模型已更新，版本 {}，节点 {} 个", next.getVersion(), next.getNodes().size());
+            model = next;
+        }
+        return model;
+    }
+
+    public boolean isWatching() {
+        return watching;
+    }
+
+    private void start() {
+        if (!Files.isDirectory(projectRoot)) {
+            logger.warn("Corda 项目目录不存在，暂不监听文件变化: {}", projectRoot);
+            return;
+        }
+        try {
+            watchService = projectRoot.getFileSystem().newWatchService();
+            registerDirectories();
+        } catch (IOException e) {
+            logger.warn("无法监听 Corda 项目目录，改为每次读取时重新解析: {}", e.getMessage());
+            return;
+        }
+        Thread thread = new Thread(this::watchLoop, "corda-project-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        watching = true;
+    }
+
+    // 项目根、clients、build、build/nodes 以及脚本所在目录；目录后创建的会在下次事件时补注册
+    private synchronized void registerDirectories() throws IOException {
+        for (Path dir : List.of(projectRoot, projectRoot.resolve("clients"), projectRoot.resolve("build"),
+                projectRoot.resolve("build/nodes"), scriptPath.getParent())) {
+            if (dir != null && Files.isDirectory(dir) && registered.add(dir)) {
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        }
+    }
+
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.take();
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MS);
+                do {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        synchronized (this) {
+                            registered.remove((Path) key.watchable());
+                        }
+                    }
+                } while ((key = watchService.poll()) != null);
+                registerDirectories();
+                refresh();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // close() 已调用
+        } catch (IOException e) {
+            logger.warn("监听 Corda 项目目录失败，改为每次读取时重新解析: {}", e.getMessage());
+        } finally {
+            watching = false;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        watching = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("关闭 WatchService 失败: {}", e.getMessage());
+            }
+        }
+    }
+}
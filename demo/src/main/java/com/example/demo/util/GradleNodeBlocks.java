@@ -0,0 +1,163 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 定位 build.gradle 中 deployNodes 任务里的 nodeDefaults 块和各个 node 块（按花括号配对，不依赖正则贪婪匹配）
+ */
+public class GradleNodeBlocks {
+
+    private static final Pattern DEPLOY_NODES_TASK = Pattern.compile("task\\s+deployNodes\\s*\\([^)]*\\)\\s*\\{");
+    private static final Pattern NODE_START = Pattern.compile("(?m)^[ \\t]*node\\s*\\{");
+    private static final Pattern NODE_DEFAULTS_START = Pattern.compile("(?m)^[ \\t]*nodeDefaults\\s*\\{");
+    private static final Pattern NAME = Pattern.compile("name\\s+\"([^\"]+)\"");
+    private static final Pattern ORGANISATION = Pattern.compile("O=([^,]+)");
+
+    private final String content;
+    private final int taskStart;
+    private final int taskEnd;
+    private final Block nodeDefaults;
+    private final List<Block> nodes;
+
+    private GradleNodeBlocks(String content, int taskStart, int taskEnd, Block nodeDefaults, List<Block> nodes) {
+        this.content = content;
+        this.taskStart = taskStart;
+        this.taskEnd = taskEnd;
+        this.nodeDefaults = nodeDefaults;
+        this.nodes = nodes;
+    }
+
+    public static GradleNodeBlocks parse(String content) {
+        Matcher task = DEPLOY_NODES_TASK.matcher(content);
+        if (!task.find()) {
+            return new GradleNodeBlocks(content, -1, -1, null, List.of());
+        }
+        int taskStart = task.start();
+        int taskEnd = matchingBrace(content, task.end() - 1);
+        if (taskEnd < 0) {
+            throw new IllegalArgumentException("build.gradle 中的 deployNodes 任务缺少配对的右花括号");
+        }
+        String body = content.substring(0, taskEnd);
+
+        Block defaults = null;
+        Matcher d = NODE_DEFAULTS_START.matcher(body);
+        if (d.find(task.end())) {
+            int end = matchingBrace(content, d.end() - 1);
+            defaults = new Block(null, lineStart(content, d.start()), end + 1, content);
+        }
+
+        List<Block> nodes = new ArrayList<>();
+        Matcher n = NODE_START.matcher(body);
+        int from = task.end();
+        while (n.find(from)) {
+            int end = matchingBrace(content, n.end() - 1);
+            if (end < 0) {
+                break;
+            }
+            Block block = new Block(null, lineStart(content, n.start()), end + 1, content);
+            Matcher name = NAME.matcher(block.getText());
+            nodes.add(new Block(name.find() ? name.group(1) : null, block.getStart(), block.getEnd(), content));
+            from = end + 1;
+        }
+        return new GradleNodeBlocks(content, taskStart, taskEnd, defaults, nodes);
+    }
+
+    // 从 X.500 名称中取出组织名，deployNodes 用它作为节点目录名
+    public static String directoryName(String legalName) {
+        if (legalName == null) return null;
+        Matcher m = ORGANISATION.matcher(legalName);
+        return m.find() ? m.group(1).trim() : legalName;
+    }
+
+    private static int lineStart(String content, int index) {
+        int i = index;
+        while (i > 0 && content.charAt(i - 1) != '\n') {
+            i--;
+        }
+        return i;
+    }
+
+    // 返回与 openIndex 处 '{' 配对的 '}' 下标，跳过字符串字面量和注释
+    public static int matchingBrace(String content, int openIndex) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = openIndex; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quote == 0 && c == '/' && i + 1 < content.length()) {
+                char next = content.charAt(i + 1);
+                if (next == '/') {
+                    int eol = content.indexOf('\n', i);
+                    i = eol < 0 ? content.length() : eol;
+                    continue;
+                }
+                if (next == '*') {
+                    int close = content.indexOf("*/", i + 2);
+                    i = close < 0 ? content.length() : close + 1;
+                    continue;
+                }
+            }
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+                continue;
+            }
+            if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public boolean hasDeployNodesTask() { return taskStart >= 0; }
+    public int getTaskStart() { return taskStart; }
+    // deployNodes 任务结尾 '}' 的下标
+    public int getTaskEnd() { return taskEnd; }
+    public Block getNodeDefaults() { return nodeDefaults; }
+    public List<Block> getNodes() { return nodes; }
+    public String getContent() { return content; }
+
+    public Block findNode(String legalName) {
+        for (Block block : nodes) {
+            if (legalName.equals(block.getName())) {
+                return block;
+            }
+        }
+        return null;
+    }
+
+    public static class Block {
+        private final String name;
+        private final int start;
+        private final int end;
+        private final String text;
+
+        public Block(String name, int start, int end, String content) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.text = content.substring(start, end);
+        }
+
+        // 节点的 X.500 名称（nodeDefaults 块为 null）
+        public String getName() { return name; }
+        // 块所在行的行首下标
+        public int getStart() { return start; }
+        // 块结尾 '}' 之后的下标
+        public int getEnd() { return end; }
+        public String getText() { return text; }
+        public String getDirectoryName() { return directoryName(name); }
+    }
+}
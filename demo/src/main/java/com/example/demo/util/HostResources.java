@@ -0,0 +1,115 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本机内存和 CPU 的一次快照。Linux 上读取 /proc/meminfo 和 /proc/loadavg；
+ * 其他系统退回到 OperatingSystemMXBean。
+ */
+public class HostResources {
+
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path LOADAVG = Paths.get("/proc/loadavg");
+
+    private final long memTotalBytes;
+    private final long memAvailableBytes;
+    private final long swapTotalBytes;
+    private final long swapFreeBytes;
+    private final int cpuCount;
+    private final double loadAverage;
+    private final String source;
+
+    public HostResources(long memTotalBytes, long memAvailableBytes, long swapTotalBytes, long swapFreeBytes,
+                         int cpuCount, double loadAverage, String source) {
+        this.memTotalBytes = memTotalBytes;
+        this.memAvailableBytes = memAvailableBytes;
+        this.swapTotalBytes = swapTotalBytes;
+        this.swapFreeBytes = swapFreeBytes;
+        this.cpuCount = cpuCount;
+        this.loadAverage = loadAverage;
+        this.source = source;
+    }
+
+    public static HostResources read() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        if (Files.isReadable(MEMINFO)) {
+            try {
+                Map<String, Long> info = parseMeminfo(Files.readString(MEMINFO, StandardCharsets.US_ASCII));
+                long total = info.getOrDefault("MemTotal", 0L);
+                // 老内核没有 MemAvailable，用 MemFree + Cached 近似
+                long available = info.containsKey("MemAvailable") ? info.get("MemAvailable")
+                    : info.getOrDefault("MemFree", 0L) + info.getOrDefault("Cached", 0L);
+                return new HostResources(total, available, info.getOrDefault("SwapTotal", 0L),
+                    info.getOrDefault("SwapFree", 0L), cpus, readLoadAverage(), "/proc");
+            } catch (IOException e) {
+                // 退回到 MXBean
+            }
+        }
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long total = 0;
+        long free = 0;
+        long swapTotal = 0;
+        long swapFree = 0;
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun) {
+            total = sun.getTotalMemorySize();
+            free = sun.getFreeMemorySize();
+            swapTotal = sun.getTotalSwapSpaceSize();
+            swapFree = sun.getFreeSwapSpaceSize();
+        }
+        return new HostResources(total, free, swapTotal, swapFree, cpus, os.getSystemLoadAverage(), "mxbean");
+    }
+
+    // /proc/meminfo 的值以 kB 为单位
+    static Map<String, Long> parseMeminfo(String content) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (String line : content.split("\n")) {
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String[] parts = line.substring(colon + 1).trim().split("\\s+");
+            try {
+                long value = Long.parseLong(parts[0]);
+                values.put(line.substring(0, colon), parts.length > 1 && parts[1].equalsIgnoreCase("kB") ? value * 1024 : value);
+            } catch (NumberFormatException e) {
+                // 忽略无法解析的行
+            }
+        }
+        return values;
+    }
+
+    private static double readLoadAverage() {
+        try {
+            return Double.parseDouble(Files.readString(LOADAVG, StandardCharsets.US_ASCII).trim().split("\\s+")[0]);
+        } catch (IOException | RuntimeException e) {
+            return ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        }
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("memTotalMb", memTotalBytes / (1024 * 1024));
+        map.put("memAvailableMb", memAvailableBytes / (1024 * 1024));
+        map.put("swapTotalMb", swapTotalBytes / (1024 * 1024));
+        map.put("swapFreeMb", swapFreeBytes / (1024 * 1024));
+        map.put("cpuCount", cpuCount);
+        map.put("loadAverage", loadAverage);
+        map.put("source", source);
+        return map;
+    }
+
+    public long getMemTotalBytes() { return memTotalBytes; }
+    public long getMemAvailableBytes() { return memAvailableBytes; }
+    public long getSwapTotalBytes() { return swapTotalBytes; }
+    public long getSwapFreeBytes() { return swapFreeBytes; }
+    public int getCpuCount() { return cpuCount; }
+    public double getLoadAverage() { return loadAverage; }
+    public String getSource() { return source; }
+}
@@ -0,0 +1,103 @@
+package com.example.demo.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * deployNodes 生成的 node.conf 中管理器关心的字段（只做轻量解析，不引入 HOCON 依赖）
+ */
+public class NodeConf {
+
+    private static final Pattern LEGAL_NAME = Pattern.compile("myLegalName\\s*[=:]\\s*\"([^\"]+)\"");
+    private static final Pattern P2P_ADDRESS = Pattern.compile("p2pAddress\\s*[=:]\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern RPC_ADDRESS = Pattern.compile("(?<![A-Za-z])address\\s*[=:]\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern ADMIN_ADDRESS = Pattern.compile("adminAddress\\s*[=:]\\s*\"?([^\"\\s]+)\"?");
+    private static final Pattern NOTARY = Pattern.compile("(?m)^\\s*notary\\s*[{=:]");
+    private static final Pattern RPC_SETTINGS = Pattern.compile("(?s)rpcSettings\\s*[=:]?\\s*\\{(.*?)}");
+    private static final Pattern DATA_SOURCE_URL = Pattern.compile("\"?dataSource\\.url\"?\\s*[=:]\\s*\"([^\"]+)\"");
+    private static final Pattern DATA_SOURCE_USER = Pattern.compile("\"?dataSource\\.user\"?\\s*[=:]\\s*\"([^\"]+)\"");
+    private static final Pattern DATA_SOURCE_PASSWORD = Pattern.compile("\"?dataSource\\.password\"?\\s*[=:]\\s*\"([^\"]+)\"");
+
+    private final String legalName;
+    private final String p2pAddress;
+    private final String rpcAddress;
+    private final String adminAddress;
+    private final boolean notary;
+    private final String dataSourceUrl;
+    private final String dataSourceUser;
+    private final String dataSourcePassword;
+
+    public NodeConf(String legalName, String p2pAddress, String rpcAddress, String adminAddress, boolean notary,
+                    String dataSourceUrl, String dataSourceUser, String dataSourcePassword) {
+        this.legalName = legalName;
+        this.p2pAddress = p2pAddress;
+        this.rpcAddress = rpcAddress;
+        this.adminAddress = adminAddress;
+        this.notary = notary;
+        this.dataSourceUrl = dataSourceUrl;
+        this.dataSourceUser = dataSourceUser;
+        this.dataSourcePassword = dataSourcePassword;
+    }
+
+    public static NodeConf read(File nodeConfFile) throws IOException {
+        return parse(Files.readString(nodeConfFile.toPath(), StandardCharsets.UTF_8));
+    }
+
+    public static NodeConf parse(String content) {
+        String rpcAddress = null;
+        String adminAddress = null;
+        Matcher rpcSettings = RPC_SETTINGS.matcher(content);
+        if (rpcSettings.find()) {
+            rpcAddress = find(RPC_ADDRESS, rpcSettings.group(1));
+            adminAddress = find(ADMIN_ADDRESS, rpcSettings.group(1));
+        }
+        return new NodeConf(
+            find(LEGAL_NAME, content),
+            find(P2P_ADDRESS, content),
+            rpcAddress,
+            adminAddress,
+            NOTARY.matcher(content).find(),
+            find(DATA_SOURCE_URL, content),
+            find(DATA_SOURCE_USER, content),
+            find(DATA_SOURCE_PASSWORD, content)
+        );
+    }
+
+    private static String find(Pattern pattern, String content) {
+        Matcher m = pattern.matcher(content);
+        return m.find() ? m.group(1) : null;
+    }
+
+    // "host:port" 中的主机部分
+    public static String hostOf(String address) {
+        if (address == null) return null;
+        int idx = address.lastIndexOf(':');
+        return idx > 0 ? address.substring(0, idx) : address;
+    }
+
+    // "host:port" 中的端口部分
+    public static Integer portOf(String address) {
+        if (address == null) return null;
+        int idx = address.lastIndexOf(':');
+        try {
+            return Integer.parseInt(idx >= 0 ? address.substring(idx + 1) : address);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getLegalName() { return legalName; }
+    public String getP2pAddress() { return p2pAddress; }
+    public String getRpcAddress() { return rpcAddress; }
+    public String getAdminAddress() { return adminAddress; }
+    public boolean isNotary() { return notary; }
+    public String getDataSourceUrl() { return dataSourceUrl; }
+    public String getDataSourceUser() { return dataSourceUser; }
+    public String getDataSourcePassword() { return dataSourcePassword; }
+    public Integer getRpcPort() { return portOf(rpcAddress); }
+    public String getRpcHost() { return hostOf(rpcAddress); }
+}
@@ -0,0 +1,167 @@
+package com.example.demo.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * build.gradle 中一个 node 块对应的节点定义：端口、数据库以及对应的 webserver 任务名。
+ * 既可以从已有的 node 块解析，也可以渲染出与 add_node.ps1 相同格式的配置文本。
+ */
+public class NodeDefinition {
+
+    private static final Pattern P2P_PORT = Pattern.compile("p2pPort\\s+(\\d+)");
+    private static final Pattern P2P_ADDRESS = Pattern.compile("p2pAddress\\s+\"[^\"]*:(\\d+)\"");
+    private static final Pattern RPC_ADDRESS = Pattern.compile("(?<![A-Za-z])address\\(\"[^\"]*:(\\d+)\"\\)");
+    private static final Pattern ADMIN_ADDRESS = Pattern.compile("adminAddress\\(\"[^\"]*:(\\d+)\"\\)");
+    private static final Pattern DB_URL = Pattern.compile("\"dataSource\\.url\"\\s*:\\s*\"jdbc:postgresql://[^/\"]+/([^\"?]+)");
+    private static final Pattern DB_USER = Pattern.compile("\"dataSource\\.user\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern DB_PASSWORD = Pattern.compile("\"dataSource\\.password\"\\s*:\\s*\"([^\"]*)\"");
+    private static final Pattern NOTARY = Pattern.compile("(?m)^\\s*notary\\s*=");
+    private static final String DEFAULT_DB_PASSWORD = "123456";
+    private static final Pattern PARTY_LETTER = Pattern.compile("O=Party([A-Z])");
+
+    private final String legalName;
+    private final Integer p2pPort;
+    private final Integer rpcPort;
+    private final Integer adminPort;
+    private final String dbName;
+    private final String dbUser;
+    private final String dbPassword;
+    private final boolean notary;
+
+    public NodeDefinition(String legalName, Integer p2pPort, Integer rpcPort, Integer adminPort,
+                          String dbName, String dbUser, boolean notary) {
+        this(legalName, p2pPort, rpcPort, adminPort, dbName, dbUser, null, notary);
+    }
+
+    public NodeDefinition(String legalName, Integer p2pPort, Integer rpcPort, Integer adminPort,
+                          String dbName, String dbUser, String dbPassword, boolean notary) {
+        this.legalName = legalName;
+        this.p2pPort = p2pPort;
+        this.rpcPort = rpcPort;
+        this.adminPort = adminPort;
+        this.dbName = dbName;
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
+        this.notary = notary;
+    }
+
+    public static NodeDefinition fromBlock(GradleNodeBlocks.Block block) {
+        String text = block.getText();
+        Integer p2p = intOf(P2P_PORT, text);
+        if (p2p == null) {
+            p2p = intOf(P2P_ADDRESS, text);
+        }
+        return new NodeDefinition(block.getName(), p2p, intOf(RPC_ADDRESS, text), intOf(ADMIN_ADDRESS, text),
+            find(DB_URL, text), find(DB_USER, text), find(DB_PASSWORD, text), NOTARY.matcher(text).find());
+    }
+
+    public NodeDefinition withPorts(int p2p, int rpc, int admin) {
+        return new NodeDefinition(legalName, p2p, rpc, admin, dbName, dbUser, dbPassword, notary);
+    }
+
+    public NodeDefinition withDatabase(String name, String user) {
+        return new NodeDefinition(legalName, p2pPort, rpcPort, adminPort, name, user, dbPassword, notary);
+    }
+
+    /**
+     * 与 add_node.ps1 的 Auto-GenerateDbConfig 相同的命名规则：O=PartyX -> corda_party_x / user_x
+     */
+    public static String[] autoDatabase(String legalName) {
+        String suffix;
+        Matcher letter = PARTY_LETTER.matcher(legalName);
+        if (letter.find()) {
+            suffix = letter.group(1).toLowerCase();
+        } else {
+            String organisation = GradleNodeBlocks.directoryName(legalName);
+            if (organisation == null || organisation.equals(legalName)) {
+                throw new IllegalArgumentException("无法从节点名称 '" + legalName + "' 中提取组织名称");
+            }
+            suffix = organisation.replaceFirst("^Party", "").toLowerCase();
+        }
+        return new String[] { "corda_party_" + suffix, "user_" + suffix };
+    }
+
+    // 与 add_node.ps1 相同：run + 去掉特殊字符的组织名 + Server
+    public String getWebserverTaskName() {
+        return "run" + getDirectoryName().replaceAll("[^a-zA-Z0-9]", "") + "Server";
+    }
+
+    public String getDirectoryName() {
+        return GradleNodeBlocks.directoryName(legalName);
+    }
+
+    public String renderGradleBlock() {
+        return "    node {\n"
+            + "        name \"" + legalName + "\"\n"
+            + "        p2pPort " + p2pPort + "\n"
+            + "        rpcSettings {\n"
+            + "            address(\"localhost:" + rpcPort + "\")\n"
+            + "            adminAddress(\"localhost:" + adminPort + "\")\n"
+            + "        }\n"
+            + "        rpcUsers = [[ user: \"user1\", \"password\": \"test\", \"permissions\": [\"ALL\"]]]\n"
+            + "        extraConfig = [\n"
+            + "             dataSourceProperties: [\n"
+            + "                 dataSourceClassName: \"org.postgresql.ds.PGSimpleDataSource\",\n"
+            + "                 \"dataSource.url\": \"jdbc:postgresql://localhost:5432/" + dbName + "\",\n"
+            + "                 \"dataSource.user\": \"" + dbUser + "\",\n"
+            + "                 \"dataSource.password\": \"" + groovyString(getDbPassword()) + "\"\n"
+            + "             ]\n"
+            + "        ]\n"
+            + "    }";
+    }
+
+    // Groovy 双引号字符串中的 \、" 和 $ 需要转义
+    private static String groovyString(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("$", "\\$");
+    }
+
+    public String renderDriversLine() {
+        return "    into file(\"${buildDir}/nodes/" + getDirectoryName() + "/drivers\")";
+    }
+
+    public String renderSqlBlock() {
+        return "\n" + sqlMarker(legalName) + "\n"
+            + "SELECT 'CREATE DATABASE " + dbName + "' WHERE NOT EXISTS (SELECT FROM pg_database WHERE datname='" + dbName + "')\\gexec\n"
+            + "SELECT 'CREATE USER " + dbUser + " WITH PASSWORD ''" + getDbPassword().replace("'", "''''") + "''' WHERE NOT EXISTS (SELECT FROM pg_roles WHERE rolname='" + dbUser + "')\\gexec\n"
+            + "GRANT ALL PRIVILEGES ON DATABASE " + dbName + " TO " + dbUser + ";\n"
+            + "\\c " + dbName + "\n"
+            + "DO $$ BEGIN IF NOT EXISTS(SELECT 1 FROM information_schema.schemata WHERE schema_name='public' AND schema_owner='" + dbUser + "') THEN\n"
+            + "    GRANT CREATE ON SCHEMA public TO " + dbUser + "; ALTER SCHEMA public OWNER TO " + dbUser + ";\n"
+            + "END IF; END $$;\n";
+    }
+
+    public String renderWebserverTask(int serverPort) {
+        return "\n\ntask " + getWebserverTaskName() + "(type: JavaExec, dependsOn: assemble) {\n"
+            + "    classpath = sourceSets.main.runtimeClasspath\n"
+            + "    main = 'net.corda.samples.example.webserver.Starter'\n"
+            + "    args '--server.port=" + serverPort + "', '--config.rpc.host=localhost', '--config.rpc.port=" + rpcPort
+            + "', '--config.rpc.username=user1', '--config.rpc.password=test'\n"
+            + "}";
+    }
+
+    // setup_corda_db.sql 中每个自动添加的节点块开头的注释行
+    public static String sqlMarker(String legalName) {
+        return "-- 配置为节点 '" + legalName + "' 自动添加";
+    }
+
+    private static String find(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? m.group(1) : null;
+    }
+
+    private static Integer intOf(Pattern pattern, String text) {
+        String value = find(pattern, text);
+        return value != null ? Integer.valueOf(value) : null;
+    }
+
+    public String getLegalName() { return legalName; }
+    public Integer getP2pPort() { return p2pPort; }
+    public Integer getRpcPort() { return rpcPort; }
+    public Integer getAdminPort() { return adminPort; }
+    public String getDbName() { return dbName; }
+    public String getDbUser() { return dbUser; }
+    // 未显式配置时使用 add_node.ps1 模板中的默认密码
+    public String getDbPassword() { return dbPassword != null ? dbPassword : DEFAULT_DB_PASSWORD; }
+    public boolean isNotary() { return notary; }
+}
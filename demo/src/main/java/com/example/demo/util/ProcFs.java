@@ -0,0 +1,161 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 读取 Linux /proc 中单个进程的资源信息；非 Linux 或进程已退出时返回 -1 或 null
+ */
+public final class ProcFs {
+
+    private static final Path PROC = Paths.get("/proc");
+    // USER_HZ，Linux 上几乎总是 100；Java 无法直接调用 sysconf
+    public static final int CLOCK_TICKS_PER_SECOND = 100;
+
+    private static volatile long pageSize;
+
+    private ProcFs() {
+    }
+
+    public static boolean isAvailable() {
+        return Files.isDirectory(PROC.resolve("self"));
+    }
+
+    /**
+     * 进程的常驻内存（/proc/[pid]/status 中的 VmRSS），单位字节
+     */
+    public static long readRssBytes(long pid) {
+        try {
+            for (String line : Files.readAllLines(PROC.resolve(Long.toString(pid)).resolve("status"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmRSS:")) {
+                    String[] parts = line.substring(6).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // 进程已退出或无权读取
+        }
+        return -1;
+    }
+
+    /**
+     * 读取 /proc/[pid]/stat、statm、io；进程不存在时返回 null，io 无权读取时读写字节为 -1
+     */
+    public static ProcessSample readSample(long pid) {
+        Path dir = PROC.resolve(Long.toString(pid));
+        try {
+            String stat = Files.readString(dir.resolve("stat"), StandardCharsets.US_ASCII);
+            // 第二个字段是带括号的进程名，可能包含空格，从最后一个 ')' 之后开始按空格拆分
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split("\\s+");
+            long cpuTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+            int threads = Integer.parseInt(fields[17]);
+
+            String[] statm = Files.readString(dir.resolve("statm"), StandardCharsets.US_ASCII).trim().split("\\s+");
+            long rssBytes = Long.parseLong(statm[1]) * pageSize();
+
+            long readBytes = -1;
+            long writeBytes = -1;
+            try {
+                for (String line : Files.readAllLines(dir.resolve("io"), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith("read_bytes:")) {
+                        readBytes = Long.parseLong(line.substring(11).trim());
+                    } else if (line.startsWith("write_bytes:")) {
+                        writeBytes = Long.parseLong(line.substring(12).trim());
+                    }
+                }
+            } catch (IOException e) {
+                // 其他用户的进程不允许读取 io
+            }
+            return new ProcessSample(cpuTicks, rssBytes, readBytes, writeBytes, threads);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 进程树（进程本身加全部子进程）的合计样本
+     */
+    public static ProcessSample readTreeSample(ProcessHandle handle) {
+        ProcessSample total = readSample(handle.pid());
+        if (total == null) {
+            return null;
+        }
+        for (ProcessHandle child : handle.descendants().toList()) {
+            ProcessSample sample = readSample(child.pid());
+            if (sample != null) {
+                total = total.plus(sample);
+            }
+        }
+        return total;
+    }
+
+    // statm 以页为单位：用本进程 status 中的 VmRSS 与 statm 的比值推算页大小，失败时取 4096
+    private static long pageSize() {
+        long size = pageSize;
+        if (size == 0) {
+            size = 4096;
+            try {
+                long self = ProcessHandle.current().pid();
+                long rss = readRssBytes(self);
+                String[] statm = Files.readString(PROC.resolve(Long.toString(self)).resolve("statm"), StandardCharsets.US_ASCII)
+                    .trim().split("\\s+");
+                long pages = Long.parseLong(statm[1]);
+                if (rss > 0 && pages > 0) {
+                    long estimated = rss / pages;
+                    // 取最接近的 2 的幂
+                    size = Long.highestOneBit(estimated + estimated / 2);
+                }
+            } catch (IOException | RuntimeException e) {
+                // 使用默认值
+            }
+            pageSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * 进程及其全部子进程的常驻内存之和（startNode 脚本启动时节点 JVM 是子进程）
+     */
+    public static long readTreeRssBytes(ProcessHandle handle) {
+        long total = Math.max(0, readRssBytes(handle.pid()));
+        for (ProcessHandle child : handle.descendants().toList()) {
+            total += Math.max(0, readRssBytes(child.pid()));
+        }
+        return total;
+    }
+
+    /**
+     * 一次读取的累计值：CPU 时间（tick）、常驻内存、磁盘读写字节数、线程数
+     */
+    public static class ProcessSample {
+        private final long cpuTicks;
+        private final long rssBytes;
+        private final long readBytes;
+        private final long writeBytes;
+        private final int threads;
+
+        public ProcessSample(long cpuTicks, long rssBytes, long readBytes, long writeBytes, int threads) {
+            this.cpuTicks = cpuTicks;
+            this.rssBytes = rssBytes;
+            this.readBytes = readBytes;
+            this.writeBytes = writeBytes;
+            this.threads = threads;
+        }
+
+        ProcessSample plus(ProcessSample other) {
+            return new ProcessSample(cpuTicks + other.cpuTicks, rssBytes + other.rssBytes,
+                readBytes >= 0 && other.readBytes >= 0 ? readBytes + other.readBytes : readBytes,
+                writeBytes >= 0 && other.writeBytes >= 0 ? writeBytes + other.writeBytes : writeBytes,
+                threads + other.threads);
+        }
+
+        public long getCpuTicks() { return cpuTicks; }
+        public long getRssBytes() { return rssBytes; }
+        public long getReadBytes() { return readBytes; }
+        public long getWriteBytes() { return writeBytes; }
+        public int getThreads() { return threads; }
+    }
+}
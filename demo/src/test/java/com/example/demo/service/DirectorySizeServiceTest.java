@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DirectorySizeServiceTest {
+
+    @TempDir
+    Path projectRoot;
+
+    private Path nodeDir;
+    private DirectorySizeService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nodeDir = Files.createDirectories(projectRoot.resolve("build/nodes/PartyA"));
+        PowerShellService powerShellService = mock(PowerShellService.class);
+        when(powerShellService.getNodeDirectories()).thenReturn(List.of(nodeDir.toFile()));
+
+        service = new DirectorySizeService();
+        ReflectionTestUtils.setField(service, "powerShellService", powerShellService);
+        // 不启动监听线程和定时任务，只保留 WatchService 用于注册
+        ReflectionTestUtils.setField(service, "pool", new ForkJoinPool(2));
+        ReflectionTestUtils.setField(service, "watchService", FileSystems.getDefault().newWatchService());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void unwatchedSubdirectoriesAreRelistedPastTheWatchLimit() throws IOException {
+        // 只有节点根目录能被监听，logs 及其子目录都超过了上限
+        ReflectionTestUtils.setField(service, "maxWatches", 1);
+        Path nested = Files.createDirectories(nodeDir.resolve("logs/archive"));
+        Path log = Files.write(nested.resolve("node.log"), new byte[10]);
+        Files.write(nodeDir.resolve("node.conf"), new byte[5]);
+
+        service.refreshAll();
+        assertThat(service.getSize("PartyA")).isEqualTo(15L);
+
+        // 文件变大不会产生根目录的事件，也不改变目录 mtime
+        Files.write(log, new byte[30]);
+        service.refreshAll();
+
+        assertThat(service.getSize("PartyA")).isEqualTo(35L);
+    }
+}
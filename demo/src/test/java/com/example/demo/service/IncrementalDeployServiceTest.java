@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalDeployServiceTest {
+
+    @Test
+    void skippedNodesKeepTheirPreviousFingerprint() {
+        Properties previous = fingerprints("PartyA", "a1", "PartyB", "b1");
+        Properties current = fingerprints("PartyA", "a2", "PartyB", "b2");
+        List<Map<String, Object>> nodes = List.of(
+            Map.of("node", "PartyA", "action", "UPDATED"),
+            Map.of("node", "PartyB", "action", "SKIPPED_RUNNING"));
+
+        Properties saved = IncrementalDeployService.fingerprintsToSave(previous, current, nodes);
+
+        assertThat(saved.getProperty("PartyA.config")).isEqualTo("a2");
+        assertThat(saved.getProperty("PartyA.cordapps")).isEqualTo("a2-cordapps");
+        assertThat(saved.getProperty("PartyB.config")).isEqualTo("b1");
+        assertThat(saved.getProperty("PartyB.drivers")).isEqualTo("b1-drivers");
+    }
+
+    @Test
+    void skippedNewNodeIsNotRecorded() {
+        Properties previous = fingerprints("PartyA", "a1");
+        Properties current = fingerprints("PartyA", "a1", "PartyC", "c1");
+        List<Map<String, Object>> nodes = List.of(
+            Map.of("node", "PartyA", "action", "UNCHANGED"),
+            Map.of("node", "PartyC", "action", "SKIPPED_RUNNING"));
+
+        Properties saved = IncrementalDeployService.fingerprintsToSave(previous, current, nodes);
+
+        assertThat(saved.stringPropertyNames()).containsExactlyInAnyOrder(
+            "PartyA.config", "PartyA.cordapps", "PartyA.drivers");
+    }
+
+    @Test
+    void directoryNamesWithDotsAreHandled() {
+        Properties previous = fingerprints("Party.X", "x1");
+        Properties current = fingerprints("Party.X", "x2");
+        List<Map<String, Object>> nodes = List.of(Map.of("node", "Party.X", "action", "SKIPPED_RUNNING"));
+
+        Properties saved = IncrementalDeployService.fingerprintsToSave(previous, current, nodes);
+
+        assertThat(saved.getProperty("Party.X.config")).isEqualTo("x1");
+    }
+
+    private static Properties fingerprints(String... dirAndHash) {
+        Properties props = new Properties();
+        for (int i = 0; i < dirAndHash.length; i += 2) {
+            props.setProperty(dirAndHash[i] + ".config", dirAndHash[i + 1]);
+            props.setProperty(dirAndHash[i] + ".cordapps", dirAndHash[i + 1] + "-cordapps");
+            props.setProperty(dirAndHash[i] + ".drivers", dirAndHash[i + 1] + "-drivers");
+        }
+        return props;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogIndexServiceTest {
+
+    private static final String FLOW_ID = "3f2b1c4d-5e6f-4a7b-8c9d-0e1f2a3b4c5d";
+    private static final String TX_HASH = "A1B2C3D4E5F60718293A4B5C6D7E8F90A1B2C3D4E5F60718293A4B5C6D7E8F90";
+
+    @TempDir
+    Path dir;
+
+    private LogIndexService index;
+
+    @BeforeEach
+    void setUp() {
+        index = new LogIndexService();
+        ReflectionTestUtils.setField(index, "maxPostings", 1_000_000L);
+    }
+
+    @Test
+    void flowIdsHashesNamesAndExceptionsAreSearchable() throws IOException {
+        Path partyA = write("PartyA.log",
+            "[INFO ] 2025-01-01T00:00:01,000Z [main] Flow [" + FLOW_ID + "] started by O=PartyA, L=London, C=GB",
+            "[ERROR] 2025-01-01T00:00:03,000Z [main] Flow [" + FLOW_ID + "] failed: net.corda.core.flows.FlowException: boom",
+            "[INFO ] 2025-01-01T00:00:04,000Z [main] Recorded transaction " + TX_HASH);
+        Path partyB = write("PartyB.log",
+            "[INFO ] 2025-01-01T00:00:02,000Z [main] Flow [" + FLOW_ID + "] received from O=PartyA, L=London, C=GB");
+        indexFile("PartyA", partyA);
+        indexFile("PartyB", partyB);
+
+        LogIndexService.SearchResult byFlow = index.search(FLOW_ID.toUpperCase(), null, 10);
+        assertThat(byFlow.getTotal()).isEqualTo(3);
+        // 跨节点按时间升序
+        assertThat(byFlow.getHits()).extracting(LogIndexService.LogHit::getSource)
+            .containsExactly("PartyA", "PartyB", "PartyA");
+
+        assertThat(index.search(TX_HASH.toLowerCase(), null, 10).getTotal()).isEqualTo(1);
+        assertThat(index.search("FlowException", null, 10).getTotal()).isEqualTo(1);
+        assertThat(index.search("net.corda.core.flows.FlowException", null, 10).getTotal()).isEqualTo(1);
+        assertThat(index.search("partya", null, 10).getTotal()).isEqualTo(2);
+    }
+
+    @Test
+    void multipleTermsAreIntersectedAndSourceFilters() throws IOException {
+        Path partyA = write("PartyA.log",
+            "[INFO ] 2025-01-01T00:00:01,000Z [main] Flow [" + FLOW_ID + "] started by O=PartyA, L=London, C=GB",
+            "[ERROR] 2025-01-01T00:00:03,000Z [main] Flow [" + FLOW_ID + "] failed: FlowException");
+        Path partyB = write("PartyB.log",
+            "[ERROR] 2025-01-01T00:00:02,000Z [main] Flow [" + FLOW_ID + "] failed: FlowException");
+        indexFile("PartyA", partyA);
+        indexFile("PartyB", partyB);
+
+        assertThat(index.search(FLOW_ID + " FlowException", null, 10).getTotal()).isEqualTo(2);
+        LogIndexService.SearchResult filtered = index.search(FLOW_ID + " FlowException", "PartyB", 10);
+        assertThat(filtered.getHits()).extracting(LogIndexService.LogHit::getFile).containsExactly("PartyB.log");
+        assertThat(index.search(FLOW_ID + " 00000000-0000-0000-0000-000000000000", null, 10).getTotal()).isZero();
+    }
+
+    @Test
+    void uuidLikeFragmentsInsideWordsAreNotTokens() throws IOException {
+        Path log = write("PartyA.log", "[INFO ] 2025-01-01T00:00:01,000Z id=x" + FLOW_ID + "y");
+        indexFile("PartyA", log);
+
+        assertThat(index.getStatus().get("tokens")).isEqualTo(0);
+    }
+
+    @Test
+    void rotatedFilesDropOutOfResults() throws IOException {
+        Path log = write("PartyA.log", "[ERROR] 2025-01-01T00:00:01,000Z Flow [" + FLOW_ID + "] failed");
+        indexFile("PartyA", log);
+        ReflectionTestUtils.invokeMethod(index, "retire", log);
+
+        assertThat(index.search(FLOW_ID, null, 10).getTotal()).isZero();
+        assertThat(index.getStatus().get("postings")).isEqualTo(0L);
+    }
+
+    @Test
+    void continuationLinesTakeThePreviousTimestamp() throws IOException {
+        Path log = write("PartyA.log",
+            "[ERROR] 2025-01-01T00:00:05,250Z [main] Flow [" + FLOW_ID + "] failed",
+            "\tat net.corda.node.services.statemachine.FlowStateMachineImpl.run(FlowStateMachineImpl.kt:1) IllegalStateException");
+        indexFile("PartyA", log);
+
+        List<LogIndexService.LogHit> hits = index.search("IllegalStateException", null, 10).getHits();
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0).getTimestamp()).isEqualTo(Instant.parse("2025-01-01T00:00:05.250Z"));
+    }
+
+    @Test
+    void parsesCordaAndSpringBootTimestamps() {
+        assertThat(LogIndexService.parseTimestamp("[INFO ] 2025-01-01T00:00:00,123Z [main] x"))
+            .isEqualTo(Instant.parse("2025-01-01T00:00:00.123Z"));
+        assertThat(LogIndexService.parseTimestamp("2025-01-01T08:00:00.000+08:00  INFO 1234 --- [main] x"))
+            .isEqualTo(Instant.parse("2025-01-01T00:00:00Z"));
+        assertThat(LogIndexService.parseTimestamp("no timestamp here")).isNull();
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.writeString(dir.resolve(name), String.join("\n", lines) + "\n", StandardCharsets.UTF_8);
+    }
+
+    // 与 NodeLogScanner 一样按行首字节偏移量推送
+    private void indexFile(String source, Path file) throws IOException {
+        long offset = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            ReflectionTestUtils.invokeMethod(index, "indexLine", source, file, offset, line);
+            offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+    }
+}
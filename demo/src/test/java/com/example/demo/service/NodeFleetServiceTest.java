@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class NodeFleetServiceTest {
+
+    @Test
+    void defaultMinAvailableRestartsOneNodeAtATime() {
+        assertThat(NodeFleetService.planBatchSize(5, 5, 5, 4)).isEqualTo(1);
+    }
+
+    @Test
+    void batchSizeIsCappedByRunningTargets() {
+        // 10 个节点在线、只重启其中 2 个：即使预算允许停 8 个，每批也不超过 2 个
+        assertThat(NodeFleetService.planBatchSize(10, 2, 2, 2)).isEqualTo(2);
+        assertThat(NodeFleetService.planBatchSize(10, 6, 6, 7)).isEqualTo(3);
+    }
+
+    @Test
+    void minAvailableNotBelowRunningCountIsRejected() {
+        assertThatThrownBy(() -> NodeFleetService.planBatchSize(3, 3, 3, 3))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("minAvailable=3");
+        assertThatThrownBy(() -> NodeFleetService.planBatchSize(3, 3, 3, 5))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> NodeFleetService.planBatchSize(3, 3, 3, -1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void nothingRunningStartsAllTargetsInOneBatch() {
+        assertThat(NodeFleetService.planBatchSize(0, 0, 4, 0)).isEqualTo(4);
+    }
+
+    @Test
+    void notariesAreRestartedLastOneByOne() {
+        List<List<String>> batches = NodeFleetService.planBatches(
+                List.of("PartyA", "PartyB", "PartyC"), List.of("NotaryA", "NotaryB"), 2);
+
+        assertThat(batches).containsExactly(
+                List.of("PartyA", "PartyB"),
+                List.of("PartyC"),
+                List.of("NotaryA"),
+                List.of("NotaryB"));
+    }
+}
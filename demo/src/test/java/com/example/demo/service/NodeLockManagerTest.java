@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NodeLockManagerTest {
+
+    private NodeLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        lockManager = new NodeLockManager();
+        ReflectionTestUtils.setField(lockManager, "projectTimeoutSeconds", 1L);
+        ReflectionTestUtils.setField(lockManager, "nodeTimeoutSeconds", 1L);
+        ReflectionTestUtils.setField(lockManager, "stripeCount", 64);
+        lockManager.init();
+    }
+
+    @Test
+    void legalNameAndDirectoryNameShareTheSameKey() {
+        assertThat(NodeLockManager.lockKey("O=PartyA,L=London,C=GB")).isEqualTo("PartyA");
+        assertThat(NodeLockManager.lockKey("PartyA")).isEqualTo("PartyA");
+    }
+
+    @Test
+    void fleetLockExcludesSingleNodeLockOnTheSameNode() throws Exception {
+        try (NodeLockManager.Lease lease = lockManager.lockNode("PartyA", "start", true)) {
+            CompletableFuture<Throwable> other = CompletableFuture.supplyAsync(() -> {
+                try (NodeLockManager.Lease all = lockManager.lockNodes(List.of("O=PartyA,L=London,C=GB"), "stop-all", true)) {
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            });
+            assertThat(other.get(5, TimeUnit.SECONDS)).isInstanceOf(NodeLockManager.LockTimeoutException.class);
+        }
+    }
+
+    @Test
+    void differentNodesCanBeLockedConcurrently() throws Exception {
+        String other = "PartyB";
+        // 选一个与 PartyA 不在同一段的节点名
+        for (int i = 0; lockManager.stripeIndex(other) == lockManager.stripeIndex("PartyA"); i++) {
+            other = "Party" + i;
+        }
+        String otherNode = other;
+        try (NodeLockManager.Lease lease = lockManager.lockNode("PartyA", "start", true)) {
+            CompletableFuture<Boolean> started = CompletableFuture.supplyAsync(() -> {
+                try (NodeLockManager.Lease second = lockManager.lockNode(otherNode, "start", true)) {
+                    return true;
+                }
+            });
+            assertThat(started.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void projectLockTimesOutWithHolderWhileNodeOperationRuns() throws Exception {
+        try (NodeLockManager.Lease lease = lockManager.lockNode("PartyA", "start", true)) {
+            CompletableFuture<Throwable> deploy = CompletableFuture.supplyAsync(() -> {
+                try (NodeLockManager.Lease project = lockManager.lockProject("deploy")) {
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            });
+            Throwable error = deploy.get(5, TimeUnit.SECONDS);
+            assertThat(error).isInstanceOf(NodeLockManager.LockTimeoutException.class);
+            assertThat(error.getMessage()).contains("deploy").contains("start");
+        }
+        try (NodeLockManager.Lease project = lockManager.lockProject("deploy")) {
+            assertThat(lockManager.getStatus().get("projectWriteLocked")).isEqualTo(true);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void multiNodeLeaseReleasesEverythingOnClose() {
+        try (NodeLockManager.Lease lease = lockManager.lockNodes(List.of("PartyC", "PartyA", "O=PartyB,L=Paris,C=FR"), "start-all", true)) {
+            List<Map<String, Object>> holders = (List<Map<String, Object>>) lockManager.getStatus().get("holders");
+            assertThat(holders).isNotEmpty();
+            assertThat(holders.get(holders.size() - 1).get("scope")).isEqualTo("node:PartyA,PartyB,PartyC");
+        }
+        assertThat((List<?>) lockManager.getStatus().get("holders")).isEmpty();
+        assertThat(lockManager.getStatus().get("projectReadHolds")).isEqualTo(0);
+    }
+}
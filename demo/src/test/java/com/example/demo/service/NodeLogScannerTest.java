@@ -0,0 +1,86 @@
+package com.example.demo.service;
+
+import com.example.demo.util.CordaProjectModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NodeLogScannerTest {
+
+    private static final String ERROR_LINE =
+        "[ERROR] 2025-01-01T00:00:00,000Z [main] internal.NodeStartupLogging. - Exception during node startup";
+
+    @TempDir
+    Path projectRoot;
+
+    private Path nodeLogs;
+    private NodeLogScanner scanner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path nodeDir = projectRoot.resolve("build/nodes/PartyA");
+        nodeLogs = Files.createDirectories(nodeDir.resolve("logs"));
+
+        CordaProjectModel model = mock(CordaProjectModel.class);
+        when(model.getProjectRoot()).thenReturn(projectRoot);
+        PowerShellService powerShellService = mock(PowerShellService.class);
+        when(powerShellService.getProjectModel()).thenReturn(model);
+        when(powerShellService.getNodeDirectories()).thenReturn(List.of(nodeDir.toFile()));
+
+        scanner = new NodeLogScanner();
+        ReflectionTestUtils.setField(scanner, "powerShellService", powerShellService);
+        ReflectionTestUtils.setField(scanner, "recentErrors", 10);
+        ReflectionTestUtils.setField(scanner, "stateFile", "build/log-scanner.properties");
+    }
+
+    @Test
+    void errorsCopiedToStdoutAreCountedOnce() throws IOException {
+        Files.writeString(nodeLogs.resolve("node-host.log"), ERROR_LINE + "\n", StandardCharsets.UTF_8);
+        Files.writeString(nodeLogs.resolve("node-stdout.log"), ERROR_LINE + "\n", StandardCharsets.UTF_8);
+
+        scanner.scan();
+
+        assertThat(scanner.getErrorCount("PartyA")).isEqualTo(1);
+        assertThat(scanner.getRecentErrors("PartyA", 10))
+            .extracting(NodeLogScanner.LogEntry::getFile)
+            .containsExactly("node-host.log");
+    }
+
+    @Test
+    void stdoutLinesDoNotReachListeners() throws IOException {
+        Files.writeString(nodeLogs.resolve("node-host.log"), ERROR_LINE + "\n", StandardCharsets.UTF_8);
+        Files.writeString(nodeLogs.resolve("node-stdout.log"), ERROR_LINE + "\n", StandardCharsets.UTF_8);
+        List<String> seen = new ArrayList<>();
+        scanner.addLineListener((source, file, offset, line) -> seen.add(file.getFileName() + ":" + offset));
+
+        scanner.scan();
+
+        assertThat(seen).containsExactly("node-host.log:0");
+        assertThat(scanner.getErrorCount("PartyA")).isEqualTo(1);
+    }
+
+    @Test
+    void onlyNewBytesAreCountedOnTheNextScan() throws IOException {
+        Path log = nodeLogs.resolve("node-host.log");
+        Files.writeString(log, ERROR_LINE + "\n", StandardCharsets.UTF_8);
+        scanner.scan();
+
+        Files.writeString(log, ERROR_LINE + "\n" + ERROR_LINE + "\npartial", StandardCharsets.UTF_8);
+        scanner.scan();
+
+        // 末尾未写完的半行留到下次
+        assertThat(scanner.getErrorCount("PartyA")).isEqualTo(2);
+    }
+}
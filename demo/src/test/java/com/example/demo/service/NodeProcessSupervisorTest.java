@@ -0,0 +1,128 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(OS.WINDOWS)
+class NodeProcessSupervisorTest {
+
+    @TempDir
+    Path workDir;
+
+    private final NodeProcessSupervisor supervisor = new NodeProcessSupervisor();
+
+    @AfterEach
+    void tearDown() {
+        for (String name : List.of("PartyA", "PartyAB", "webserver-PartyA", "webserver-PartyB")) {
+            supervisor.stop(name, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void concurrentStartsLaunchOnlyOneProcess() throws Exception {
+        ReflectionTestUtils.setField(supervisor, "stopGraceSeconds", 1L);
+        File logFile = workDir.resolve("logs/node-stdout.log").toFile();
+        int threads = 8;
+        CountDownLatch ready = new CountDownLatch(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    try {
+                        supervisor.start("PartyA", workDir.toFile(), List.of("sleep", "30"), logFile);
+                        return true;
+                    } catch (IllegalStateException e) {
+                        return false;
+                    }
+                }));
+            }
+            int started = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(10, TimeUnit.SECONDS)) {
+                    started++;
+                }
+            }
+            assertThat(started).isEqualTo(1);
+            assertThat(supervisor.isRunning("PartyA")).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void webserversSharingAWorkDirKeepSeparatePidFiles() throws Exception {
+        File pidA = workDir.resolve("logs/PartyA.webserver.pid").toFile();
+        File pidB = workDir.resolve("logs/PartyB.webserver.pid").toFile();
+        supervisor.start("webserver-PartyA", workDir.toFile(), pidA, List.of("sleep", "30"),
+                workDir.resolve("logs/PartyA.log").toFile());
+        long pidOfB = supervisor.start("webserver-PartyB", workDir.toFile(), pidB, List.of("sleep", "30"),
+                workDir.resolve("logs/PartyB.log").toFile()).getPid();
+
+        supervisor.stop("webserver-PartyA", 1, TimeUnit.SECONDS);
+
+        assertThat(pidA).doesNotExist();
+        assertThat(pidB).exists();
+        assertThat(workDir.resolve(NodeProcessSupervisor.PID_FILE_NAME)).doesNotExist();
+        // 管理器重启后按各自的 PID 文件接管
+        NodeProcessSupervisor restarted = new NodeProcessSupervisor();
+        assertThat(restarted.adopt("webserver-PartyA", workDir.toFile(), pidA)).isEmpty();
+        assertThat(restarted.adopt("webserver-PartyB", workDir.toFile(), pidB))
+                .map(NodeProcessSupervisor.ManagedProcess::getPid)
+                .contains(pidOfB);
+    }
+
+    @Test
+    void processesIgnoringSigtermAreKilledAfterTheGracePeriod() throws Exception {
+        File logFile = workDir.resolve("logs/node-stdout.log").toFile();
+        NodeProcessSupervisor.ManagedProcess managed = supervisor.start("PartyA", workDir.toFile(),
+                List.of("sh", "-c", "trap '' TERM; sleep 30"), logFile);
+        // 等 sleep 子进程出现，此时 trap 已经生效
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (managed.getHandle().descendants().findAny().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        NodeProcessSupervisor.StopResult result = supervisor.stop("PartyA", 300, TimeUnit.MILLISECONDS);
+
+        assertThat(result.isStopped()).isTrue();
+        assertThat(result.isForced()).isTrue();
+        assertThat(managed.isAlive()).isFalse();
+        assertThat(workDir.resolve(NodeProcessSupervisor.PID_FILE_NAME)).doesNotExist();
+    }
+
+    @Test
+    void adoptDoesNotMatchASiblingDirectoryWithTheSamePrefix() throws Exception {
+        File partyA = Files.createDirectories(workDir.resolve("PartyA")).toFile();
+        File partyAB = Files.createDirectories(workDir.resolve("PartyAB")).toFile();
+        long pid = supervisor.start("PartyAB", partyAB, List.of("sleep", "30"),
+                new File(partyAB, "logs/node-stdout.log")).getPid();
+        // PartyA 残留的 Corda PID 文件恰好指向 PartyAB 的进程
+        Files.writeString(new File(partyA, NodeProcessSupervisor.CORDA_PID_FILE_NAME).toPath(), String.valueOf(pid));
+
+        NodeProcessSupervisor restarted = new NodeProcessSupervisor();
+        assertThat(restarted.adopt("PartyA", partyA)).isEmpty();
+        assertThat(restarted.adopt("PartyAB", partyAB))
+                .map(NodeProcessSupervisor.ManagedProcess::getPid)
+                .contains(pid);
+    }
+}
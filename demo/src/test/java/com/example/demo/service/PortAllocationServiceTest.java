@@ -0,0 +1,95 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PortAllocationServiceTest {
+
+    private PortAllocationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PortAllocationService();
+        ReflectionTestUtils.setField(service, "p2pRange", "10000-10070");
+        ReflectionTestUtils.setField(service, "rpcRange", "10000-10070");
+        ReflectionTestUtils.setField(service, "adminRange", "10000-10070");
+        // 跳过从项目文件、数据库和本机端口扫描初始化
+        ReflectionTestUtils.setField(service, "seeded", true);
+    }
+
+    @Test
+    void allocatesConsecutivePortsWithoutDuplicates() {
+        PortAllocationService.PortReservation first = service.allocate();
+        PortAllocationService.PortReservation second = service.allocate();
+
+        assertThat(first.toArray()).containsExactly(10000, 10001, 10002);
+        assertThat(second.toArray()).containsExactly(10003, 10004, 10005);
+    }
+
+    @Test
+    void wrapsAroundToReleasedPorts() {
+        for (int port = 10000; port <= 10070; port++) {
+            setBit(port);
+        }
+        service.release(10005);
+        cursor(PortAllocationService.PortType.P2P).set(10069);
+
+        assertThat(allocate(PortAllocationService.PortType.P2P)).isEqualTo(10005);
+    }
+
+    @Test
+    void fullWordAtTheEndOfTheRangeDoesNotSkipTheStart() {
+        // 10048-10111 是同一个 64 位字，整字占满；范围内只剩 10000 空闲
+        for (int port = 10001; port <= 10111; port++) {
+            setBit(port);
+        }
+        cursor(PortAllocationService.PortType.P2P).set(10047);
+
+        assertThat(allocate(PortAllocationService.PortType.P2P)).isEqualTo(10000);
+    }
+
+    @Test
+    void neverAllocatesOutsideTheRange() {
+        for (int port = 10000; port <= 10070; port++) {
+            setBit(port);
+        }
+        service.release(10064);
+
+        assertThat(allocate(PortAllocationService.PortType.P2P)).isEqualTo(10064);
+        assertThatThrownBy(() -> allocate(PortAllocationService.PortType.P2P))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("10000-10070");
+        assertThat(service.isAllocated(10071)).isFalse();
+    }
+
+    @Test
+    void reserveIsAllOrNothing() {
+        setBit(10002);
+
+        assertThatThrownBy(() -> service.reserve(10000, 10001, 10002))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.isAllocated(10000)).isFalse();
+        assertThat(service.isAllocated(10001)).isFalse();
+    }
+
+    private void setBit(int port) {
+        ReflectionTestUtils.invokeMethod(service, "trySet", port);
+    }
+
+    private int allocate(PortAllocationService.PortType type) {
+        Integer port = ReflectionTestUtils.invokeMethod(service, "allocate", type);
+        return port;
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicInteger cursor(PortAllocationService.PortType type) {
+        return ((Map<PortAllocationService.PortType, AtomicInteger>) ReflectionTestUtils.getField(service, "cursors")).get(type);
+    }
+}
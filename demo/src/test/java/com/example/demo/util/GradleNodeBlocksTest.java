@@ -0,0 +1,108 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GradleNodeBlocksTest {
+
+    private static final String BUILD_GRADLE = String.join("\n",
+        "task deployNodes(type: net.corda.plugins.Cordform, dependsOn: ['jar']) {",
+        "    nodeDefaults {",
+        "        projectCordapp { deploy = false }",
+        "    }",
+        "    node {",
+        "        name \"O=Notary,L=London,C=GB\"",
+        "        notary = [validating : false]",
+        "        p2pPort 10002",
+        "        rpcSettings {",
+        "            address(\"localhost:10003\")",
+        "            adminAddress(\"localhost:10043\")",
+        "        }",
+        "    }",
+        "    node {",
+        "        // 注释里的 } 不影响配对",
+        "        name \"O=PartyA,L=London,C=GB\"",
+        "        p2pPort 10005",
+        "        rpcSettings {",
+        "            address(\"localhost:10006\")",
+        "            adminAddress(\"localhost:10046\")",
+        "        }",
+        "        extraConfig = [",
+        "            \"dataSource.url\" : \"jdbc:postgresql://localhost:5432/corda_party_a\",",
+        "            \"dataSource.user\" : \"user_a\",",
+        "            \"dataSource.password\" : \"secret}\"",
+        "        ]",
+        "    }",
+        "}",
+        "");
+
+    @Test
+    void parsesDefaultsAndNodeBlocks() {
+        GradleNodeBlocks blocks = GradleNodeBlocks.parse(BUILD_GRADLE);
+
+        assertThat(blocks.hasDeployNodesTask()).isTrue();
+        assertThat(blocks.getNodeDefaults().getText()).contains("projectCordapp");
+        List<GradleNodeBlocks.Block> nodes = blocks.getNodes();
+        assertThat(nodes).extracting(GradleNodeBlocks.Block::getName)
+            .containsExactly("O=Notary,L=London,C=GB", "O=PartyA,L=London,C=GB");
+        assertThat(nodes.get(1).getDirectoryName()).isEqualTo("PartyA");
+        assertThat(blocks.getTaskEnd()).isEqualTo(BUILD_GRADLE.lastIndexOf('}'));
+        assertThat(blocks.findNode("O=PartyA,L=London,C=GB")).isNotNull();
+    }
+
+    @Test
+    void nodeDefinitionReadsPortsDatabaseAndNotaryFlag() {
+        List<GradleNodeBlocks.Block> nodes = GradleNodeBlocks.parse(BUILD_GRADLE).getNodes();
+
+        NodeDefinition notary = NodeDefinition.fromBlock(nodes.get(0));
+        assertThat(notary.isNotary()).isTrue();
+        assertThat(notary.getP2pPort()).isEqualTo(10002);
+
+        NodeDefinition partyA = NodeDefinition.fromBlock(nodes.get(1));
+        assertThat(partyA.isNotary()).isFalse();
+        assertThat(partyA.getP2pPort()).isEqualTo(10005);
+        assertThat(partyA.getRpcPort()).isEqualTo(10006);
+        assertThat(partyA.getAdminPort()).isEqualTo(10046);
+        assertThat(partyA.getDbName()).isEqualTo("corda_party_a");
+        assertThat(partyA.getDbUser()).isEqualTo("user_a");
+        assertThat(partyA.getDbPassword()).isEqualTo("secret}");
+        assertThat(partyA.getDirectoryName()).isEqualTo("PartyA");
+    }
+
+    @Test
+    void renderedBlocksUseTheNodePassword() {
+        NodeDefinition node = new NodeDefinition("O=PartyC,L=Paris,C=FR", 10011, 10012, 10052,
+            "corda_party_c", "user_c", "s3cret", false);
+
+        String gradle = "task deployNodes(type: net.corda.plugins.Cordform) {\n" + node.renderGradleBlock() + "\n}\n";
+        NodeDefinition parsed = NodeDefinition.fromBlock(GradleNodeBlocks.parse(gradle).getNodes().get(0));
+        assertThat(parsed.getDbPassword()).isEqualTo("s3cret");
+        assertThat(node.renderSqlBlock()).contains("WITH PASSWORD ''s3cret'''").doesNotContain("123456");
+    }
+
+    @Test
+    void missingTaskYieldsNoNodes() {
+        GradleNodeBlocks blocks = GradleNodeBlocks.parse("plugins { id 'java' }\n");
+        assertThat(blocks.hasDeployNodesTask()).isFalse();
+        assertThat(blocks.getNodes()).isEmpty();
+    }
+
+    @Test
+    void unbalancedTaskIsRejected() {
+        String truncated = BUILD_GRADLE.substring(0, BUILD_GRADLE.lastIndexOf('}'));
+        assertThatThrownBy(() -> GradleNodeBlocks.parse(truncated))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("deployNodes");
+    }
+
+    @Test
+    void directoryNameIsTheOrganisation() {
+        assertThat(GradleNodeBlocks.directoryName("O=Party B,L=New York,C=US")).isEqualTo("Party B");
+        assertThat(GradleNodeBlocks.directoryName("PartyA")).isEqualTo("PartyA");
+        assertThat(GradleNodeBlocks.directoryName(null)).isNull();
+    }
+}